@@ -2,6 +2,7 @@ package artistBean;
 
 import artistDTO.ArtistAppointmentDTO;
 import artistDTO.ArtistAppointmentFilterDTO;
+import dto.SlotClaimResult;
 import beans.UserSessionBean;
 import ejb.ArtistEJBLocal;
 import entities.TimeSlot;
@@ -85,12 +86,21 @@ private LocalDate selectedDate;
     }
     
     public void assignSlot() {
-        artistEJB.assignSlotToAppointment(
+        SlotClaimResult result = artistEJB.assignSlotToAppointment(
             selectedAppointmentId,
             selectedSlotId,
             userSessionBean.getUserId()
         );
         loadAppointments();
+        if (!result.isClaimed()) {
+            FacesContext.getCurrentInstance().addMessage(
+                null,
+                new FacesMessage(FacesMessage.SEVERITY_WARN, "Slot unavailable", result.getMessage())
+            );
+            this.availableSlots =
+                artistEJB.getAvailableSlotsForArtist(userSessionBean.getUserId());
+            return;
+        }
         info("Slot assigned");
     }
 
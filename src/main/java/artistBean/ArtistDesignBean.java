@@ -4,19 +4,23 @@ import artistDTO.DesignCreationDTO;
 import artistDTO.DesignListingDTO;
 import beans.UserSessionBean;
 import ejb.ArtistEJBLocal;
+import ejb.ImageAssetEJB;
 import entities.DesignComment;
 import entities.TattooDesign;
 import jakarta.annotation.PostConstruct;
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import javax.xml.stream.events.Comment;
+import org.primefaces.model.file.UploadedFile;
 
 @Named("artistDesignBean")
 @ViewScoped
@@ -28,6 +32,12 @@ public class ArtistDesignBean implements Serializable {
     @Inject
     private UserSessionBean userSession;   // ✅ Inject session bean
 
+    @EJB
+    private ImageAssetEJB imageAssets;
+
+    // Optional upload; streamed into the image store on save
+    private transient UploadedFile imageFile;
+
     private List<DesignListingDTO> designs;
     private DesignCreationDTO currentDesign;
 
@@ -62,27 +72,8 @@ private List<TattooDesign> relatedDesigns = new ArrayList<>();
             return;
         }
 
-        List<TattooDesign> entities = artistEJB.getArtistDesigns(loggedInArtistId, 0, 100);
-
-        for (TattooDesign entity : entities) {
-            DesignListingDTO dto = new DesignListingDTO();
-            dto.setDesignId(entity.getDesignId());
-            dto.setTitle(entity.getTitle());
-            dto.setDescription(entity.getDescription());
-            dto.setStyle(entity.getStyle());
-            dto.setPrice(entity.getPrice());
-            dto.setImagePath(entity.getImagePath());
-
-            dto.setBanned(Boolean.TRUE.equals(entity.getIsBanned()));
-            dto.setBannedReason(entity.getBannedReason());
-
-            dto.setTotalLikes(entity.getLikes() != null ? entity.getLikes().size() : 0);
-            dto.setTotalFavourites(entity.getFavourites() != null ? entity.getFavourites().size() : 0);
-
-            dto.setUploadedAt(entity.getUploadedAt());
-
-            designs.add(dto);
-        }
+        // Constructor-expression projection: display columns and counters in one statement
+        designs.addAll(artistEJB.getArtistDesignListings(loggedInArtistId, 0, 100));
     }
 
     // ✅ Prepare Create
@@ -116,6 +107,17 @@ private List<TattooDesign> relatedDesigns = new ArrayList<>();
     // ✅ Save (Create or Update)
     public void saveDesign() {
         try {
+            if (imageFile != null && imageFile.getSize() > 0) {
+                try (InputStream in = imageFile.getInputStream()) {
+                    currentDesign.setImageUrl(imageAssets.store(in));
+                }
+                imageFile = null;
+            }
+            if (currentDesign.getImageUrl() == null || currentDesign.getImageUrl().isBlank()) {
+                addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Upload an image or enter an image URL.");
+                return;
+            }
+
             if (isEditMode) {
                 // UPDATE
                 TattooDesign entity = artistEJB.getDesignById(currentDesign.getDesignId());
@@ -150,6 +152,10 @@ private List<TattooDesign> relatedDesigns = new ArrayList<>();
             loadDesigns();
             cancelForm();
 
+        } catch (EJBException e) {
+            // Rejected upload (type or size) arrives wrapped
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            addMessage(FacesMessage.SEVERITY_ERROR, "Error", cause.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Unexpected error occurred.");
@@ -179,6 +185,8 @@ public void cancelForm() {
     // ✅ Getters
     public List<DesignListingDTO> getDesigns() { return designs; }
     public DesignCreationDTO getCurrentDesign() { return currentDesign; }
+    public UploadedFile getImageFile() { return imageFile; }
+    public void setImageFile(UploadedFile imageFile) { this.imageFile = imageFile; }
     public boolean isShowForm() { return showForm; }
     public boolean isEditMode() { return isEditMode; }
     public void setEditMode(boolean editMode) { this.isEditMode = editMode; }
@@ -1,9 +1,19 @@
 package artistDTO;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-public class DesignListingDTO {
+public class DesignListingDTO implements Serializable {
+
+    /**
+     * Constructor-expression prefix for listing queries: display columns and the
+     * maintained counters only, no likes/favourites rows. Append WHERE / ORDER BY.
+     */
+    public static final String SELECT =
+        "SELECT NEW artistDTO.DesignListingDTO(d.designId, d.title, d.description, d.style, d.price, " +
+        "d.imagePath, d.isBanned, d.bannedReason, d.likeCount, d.favouriteCount, d.uploadedAt, " +
+        "a.userId, a.fullName) FROM TattooDesign d JOIN d.artist a ";
     
     private Long designId;
     private String title;
@@ -22,6 +32,29 @@ public class DesignListingDTO {
     
     private LocalDateTime uploadedAt;
 
+    private Long artistId;
+    private String artistName;
+
+    public DesignListingDTO() {}
+
+    public DesignListingDTO(Long designId, String title, String description, String style, BigDecimal price,
+                            String imagePath, Boolean isBanned, String bannedReason, Integer likeCount,
+                            Integer favouriteCount, LocalDateTime uploadedAt, Long artistId, String artistName) {
+        this.designId = designId;
+        this.title = title;
+        this.description = description;
+        this.style = style;
+        this.price = price;
+        this.imagePath = imagePath;
+        this.isBanned = Boolean.TRUE.equals(isBanned);
+        this.bannedReason = bannedReason;
+        this.totalLikes = likeCount != null ? likeCount : 0;
+        this.totalFavourites = favouriteCount != null ? favouriteCount : 0;
+        this.uploadedAt = uploadedAt;
+        this.artistId = artistId;
+        this.artistName = artistName;
+    }
+
     // Getters and Setters
     public Long getDesignId() { return designId; }
     public void setDesignId(Long designId) { this.designId = designId; }
@@ -45,4 +78,8 @@ public class DesignListingDTO {
     public void setTotalFavourites(int totalFavourites) { this.totalFavourites = totalFavourites; }
     public LocalDateTime getUploadedAt() { return uploadedAt; }
     public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
+    public Long getArtistId() { return artistId; }
+    public void setArtistId(Long artistId) { this.artistId = artistId; }
+    public String getArtistName() { return artistName; }
+    public void setArtistName(String artistName) { this.artistName = artistName; }
 }
\ No newline at end of file
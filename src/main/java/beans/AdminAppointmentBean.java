@@ -3,6 +3,7 @@ package beans;
 
 import dto.AppointmentDTO;
 import dto.AppointmentFilterDTO;
+import dto.SlotClaimResult;
 import ejb.AdminEJBLocal;
 import entities.Appointment;
 import entities.TimeSlot;
@@ -381,7 +382,12 @@ public void testDirectQuery() {
         }
         
         try {
-            adminEJB.assignSlotToAppointment(selectedAppointment.getAppointmentId(), selectedSlotId);
+            SlotClaimResult result = adminEJB.assignSlotToAppointment(selectedAppointment.getAppointmentId(), selectedSlotId);
+            if (!result.isClaimed()) {
+                showErrorMessage(result.getMessage());
+                loadAllData();
+                return;
+            }
             showSuccessMessage("Time slot assigned to appointment #" + selectedAppointment.getAppointmentId());
             resetSlotForm();
             loadAllData();
@@ -1,6 +1,7 @@
 package beans;
 
 import dto.DashboardDTO;
+import dto.DashboardStatsDTO;
 import ejb.AdminEJBLocal;
 import entities.Appointment;
 import jakarta.annotation.PostConstruct;
@@ -40,12 +41,14 @@ public class AdminDashboardBean implements Serializable {
     }
 
     private void loadStats() {
-        dashboard.setTotalUsers(adminEJB.countTotalUsers());
-        dashboard.setTotalArtists(adminEJB.countTotalArtists());
-        dashboard.setTotalClients(adminEJB.countTotalClients());
-        dashboard.setTodaysAppointments(adminEJB.countTodaysAppointments());
+        // One shared snapshot instead of a query per figure
+        DashboardStatsDTO stats = adminEJB.getDashboardSnapshot();
+        dashboard.setTotalUsers(stats.getTotalUsers());
+        dashboard.setTotalArtists(stats.getTotalArtists());
+        dashboard.setTotalClients(stats.getTotalClients());
+        dashboard.setTodaysAppointments(stats.getTodaysAppointments());
         
-        dashboard.setTotalEarnings(adminEJB.calculateTotalEarnings());
+        dashboard.setTotalEarnings(stats.getTotalEarnings().doubleValue());
     }
 
     private void loadRecentAppointments() {
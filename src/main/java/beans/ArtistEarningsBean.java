@@ -3,8 +3,8 @@ package beans;
 import dto.ArtistEarningSummaryDTO;
 import dto.ArtistPendingEarningDTO;
 import dto.ArtistPayoutDTO;
+import dto.PayoutBatchResultDTO;
 import ejb.AdminEJBLocal;
-import entities.AppUser;
 import entities.ArtistPayout;
 import jakarta.annotation.PostConstruct;
 import jakarta.ejb.EJB;
@@ -15,7 +15,6 @@ import jakarta.inject.Named;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,13 +23,11 @@ import java.util.stream.Collectors;
 public class ArtistEarningsBean implements Serializable {
 
     private static final long serialVersionUID = 1L;
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     @EJB
     private AdminEJBLocal adminEJB;
 
     // Page data
-    private List<AppUser> artists = new ArrayList<>();
     private List<ArtistEarningSummaryDTO> summaries = new ArrayList<>();
 
     private BigDecimal totalPendingAllArtists = BigDecimal.ZERO;
@@ -51,7 +48,6 @@ public class ArtistEarningsBean implements Serializable {
 
     public void loadAll() {
         try {
-            artists = adminEJB.listArtists();
             buildSummaries();
         } catch (Exception e) {
             addError("Failed to load artists: " + e.getMessage());
@@ -59,69 +55,20 @@ public class ArtistEarningsBean implements Serializable {
     }
 
     private void buildSummaries() {
-        summaries.clear();
         totalPendingAllArtists = BigDecimal.ZERO;
         totalPaidAllArtists = BigDecimal.ZERO;
         pendingItemsCount = 0;
 
-        // Precompute total paid across all payouts for quick dashboard stat
         try {
-            // Use EJB helper for total completed payments - fallback if missing
-            BigDecimal totalCompletedPayments = BigDecimal.ZERO;
-            try {
-                totalCompletedPayments = adminEJB.getTotalCompletedPaymentsAmount();
-            } catch (Exception ex) {
-                totalCompletedPayments = BigDecimal.ZERO;
-            }
-
-            // Compute all-artist totalPaid via listAllArtistPayouts if available
-            try {
-                List<ArtistPayout> allPayouts = adminEJB.listAllArtistPayouts();
-                totalPaidAllArtists = allPayouts.stream()
-                        .map(ap -> ap.getAmount() == null ? BigDecimal.ZERO : ap.getAmount())
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-            } catch (Exception ex) {
-                totalPaidAllArtists = BigDecimal.ZERO;
-            }
-
-            for (AppUser artist : artists) {
-                ArtistEarningSummaryDTO s = new ArtistEarningSummaryDTO();
-                s.setArtistId(artist.getUserId());
-                s.setArtistName(artist.getFullName());
-
-                // Pending logs
-                List<ArtistPendingEarningDTO> pending = adminEJB.getPendingEarningsByArtist(artist.getUserId());
-                BigDecimal pendingAmount = pending.stream()
-                        .map(p -> p.getArtistShare() == null ? BigDecimal.ZERO : p.getArtistShare())
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                s.setPendingAmount(pendingAmount != null ? pendingAmount.setScale(2) : BigDecimal.ZERO);
-                s.setPendingCount(pending.size());
+            // Balances come precomputed from the earnings ledger, sorted by pending amount desc
+            summaries = adminEJB.listArtistEarningSummaries();
+            for (ArtistEarningSummaryDTO s : summaries) {
                 totalPendingAllArtists = totalPendingAllArtists.add(s.getPendingAmount());
-                pendingItemsCount += pending.size();
-
-                // Total paid for this artist
-                List<ArtistPayout> payouts = adminEJB.listArtistPayouts(artist.getUserId(), 0, 100);
-                BigDecimal artistPaid = payouts.stream()
-                        .map(p -> p.getAmount() == null ? BigDecimal.ZERO : p.getAmount())
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                s.setTotalPaid(artistPaid != null ? artistPaid.setScale(2) : BigDecimal.ZERO);
-
-                // Last payout (formatted)
-                Optional<ArtistPayout> last = payouts.stream()
-                        .filter(p -> p.getPayoutDate() != null)
-                        .sorted(Comparator.comparing(ArtistPayout::getPayoutDate).reversed())
-                        .findFirst();
-                s.setLastPayout(last.map(ap -> ap.getPayoutDate().format(DATE_FMT)).orElse("N/A"));
-
-                summaries.add(s);
+                totalPaidAllArtists = totalPaidAllArtists.add(s.getTotalPaid());
+                pendingItemsCount += s.getPendingCount();
             }
-
-            // sort by pending amount desc
-            summaries = summaries.stream()
-                    .sorted(Comparator.comparing(ArtistEarningSummaryDTO::getPendingAmount).reversed())
-                    .collect(Collectors.toList());
-
         } catch (Exception e) {
+            summaries = new ArrayList<>();
             addError("Failed to build summaries: " + e.getMessage());
         }
     }
@@ -183,6 +130,23 @@ public class ArtistEarningsBean implements Serializable {
         }
     }
 
+    public void payAllArtists() {
+        try {
+            PayoutBatchResultDTO result = adminEJB.payAllArtists(resolveCurrentAdminId(), null);
+            if (result.getArtistsPaid() > 0) {
+                addInfo("Paid " + result.getArtistsPaid() + " artist(s), total " + result.getTotalAmount() + ".");
+            } else if (result.getArtistsFailed() == 0) {
+                addInfo("No pending earnings to pay.");
+            }
+            if (result.getArtistsFailed() > 0) {
+                addError("Payout failed for " + result.getArtistsFailed() + " artist(s): " + result.getFailuresByArtist());
+            }
+            loadAll();
+        } catch (Exception e) {
+            addError("Payout run failed: " + e.getMessage());
+        }
+    }
+
     // --- Utilities ---
     private Long resolveCurrentAdminId() {
         try {
@@ -208,7 +172,7 @@ public class ArtistEarningsBean implements Serializable {
     public BigDecimal getTotalPendingAllArtists() { return totalPendingAllArtists.setScale(2); }
     public BigDecimal getTotalPaidAllArtists() { return totalPaidAllArtists.setScale(2); }
     public long getPendingItemsCount() { return pendingItemsCount; }
-    public int getArtistsCount() { return artists == null ? 0 : artists.size(); }
+    public int getArtistsCount() { return summaries == null ? 0 : summaries.size(); }
 
     public ArtistEarningSummaryDTO getSelectedSummary() { return selectedSummary; }
     public List<ArtistPendingEarningDTO> getPendingList() { return pendingList; }
@@ -0,0 +1,22 @@
+package beans;
+
+import ejb.ImageAssetEJB;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+
+/**
+ * Image URLs for pages: {@code #{media.thumb(d.imagePath, 160)}} gives the
+ * thumbnail URL of a stored design image. External URLs and legacy paths are
+ * returned unchanged.
+ */
+@Named("media")
+@ApplicationScoped
+public class MediaBean {
+
+    public String thumb(String imagePath, int width) {
+        if (imagePath == null || !imagePath.startsWith(ImageAssetEJB.URL_PREFIX)) return imagePath;
+        String key = imagePath.substring(ImageAssetEJB.URL_PREFIX.length());
+        if (!ImageAssetEJB.isValidKey(key) || !ImageAssetEJB.isThumbnailWidth(width)) return imagePath;
+        return ImageAssetEJB.URL_PREFIX + "t" + width + "/" + key;
+    }
+}
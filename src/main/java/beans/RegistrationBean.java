@@ -3,6 +3,7 @@ package beans;
 import dto.UserRegisterDTO;
 import entities.AppUser;
 import ejb.AuthEJB;
+import ejb.PasswordHashingEJB;
 import jakarta.ejb.EJB;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.faces.application.FacesMessage;
@@ -11,7 +12,6 @@ import jakarta.faces.context.FacesContext;
 import jakarta.faces.validator.ValidatorException;
 import jakarta.inject.Named;
 import java.util.regex.Pattern;
-import util.PasswordUtil;
 
 @Named
 @RequestScoped
@@ -23,6 +23,9 @@ public class RegistrationBean {
     @EJB
     private AuthEJB authEJB;
 
+    @EJB
+    private PasswordHashingEJB passwordHashing;
+
     public String register() {
         try {
             if (registerDTO.getRole() == null || registerDTO.getRole().isEmpty()) {
@@ -35,7 +38,7 @@ public class RegistrationBean {
                 return null;
             }
 
-            String hashedPassword = PasswordUtil.hashPassword(registerDTO.getPassword());
+            String hashedPassword = passwordHashing.hash(registerDTO.getPassword());
 
             AppUser user = new AppUser();
             user.setUsername(registerDTO.getUsername());
@@ -13,6 +13,19 @@ public class ArtistCardDTO implements Serializable {
     // Optional (add later if needed)
     private String profileImage;
 
+    public ArtistCardDTO() {
+    }
+
+    // Used by the JPQL constructor projection in ClientEJB
+    public ArtistCardDTO(Long artistId, String fullName, Integer yearsExperience,
+                         Double averageRating, Long totalReviews) {
+        this.artistId = artistId;
+        this.fullName = fullName;
+        this.yearsExperience = yearsExperience;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.totalReviews = totalReviews != null ? totalReviews : 0L;
+    }
+
     // ===== GETTERS & SETTERS =====
 
     public String getInitial() {
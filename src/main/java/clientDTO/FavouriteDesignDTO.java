@@ -14,6 +14,20 @@ public class FavouriteDesignDTO implements Serializable {
     private Long artistId;
     private String artistName;
 
+    public FavouriteDesignDTO() {}
+
+    // Constructor expression used by ClientEJB.listFavouriteDesigns
+    public FavouriteDesignDTO(Long designId, String title, String imagePath, String style, BigDecimal price,
+                              Long artistId, String artistName) {
+        this.designId = designId;
+        this.title = title;
+        this.imagePath = imagePath;
+        this.style = style;
+        this.price = price;
+        this.artistId = artistId;
+        this.artistName = artistName;
+    }
+
     // --- getters & setters ---
 
     public Long getDesignId() {
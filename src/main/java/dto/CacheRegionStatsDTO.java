@@ -0,0 +1,63 @@
+package dto;
+
+import java.io.Serializable;
+
+/**
+ * Hit/miss counters of one cache region since startup (or the last reset),
+ * used to size regions and TTLs.
+ */
+public class CacheRegionStatsDTO implements Serializable {
+
+    private String region;
+    private String kind;
+    private long entries;
+    private long maxEntries;
+    private long ttlSeconds;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CacheRegionStatsDTO() {}
+
+    public CacheRegionStatsDTO(String region, String kind, long entries, long maxEntries, long ttlSeconds,
+                               long hits, long misses, long evictions) {
+        this.region = region;
+        this.kind = kind;
+        this.entries = entries;
+        this.maxEntries = maxEntries;
+        this.ttlSeconds = ttlSeconds;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String getRegion() { return region; }
+    public void setRegion(String region) { this.region = region; }
+
+    /** "query" for result regions, "entity" for second-level entity lookups. */
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+
+    public long getEntries() { return entries; }
+    public void setEntries(long entries) { this.entries = entries; }
+
+    public long getMaxEntries() { return maxEntries; }
+    public void setMaxEntries(long maxEntries) { this.maxEntries = maxEntries; }
+
+    public long getTtlSeconds() { return ttlSeconds; }
+    public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+
+    public long getHits() { return hits; }
+    public void setHits(long hits) { this.hits = hits; }
+
+    public long getMisses() { return misses; }
+    public void setMisses(long misses) { this.misses = misses; }
+
+    public long getEvictions() { return evictions; }
+    public void setEvictions(long evictions) { this.evictions = evictions; }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
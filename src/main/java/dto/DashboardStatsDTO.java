@@ -0,0 +1,69 @@
+package dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Point-in-time admin dashboard figures. Instances are shared between
+ * callers and never modified after they are built.
+ */
+public class DashboardStatsDTO implements Serializable {
+
+    private final long totalUsers;
+    private final Map<String, Long> usersByRole;
+    private final long totalAppointments;
+    private final long todaysAppointments;
+    private final Map<String, Long> appointmentsByStatus;
+    private final LocalDate recentFrom;
+    private final LocalDate recentTo;
+    private final Map<String, Long> recentAppointmentsByStatus;
+    private final BigDecimal totalEarnings;
+    private final LocalDateTime generatedAt;
+
+    public DashboardStatsDTO(long totalUsers, Map<String, Long> usersByRole,
+                             long totalAppointments, long todaysAppointments,
+                             Map<String, Long> appointmentsByStatus,
+                             LocalDate recentFrom, LocalDate recentTo,
+                             Map<String, Long> recentAppointmentsByStatus,
+                             BigDecimal totalEarnings, LocalDateTime generatedAt) {
+        this.totalUsers = totalUsers;
+        this.usersByRole = Map.copyOf(usersByRole);
+        this.totalAppointments = totalAppointments;
+        this.todaysAppointments = todaysAppointments;
+        this.appointmentsByStatus = Map.copyOf(appointmentsByStatus);
+        this.recentFrom = recentFrom;
+        this.recentTo = recentTo;
+        this.recentAppointmentsByStatus = Map.copyOf(recentAppointmentsByStatus);
+        this.totalEarnings = totalEarnings;
+        this.generatedAt = generatedAt;
+    }
+
+    public long getTotalUsers() { return totalUsers; }
+
+    /** Role name to user count, e.g. ARTIST, CLIENT, ADMIN. */
+    public Map<String, Long> getUsersByRole() { return usersByRole; }
+
+    public long getTotalArtists() { return usersByRole.getOrDefault("ARTIST", 0L); }
+    public long getTotalClients() { return usersByRole.getOrDefault("CLIENT", 0L); }
+
+    public long getTotalAppointments() { return totalAppointments; }
+    public long getTodaysAppointments() { return todaysAppointments; }
+
+    /** All-time appointment count per status. */
+    public Map<String, Long> getAppointmentsByStatus() { return appointmentsByStatus; }
+
+    /** First and last day (inclusive) of the recent window. */
+    public LocalDate getRecentFrom() { return recentFrom; }
+    public LocalDate getRecentTo() { return recentTo; }
+
+    /** Appointment count per status within the recent window. */
+    public Map<String, Long> getRecentAppointmentsByStatus() { return recentAppointmentsByStatus; }
+
+    /** Sum of COMPLETED payments. */
+    public BigDecimal getTotalEarnings() { return totalEarnings; }
+
+    public LocalDateTime getGeneratedAt() { return generatedAt; }
+}
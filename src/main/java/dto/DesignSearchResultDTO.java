@@ -0,0 +1,36 @@
+package dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of design search hits from the in-memory search index: design IDs
+ * in relevance order, the total hit count and per-style facet counts.
+ */
+public class DesignSearchResultDTO implements Serializable {
+
+    private List<Long> designIds = new ArrayList<>();
+    private long totalHits;
+    private Map<String, Long> styleFacets = new LinkedHashMap<>();
+
+    public DesignSearchResultDTO() {}
+
+    public DesignSearchResultDTO(List<Long> designIds, long totalHits, Map<String, Long> styleFacets) {
+        this.designIds = designIds;
+        this.totalHits = totalHits;
+        this.styleFacets = styleFacets;
+    }
+
+    public List<Long> getDesignIds() { return designIds; }
+    public void setDesignIds(List<Long> designIds) { this.designIds = designIds; }
+
+    public long getTotalHits() { return totalHits; }
+    public void setTotalHits(long totalHits) { this.totalHits = totalHits; }
+
+    /** Style -> hits with that style, ignoring the style filter; most frequent first. */
+    public Map<String, Long> getStyleFacets() { return styleFacets; }
+    public void setStyleFacets(Map<String, Long> styleFacets) { this.styleFacets = styleFacets; }
+}
@@ -0,0 +1,48 @@
+package dto;
+
+import entities.TattooDesign;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Position of a row in a sorted design listing, taken from the last design of
+ * a page. The next page is read with a seek predicate ("after this key")
+ * instead of an OFFSET, so deep pages cost the same as the first one.
+ */
+public class DesignSeekKeyDTO implements Serializable {
+
+    private Long designId;
+    private LocalDateTime uploadedAt;
+    private BigDecimal price;
+    private int favouriteCount;
+    private int likeCount;
+
+    public DesignSeekKeyDTO() {}
+
+    public static DesignSeekKeyDTO of(TattooDesign d) {
+        DesignSeekKeyDTO key = new DesignSeekKeyDTO();
+        key.designId = d.getDesignId();
+        key.uploadedAt = d.getUploadedAt();
+        key.price = d.getPrice(); // null marks a position among the unpriced designs
+        key.favouriteCount = d.getFavouriteCount() != null ? d.getFavouriteCount() : 0;
+        key.likeCount = d.getLikeCount() != null ? d.getLikeCount() : 0;
+        return key;
+    }
+
+    public Long getDesignId() { return designId; }
+    public void setDesignId(Long designId) { this.designId = designId; }
+
+    public LocalDateTime getUploadedAt() { return uploadedAt; }
+    public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public int getFavouriteCount() { return favouriteCount; }
+    public void setFavouriteCount(int favouriteCount) { this.favouriteCount = favouriteCount; }
+
+    public int getLikeCount() { return likeCount; }
+    public void setLikeCount(int likeCount) { this.likeCount = likeCount; }
+}
@@ -0,0 +1,32 @@
+package dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a "pay all artists" run: payouts created per artist, and the
+ * artists whose settlement failed with the reason.
+ */
+public class PayoutBatchResultDTO implements Serializable {
+
+    private final Map<Long, Long> payoutIdsByArtist = new LinkedHashMap<>();
+    private final Map<Long, String> failuresByArtist = new LinkedHashMap<>();
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    public void paid(Long artistId, Long payoutId, BigDecimal amount) {
+        payoutIdsByArtist.put(artistId, payoutId);
+        if (amount != null) totalAmount = totalAmount.add(amount);
+    }
+
+    public void failed(Long artistId, String reason) {
+        failuresByArtist.put(artistId, reason);
+    }
+
+    public Map<Long, Long> getPayoutIdsByArtist() { return payoutIdsByArtist; }
+    public Map<Long, String> getFailuresByArtist() { return failuresByArtist; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public int getArtistsPaid() { return payoutIdsByArtist.size(); }
+    public int getArtistsFailed() { return failuresByArtist.size(); }
+}
@@ -0,0 +1,36 @@
+package dto;
+
+import jakarta.ejb.ApplicationException;
+import java.io.IOException;
+
+/**
+ * Receives tabular rows one at a time from a streaming export, so callers can
+ * write them out without the full result ever being held in memory.
+ */
+public interface RowSink {
+
+    /** Called once, before the first row. */
+    void header(String... columns);
+
+    /** One row, values in header order. */
+    void row(Object[] values);
+
+    /**
+     * Thrown by a sink whose target failed (usually the client went away).
+     * An application exception, so it reaches the caller of the streaming
+     * EJB method as is instead of wrapped in an EJBException, and the bean
+     * instance is kept.
+     */
+    @ApplicationException(rollback = true)
+    final class AbortedException extends RuntimeException {
+
+        public AbortedException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dto;
+
+/**
+ * Outcome of assigning a time slot to an appointment. Losing a race for a
+ * slot is an expected result, not an exception, so callers can tell the user
+ * to pick another slot without a rolled-back transaction.
+ */
+public enum SlotClaimResult {
+
+    CLAIMED("Slot assigned successfully."),
+    SLOT_TAKEN("This time slot was just taken. Please choose another slot."),
+    APPOINTMENT_NOT_PENDING("The appointment is no longer pending; refresh and try again.");
+
+    private final String message;
+
+    SlotClaimResult(String message) {
+        this.message = message;
+    }
+
+    public boolean isClaimed() {
+        return this == CLAIMED;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
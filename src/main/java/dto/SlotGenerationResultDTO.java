@@ -0,0 +1,47 @@
+package dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Outcome of a bulk slot generation run. Only counts are returned so large
+ * ranges never hand thousands of managed TimeSlot entities back to callers.
+ */
+public class SlotGenerationResultDTO implements Serializable {
+
+    private Long artistId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int created;
+    private int skipped;
+    private int removed;
+
+    public SlotGenerationResultDTO() {}
+
+    public SlotGenerationResultDTO(Long artistId, LocalDate startDate, LocalDate endDate) {
+        this.artistId = artistId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public Long getArtistId() { return artistId; }
+    public void setArtistId(Long artistId) { this.artistId = artistId; }
+
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+
+    /** New AVAILABLE slots inserted. */
+    public int getCreated() { return created; }
+    public void setCreated(int created) { this.created = created; }
+
+    /** Candidate slots skipped because they overlap an existing slot. */
+    public int getSkipped() { return skipped; }
+    public void setSkipped(int skipped) { this.skipped = skipped; }
+
+    /** Unreferenced AVAILABLE slots cleared before regenerating. */
+    public int getRemoved() { return removed; }
+    public void setRemoved(int removed) { this.removed = removed; }
+}
@@ -2,27 +2,38 @@ package ejb;
 import dto.AdminProfileDTO;
 import dto.AppointmentDTO;
 import dto.AppointmentFilterDTO;
+import dto.CacheRegionStatsDTO;
+import dto.DashboardStatsDTO;
+import dto.ArtistEarningSummaryDTO;
 import dto.ArtistPendingEarningDTO;
 import dto.MedicalFormDTO;
 import dto.MedicalFormFilterDTO;
+import dto.PayoutBatchResultDTO;
+import dto.RowSink;
+import dto.SlotClaimResult;
 import dto.TimeSlotDTO;
 import dto.TimeSlotFilterDTO;
 import jakarta.persistence.NoResultException;
 import entities.*;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.persistence.*;
 import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import util.PasswordUtil;
 import jakarta.persistence.EntityNotFoundException;
 import java.math.RoundingMode;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Stateless
 //@RolesAllowed({"ADMIN"})
@@ -31,6 +42,42 @@ public class AdminEJB implements AdminEJBLocal {
     @PersistenceContext(unitName = "TattooPU")
     private EntityManager em;
 
+    @EJB
+    private TrendingEJB trendingEJB;
+
+    @EJB
+    private ArtistBrowseCacheEJB artistBrowseCache;
+
+    @EJB
+    private TimeSlotEJB timeSlotEJB;
+
+    @EJB
+    private SlotAvailabilityEJB slotAvailability;
+
+    @EJB
+    private DesignSearchEJB designSearch;
+
+    @EJB
+    private QueryCacheEJB queryCache;
+
+    @EJB
+    private PasswordHashingEJB passwordHashing;
+
+    @EJB
+    private DashboardStatsEJB dashboardStats;
+
+    @EJB
+    private PayoutSettlementEJB payoutSettlement;
+
+    @EJB
+    private EarningLedgerEJB earningLedger;
+
+    @EJB
+    private PaymentOutboxEJB paymentOutbox;
+
+    @EJB
+    private RevenueRollupEJB revenueRollup;
+
     private static final BigDecimal ARTIST_COMMISSION_RATE = new BigDecimal("0.60"); // 60% Artist share
     private static final BigDecimal ADMIN_CUT_RATE = new BigDecimal("0.40");       // 40% Studio cut
     
@@ -76,6 +123,7 @@ public AppUser getUserById(Long userId) {
         u.setDeactivationReason(deactivate ? reason : null);
 
         em.merge(u);
+        artistBrowseCache.invalidate();
     }
 
 @Override
@@ -102,6 +150,7 @@ public void verifyArtist(Long artistId, boolean verify, Long verifyingAdminId) {
     }
 
     em.merge(artist);
+    artistBrowseCache.invalidate();
 }
 
 public Long getUserIdByUsername(String username) {
@@ -133,6 +182,7 @@ public Announcement createAnnouncement(Long postedByAdminId, String title, Strin
     a.setTargetRole(targetRole);
     a.setPostedBy(admin);
     em.persist(a);
+    announcementsChanged();
     em.flush(); // ensure id assigned
 
     // initialize postedBy
@@ -153,6 +203,7 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
     // DO NOT overwrite original postedAt on edit — keep original postedAt
     // If you want to record "lastUpdated", add a new field to Announcement entity (recommended).
     Announcement merged = em.merge(a);
+    announcementsChanged();
 
     // Initialize postedBy before returning (in case calling code inspects postedBy)
     if (merged.getPostedBy() != null) merged.getPostedBy().getUserId();
@@ -166,6 +217,12 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         Announcement a = em.find(Announcement.class, announcementId);
         if (a == null) throw new IllegalArgumentException("Announcement not found: " + announcementId);
         em.remove(a);
+        announcementsChanged();
+    }
+
+    // Cached announcement lists are dropped once the writing transaction commits
+    private void announcementsChanged() {
+        queryCache.evict(QueryCacheEJB.ANNOUNCEMENTS);
     }
 
 // -----------------------
@@ -197,6 +254,9 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         d.setBannedAt(LocalDateTime.now());
 
         em.merge(d);
+        trendingEJB.remove(designId);
+        designSearch.designRemoved(designId);
+        queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
 
         // Create an admin announcement for admins (audit)
         Announcement aAdmin = new Announcement();
@@ -233,6 +293,7 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
             cAnn.setTargetRole("CLIENT");
             em.persist(cAnn);
         }
+        announcementsChanged();
     }
 
 
@@ -253,6 +314,8 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         d.setRemovedAt(null);
 
         em.merge(d);
+        designSearch.designChanged(d);
+        queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
 
         // Announcement for artist + admin
         Announcement aArtist = new Announcement();
@@ -270,6 +333,7 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         aAdmin.setPostedBy(admin);
         aAdmin.setTargetRole("ADMIN");
         em.persist(aAdmin);
+        announcementsChanged();
     }
 
 
@@ -279,6 +343,9 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         TattooDesign d = em.find(TattooDesign.class, designId);
         if (d == null) throw new IllegalArgumentException("Design not found: " + designId);
         em.remove(d);
+        trendingEJB.remove(designId);
+        designSearch.designRemoved(designId);
+        queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
     }
 
     // -----------------------
@@ -337,6 +404,7 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         slot.setBlockReason(reason);
         slot.setBlockedBy(admin);
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
     }
 
     @Override
@@ -351,6 +419,7 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         slot.setBlockReason(null);
         slot.setBlockedBy(null);
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
     }
 
     // -----------------------
@@ -407,6 +476,8 @@ public Announcement updateAnnouncement(Long announcementId, String title, String
         // log.setPayoutAt(null); // Payout date is null until the payout occurs
 
         em.persist(log);
+        earningLedger.earningAdded(artist.getUserId(), artistShare);
+        revenueRollup.touch(payment.getPaymentDate());
 
         return log;
     }
@@ -457,6 +528,9 @@ public void markPaymentStatus(Integer paymentId, String status, Long adminId) {
         payment.setStatus(newStatus);
         em.merge(payment);
     }
+    dashboardStats.invalidate();
+    revenueRollup.touch(payment.getPaymentDate(),
+            payment.getAppointment() != null ? payment.getAppointment().getAppointmentDateTime() : null);
 }
 
 
@@ -535,54 +609,47 @@ public List<ArtistPayout> listArtistPayouts(Long artistId, int offset, int limit
 public Map<String, Object> generateSimpleReports(LocalDate fromDate, LocalDate toDate) {
     Map<String, Object> report = new HashMap<>();
 
-    // 1. Convert LocalDate range to LocalDateTime (Start of 'from' day to End of 'to' day)
-    LocalDateTime startDateTime = fromDate.atStartOfDay();
-    LocalDateTime endDateTime = toDate.plusDays(1).atStartOfDay(); 
-    
-    // --- 1. Calculate Total Bookings (Count of Appointments) ---
-    // FIX: Using the nested path 'a.timeSlot.startTime'
-    Long totalBookings = em.createQuery(
-            "SELECT COUNT(a) FROM Appointment a WHERE a.timeSlot.startTime >= :start AND a.timeSlot.startTime < :end AND a.status IN ('PAID', 'COMPLETED')",
-            Long.class)
-            .setParameter("start", startDateTime)
-            .setParameter("end", endDateTime)
-            .getSingleResult();
-    
+    // Summed from the day/month rollups (RevenueRollupEJB) instead of scanning
+    // appointments and payments: bookings by appointment date, revenue by payment date
+    long totalBookings = 0;
+    Map<Long, Long> completedByArtist = new HashMap<>();
+    for (BookingRollup b : revenueRollup.bookings(fromDate, toDate)) {
+        if ("PAID".equals(b.getStatus()) || "COMPLETED".equals(b.getStatus())) {
+            totalBookings += b.getAppointmentCount();
+        }
+        if ("COMPLETED".equals(b.getStatus())) {
+            completedByArtist.merge(b.getArtistId(), b.getAppointmentCount(), Long::sum);
+        }
+    }
     report.put("totalBookings", totalBookings);
 
-    // --- 2. Calculate Total Revenue (Sum of COMPLETED Payments) ---
-    // FIX: Using the nested path 'a.timeSlot.startTime'
-    BigDecimal totalRevenue = em.createQuery(
-            "SELECT SUM(p.amount) FROM Payment p JOIN p.appointment a " +
-            "WHERE p.status = 'COMPLETED' AND a.timeSlot.startTime >= :start AND a.timeSlot.startTime < :end",
-            BigDecimal.class)
-            .setParameter("start", startDateTime)
-            .setParameter("end", endDateTime)
-            .getSingleResult();
-            
-    report.put("totalRevenue", totalRevenue == null ? BigDecimal.ZERO : totalRevenue);
+    BigDecimal totalRevenue = BigDecimal.ZERO;
+    for (RevenueRollup r : revenueRollup.revenue(fromDate, toDate)) {
+        if ("COMPLETED".equals(r.getStatus())) totalRevenue = totalRevenue.add(r.getAmount());
+    }
+    report.put("totalRevenue", totalRevenue);
 
-    // --- 3. Identify Top 3 Artists by Revenue/Bookings ---
-    // FIX: Using the nested path 'a.timeSlot.startTime'
-    List<Object[]> topArtistsRaw = em.createQuery(
-            "SELECT a.artist.userId, a.artist.fullName, COUNT(a) AS bookingCount " +
-            "FROM Appointment a " +
-            "WHERE a.status = 'COMPLETED' AND a.timeSlot.startTime >= :start AND a.timeSlot.startTime < :end " +
-            "GROUP BY a.artist.userId, a.artist.fullName " +
-            "ORDER BY bookingCount DESC",
-            Object[].class)
-            .setParameter("start", startDateTime)
-            .setParameter("end", endDateTime)
-            .setMaxResults(3) // Limit to top 3
-            .getResultList();
+    // --- Top 3 artists by completed bookings ---
+    List<Map.Entry<Long, Long>> top = completedByArtist.entrySet().stream()
+            .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+            .limit(3)
+            .toList();
+
+    Map<Long, String> names = new HashMap<>();
+    if (!top.isEmpty()) {
+        List<Object[]> rows = em.createQuery(
+                "SELECT u.userId, u.fullName FROM AppUser u WHERE u.userId IN :ids", Object[].class)
+                .setParameter("ids", top.stream().map(Map.Entry::getKey).toList())
+                .getResultList();
+        for (Object[] row : rows) names.put((Long) row[0], (String) row[1]);
+    }
 
-    // The stream logic for type safety remains correct.
-    List<Map<String, Object>> topArtists = topArtistsRaw.stream().map(
-        arr -> {
+    List<Map<String, Object>> topArtists = top.stream().map(
+        e -> {
             Map<String, Object> artistMap = new HashMap<>();
-            artistMap.put("artistId", (Long) arr[0]);
-            artistMap.put("fullName", (String) arr[1]);
-            artistMap.put("completedBookings", (Long) arr[2]);
+            artistMap.put("artistId", e.getKey());
+            artistMap.put("fullName", names.get(e.getKey()));
+            artistMap.put("completedBookings", e.getValue());
             return artistMap;
         }
     ).toList();
@@ -638,42 +705,35 @@ public Map<String, Object> generateSimpleReports(LocalDate fromDate, LocalDate t
 }
     
     //additionally added things
+    // Dashboard counters are served from the shared snapshot (DashboardStatsEJB)
     @Override
+public DashboardStatsDTO getDashboardSnapshot() {
+    return dashboardStats.snapshot();
+}
+
+@Override
 public long countTotalUsers() {
-    return em.createQuery("SELECT COUNT(u) FROM AppUser u", Long.class)
-             .getSingleResult();
+    return dashboardStats.snapshot().getTotalUsers();
 }
 
 @Override
 public long countTotalArtists() {
-    return em.createQuery("SELECT COUNT(u) FROM AppUser u WHERE u.role.roleName = 'ARTIST'", Long.class)
-             .getSingleResult();
+    return dashboardStats.snapshot().getTotalArtists();
 }
 
 @Override
 public long countTotalClients() {
-    return em.createQuery("SELECT COUNT(u) FROM AppUser u WHERE u.role.roleName = 'CLIENT'", Long.class)
-             .getSingleResult();
+    return dashboardStats.snapshot().getTotalClients();
 }
 
 @Override
 public long countTotalBookings() {
-    return em.createQuery("SELECT COUNT(a) FROM Appointment a", Long.class)
-             .getSingleResult();
+    return dashboardStats.snapshot().getTotalAppointments();
 }
 
 @Override
 public long countTodaysAppointments() {
-    LocalDate today = LocalDate.now();
-    LocalDateTime start = today.atStartOfDay();
-    LocalDateTime end = today.plusDays(1).atStartOfDay();
-
-    return em.createQuery(
-            "SELECT COUNT(a) FROM Appointment a WHERE a.appointmentDateTime >= :start AND a.appointmentDateTime < :end",
-            Long.class)
-            .setParameter("start", start)
-            .setParameter("end", end)
-            .getSingleResult();
+    return dashboardStats.snapshot().getTodaysAppointments();
 }
 
 @Override
@@ -689,17 +749,9 @@ public List<Appointment> listRecentAppointments(int limit) {
 @Override
 public double calculateTotalEarnings() {
     try {
-        // Check if your Payment entity has 'amount' or 'paymentAmount' field
-        // Change 'paymentAmount' to 'amount' if needed
-        Double result = em.createQuery(
-                "SELECT SUM(p.amount) FROM Payment p WHERE p.status = 'COMPLETED'",  // Changed to 'amount'
-                Double.class)
-                .getSingleResult();
-        return result != null ? result : 0.0;
-    } catch (NoResultException e) {
-        return 0.0;
+        return dashboardStats.snapshot().getTotalEarnings().doubleValue();
     } catch (Exception e) {
-        e.printStackTrace();  // Added stack trace
+        e.printStackTrace();
         return 0.0;
     }
 }
@@ -745,13 +797,13 @@ public boolean changeAdminPassword(Long adminId, String oldPassword, String newP
         AppUser admin = em.find(AppUser.class, adminId);
         if (admin == null) return false;
 
-        // ✅ Verify old password using PasswordUtil
-        if (!PasswordUtil.verifyPassword(oldPassword, admin.getPassword())) {
+        // ✅ Verify old password using the hashing service
+        if (!passwordHashing.verify(oldPassword, admin.getPassword())) {
             return false; // old password doesn’t match
         }
 
         // ✅ Hash new password before saving
-        String hashedNewPassword = PasswordUtil.hashPassword(newPassword);
+        String hashedNewPassword = passwordHashing.hash(newPassword);
         admin.setPassword(hashedNewPassword);
 
         em.merge(admin);
@@ -771,10 +823,37 @@ public void deleteUser(Long userId) {
         throw new IllegalArgumentException("User not found: " + userId);
     }
     em.remove(u);
+    dashboardStats.invalidate();
 }
 
 // AdminEJB.java
 
+// Payouts summary: one read of the ledger joined to the artist roster
+@Override
+public List<ArtistEarningSummaryDTO> listArtistEarningSummaries() {
+    List<Object[]> rows = em.createQuery(
+        "SELECT u.userId, u.fullName, COALESCE(b.pendingAmount, 0) AS pending, b.pendingCount, b.paidAmount, b.lastPayoutAt " +
+        "FROM AppUser u LEFT JOIN ArtistEarningBalance b ON b.artistId = u.userId " +
+        "WHERE u.role.roleName = 'ARTIST' " +
+        "ORDER BY pending DESC, u.userId ASC",
+        Object[].class
+    ).getResultList();
+
+    DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    List<ArtistEarningSummaryDTO> summaries = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+        ArtistEarningSummaryDTO s = new ArtistEarningSummaryDTO();
+        s.setArtistId((Long) row[0]);
+        s.setArtistName((String) row[1]);
+        s.setPendingAmount(row[2] != null ? new BigDecimal(row[2].toString()).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        s.setPendingCount(row[3] != null ? ((Number) row[3]).intValue() : 0);
+        s.setTotalPaid(row[4] != null ? ((BigDecimal) row[4]).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        s.setLastPayout(row[5] != null ? ((LocalDateTime) row[5]).format(fmt) : "N/A");
+        summaries.add(s);
+    }
+    return summaries;
+}
+
 @Override
 public List<AppUser> listArtists() {
     return em.createQuery(
@@ -787,66 +866,28 @@ public List<AppUser> listArtists() {
 
 @Override
 public List<TimeSlot> listAvailableSlots(LocalDate date) {
-    // 1. Define the time range
-    LocalDateTime start = date.atStartOfDay();
-    LocalDateTime end = date.plusDays(1).atStartOfDay();
-    
-    // Assuming TimeSlots are marked "AVAILABLE"
-    final String AVAILABLE_STATUS = "AVAILABLE"; 
-
-    TypedQuery<TimeSlot> query = em.createQuery(
-        "SELECT ts FROM TimeSlot ts WHERE ts.startTime >= :start AND ts.startTime < :end AND ts.status = :status ORDER BY ts.startTime ASC",
-        TimeSlot.class);
-
-    // 2. CRITICAL FIX: Bind ALL parameters
-    query.setParameter("start", start);
-    query.setParameter("end", end);
-    query.setParameter("status", AVAILABLE_STATUS); // This parameter was likely missing!
-
-    return query.getResultList();
+    // All artists' free slots for the day, ordered by start time, from the availability index
+    return slotAvailability.getAvailableOnDate(date);
 }
 
 // In AdminEJB.java - ensure this method exists
 @Override
 public Map<String, Long> getDashboardStats() {
-    Map<String, Long> stats = new HashMap<>();
-    
     // Count appointments by status
-    String[] statuses = {"PENDING", "CONFIRMED", "COMPLETED", "CANCELLED", "PAID"};
-    
-    for (String status : statuses) {
-        try {
-            Long count = em.createQuery(
-                "SELECT COUNT(a) FROM Appointment a WHERE a.status = :status", Long.class)
-                .setParameter("status", status)
-                .getSingleResult();
-            stats.put(status, count != null ? count : 0L);
-        } catch (Exception e) {
-            stats.put(status, 0L);
-        }
-    }
-    
-    return stats;
+    return new HashMap<>(dashboardStats.snapshot().getAppointmentsByStatus());
 }
 
     
     @Override
 public List<TimeSlot> getAvailableSlots(Long artistId) {
-    return em.createQuery(
-            "SELECT t FROM TimeSlot t " +
-            "WHERE t.artist.userId = :artistId " +
-            "AND t.status = :status " +
-            "ORDER BY t.startTime ASC",
-            TimeSlot.class)
-            .setParameter("artistId", artistId)
-            .setParameter("status", TimeSlot.TimeSlotStatus.AVAILABLE)
-            .getResultList();
+    // Free slots from today on; past AVAILABLE slots cannot be booked anyway
+    return slotAvailability.getAvailableFrom(artistId, null);
 }
 
 // ✅ KEEP THIS BLOCK (It is the correct implementation)
 @Override
 @Transactional
-public void assignSlotToAppointment(Long appointmentId, Integer slotId) {
+public SlotClaimResult assignSlotToAppointment(Long appointmentId, Integer slotId) {
     if (appointmentId == null || slotId == null) {
         throw new IllegalArgumentException("Appointment ID and Slot ID must be provided.");
     }
@@ -865,29 +906,16 @@ public void assignSlotToAppointment(Long appointmentId, Integer slotId) {
         throw new IllegalStateException("Cannot assign appointment to a BLOCKED time slot.");
     }
     
-    // Business Logic Check
+    // Fast path: obviously stale requests are answered without touching the rows
     if (!"PENDING".equals(appt.getStatus())) {
-         throw new IllegalStateException("Cannot assign slot to an appointment that is already " + appt.getStatus() + ".");
+         return SlotClaimResult.APPOINTMENT_NOT_PENDING;
     }
     if (slot.getStatus() != TimeSlot.TimeSlotStatus.AVAILABLE) {
-         throw new IllegalStateException("Slot is not available: " + slot.getStatus());
+         return SlotClaimResult.SLOT_TAKEN;
     }
 
-    // Set slot status to BOOKED
-    slot.setStatus(TimeSlot.TimeSlotStatus.BOOKED); 
-
-    // Link Appointment to Slot
-    appt.setSlot(slot);
-
-    // Set appointment datetime from the slot
-    appt.setAppointmentDateTime(slot.getStartTime());
-
-    // Update appointment status
-    appt.setStatus("CONFIRMED");
-
-    // Persist both in the transaction
-    em.merge(slot);
-    em.merge(appt);
+    // Conditional claim: BOOKED slot, CONFIRMED appointment with the slot's start time
+    return timeSlotEJB.claimSlotForAppointment(appointmentId, slotId, "CONFIRMED");
 }
 
 
@@ -896,23 +924,7 @@ public List<TimeSlot> listAvailableSlotsByArtistAndDate(Long artistId, LocalDate
     if (artistId == null || date == null) {
         return List.of();
     }
-    
-    // The query finds available slots for a specific artist on a specific day.
-    // Use the artist's ID and check if the slot's start time is within the day.
-    LocalDateTime startOfDay = date.atStartOfDay();
-    LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
-
-    // Assuming TimeSlot has an artist (AppUser) relationship
-    return em.createQuery(
-            "SELECT t FROM TimeSlot t WHERE t.artist.userId = :artistId " +
-            "AND t.startTime >= :startOfDay AND t.startTime < :endOfDay " +
-            "AND t.status = 'AVAILABLE' " + // Check status as a String for safety
-            "ORDER BY t.startTime ASC",
-            TimeSlot.class)
-            .setParameter("artistId", artistId)
-            .setParameter("startOfDay", startOfDay)
-            .setParameter("endOfDay", endOfDay)
-            .getResultList();
+    return slotAvailability.getAvailableOnDate(artistId, date);
 }
 
     // Add these methods to AdminEJB.java (in the appropriate section)
@@ -1145,9 +1157,12 @@ public boolean updateAppointmentStatus(Long appointmentId, String status, String
                 slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
             }
             em.merge(slot);
+            slotAvailability.slotChanged(slot);
         }
         
         em.merge(appointment);
+        dashboardStats.invalidate();
+        revenueRollup.touch(appointment.getAppointmentDateTime());
         
         // Log the action
         createAnnouncement(adminId, 
@@ -1210,51 +1225,48 @@ public String testDatabaseConnection() {
 
 @Override
 public List<TimeSlot> getAvailableSlotsForArtist(Long artistId) {
-    return em.createQuery(
-        "SELECT ts FROM TimeSlot ts " +
-        "WHERE ts.artist.userId = :artistId " +
-        "AND ts.status = 'AVAILABLE' " +
-        "AND ts.startTime > CURRENT_TIMESTAMP " +
-        "ORDER BY ts.startTime ASC", 
-        TimeSlot.class)
-        .setParameter("artistId", artistId)
-        .getResultList();
+    return slotAvailability.getAvailableFrom(artistId, LocalDateTime.now());
 }
 
 @Override
 public Map<String, Long> getAppointmentStatistics(LocalDate startDate, LocalDate endDate) {
+    if (startDate == null && endDate == null) {
+        return new HashMap<>(dashboardStats.snapshot().getAppointmentsByStatus());
+    }
+    DashboardStatsDTO snapshot = dashboardStats.snapshot();
+    if (snapshot.getRecentFrom().equals(startDate) && snapshot.getRecentTo().equals(endDate)) {
+        return new HashMap<>(snapshot.getRecentAppointmentsByStatus());
+    }
+
     Map<String, Long> stats = new HashMap<>();
-    
-    String[] statuses = {"PENDING", "CONFIRMED", "COMPLETED", "CANCELLED", "PAID"};
-    
-    for (String status : statuses) {
-        try {
-            StringBuilder jpql = new StringBuilder(
-                "SELECT COUNT(a) FROM Appointment a WHERE a.status = :status");
-            
-            if (startDate != null) {
-                jpql.append(" AND a.appointmentDateTime >= :startDate");
-            }
-            if (endDate != null) {
-                jpql.append(" AND a.appointmentDateTime <= :endDate");
-            }
-            
-            TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class)
-                .setParameter("status", status);
-            
-            if (startDate != null) {
-                query.setParameter("startDate", startDate.atStartOfDay());
-            }
-            if (endDate != null) {
-                query.setParameter("endDate", endDate.atTime(23, 59, 59));
-            }
-            
-            Long count = query.getSingleResult();
-            stats.put(status, count != null ? count : 0L);
-        } catch (Exception e) {
-            System.err.println("Error counting status " + status + ": " + e.getMessage());
-            stats.put(status, 0L);
+    for (String status : DashboardStatsEJB.APPOINTMENT_STATUSES) {
+        stats.put(status, 0L);
+    }
+
+    // One grouped query instead of a COUNT per status
+    StringBuilder jpql = new StringBuilder(
+        "SELECT a.status, COUNT(a) FROM Appointment a WHERE 1=1");
+    if (startDate != null) {
+        jpql.append(" AND a.appointmentDateTime >= :startDate");
+    }
+    if (endDate != null) {
+        jpql.append(" AND a.appointmentDateTime <= :endDate");
+    }
+    jpql.append(" GROUP BY a.status");
+
+    try {
+        TypedQuery<Object[]> query = em.createQuery(jpql.toString(), Object[].class);
+        if (startDate != null) {
+            query.setParameter("startDate", startDate.atStartOfDay());
+        }
+        if (endDate != null) {
+            query.setParameter("endDate", endDate.atTime(23, 59, 59));
         }
+        for (Object[] row : query.getResultList()) {
+            if (row[0] != null) stats.put((String) row[0], ((Number) row[1]).longValue());
+        }
+    } catch (Exception e) {
+        System.err.println("Error counting appointments by status: " + e.getMessage());
     }
     return stats;
 }
@@ -1847,6 +1859,7 @@ public boolean blockTimeSlotWithNotification(Integer slotId, Long adminId, Strin
             appointment.setCancellationReason(
                 "Appointment cancelled because time slot was blocked by admin. Reason: " + reason);
             em.merge(appointment);
+            revenueRollup.touch(appointment.getAppointmentDateTime());
             appointmentCancelled = true;
             
             // Notify client
@@ -1873,6 +1886,7 @@ public boolean blockTimeSlotWithNotification(Integer slotId, Long adminId, Strin
         slot.setBlockReason(reason);
         slot.setBlockedBy(admin);
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
         
         // Notify artist
         Announcement artistAnnouncement = new Announcement();
@@ -1891,6 +1905,7 @@ public boolean blockTimeSlotWithNotification(Integer slotId, Long adminId, Strin
         artistAnnouncement.setPostedBy(admin);
         artistAnnouncement.setTargetRole("ARTIST");
         em.persist(artistAnnouncement);
+        announcementsChanged();
         
         return true;
         
@@ -1930,6 +1945,7 @@ public boolean unblockTimeSlotWithNotification(Integer slotId, Long adminId) {
         announcement.setPostedBy(admin);
         announcement.setTargetRole("ARTIST");
         em.persist(announcement);
+        announcementsChanged();
         
         return true;
         
@@ -2053,55 +2069,25 @@ public Map<String, Object> getPaymentStatistics(LocalDate startDate, LocalDate e
     Map<String, Object> stats = new HashMap<>();
     
     try {
-        // Total payments
-        Long totalPayments = em.createQuery(
-            "SELECT COUNT(p) FROM Payment p WHERE p.paymentDate >= :start AND p.paymentDate <= :end",
-            Long.class)
-            .setParameter("start", startDate.atStartOfDay())
-            .setParameter("end", endDate.atTime(23, 59, 59))
-            .getSingleResult();
-        
-        // Total revenue
-        BigDecimal totalRevenue = em.createQuery(
-            "SELECT SUM(p.amount) FROM Payment p WHERE p.status = 'COMPLETED' " +
-            "AND p.paymentDate >= :start AND p.paymentDate <= :end",
-            BigDecimal.class)
-            .setParameter("start", startDate.atStartOfDay())
-            .setParameter("end", endDate.atTime(23, 59, 59))
-            .getSingleResult();
-        
-        // Payments by status
-        String[] statuses = {"COMPLETED", "PENDING", "FAILED"};
+        // One read of the revenue rollups (day/month buckets) for the whole range
+        long totalPayments = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
         Map<String, Long> paymentsByStatus = new HashMap<>();
-        for (String status : statuses) {
-            Long count = em.createQuery(
-                "SELECT COUNT(p) FROM Payment p WHERE p.status = :status " +
-                "AND p.paymentDate >= :start AND p.paymentDate <= :end",
-                Long.class)
-                .setParameter("status", status)
-                .setParameter("start", startDate.atStartOfDay())
-                .setParameter("end", endDate.atTime(23, 59, 59))
-                .getSingleResult();
-            paymentsByStatus.put(status, count != null ? count : 0L);
+        for (String status : new String[] {"COMPLETED", "PENDING", "FAILED"}) {
+            paymentsByStatus.put(status, 0L);
         }
-        
-        // Payments by method
-        List<Object[]> byMethod = em.createQuery(
-            "SELECT p.paymentMethod, COUNT(p) FROM Payment p " +
-            "WHERE p.paymentDate >= :start AND p.paymentDate <= :end " +
-            "GROUP BY p.paymentMethod",
-            Object[].class)
-            .setParameter("start", startDate.atStartOfDay())
-            .setParameter("end", endDate.atTime(23, 59, 59))
-            .getResultList();
-        
         Map<String, Long> paymentsByMethod = new HashMap<>();
-        for (Object[] row : byMethod) {
-            paymentsByMethod.put((String) row[0], (Long) row[1]);
+
+        for (RevenueRollup r : revenueRollup.revenue(startDate, endDate)) {
+            long n = r.getPaymentCount();
+            totalPayments += n;
+            if ("COMPLETED".equals(r.getStatus())) totalRevenue = totalRevenue.add(r.getAmount());
+            paymentsByStatus.merge(r.getStatus(), n, Long::sum);
+            paymentsByMethod.merge(r.getPaymentMethod(), n, Long::sum);
         }
         
-        stats.put("totalPayments", totalPayments != null ? totalPayments : 0L);
-        stats.put("totalRevenue", totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
+        stats.put("totalPayments", totalPayments);
+        stats.put("totalRevenue", totalRevenue);
         stats.put("paymentsByStatus", paymentsByStatus);
         stats.put("paymentsByMethod", paymentsByMethod);
         
@@ -2117,6 +2103,22 @@ public Map<String, Object> getPaymentStatistics(LocalDate startDate, LocalDate e
     return stats;
 }
 
+@Override
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public int rebuildReportRollups(LocalDate fromDate, LocalDate toDate) {
+    return revenueRollup.backfill(fromDate, toDate);
+}
+
+@Override
+public Map<String, Long> getPaymentOutboxStatus() {
+    return paymentOutbox.getStatusCounts();
+}
+
+@Override
+public int retryFailedPaymentEvents() {
+    return paymentOutbox.retryFailed();
+}
+
 @Override
 public List<ArtistPendingEarningDTO> getPendingEarningsByArtist(Long artistId) {
     if (artistId == null) return new ArrayList<>();
@@ -2138,50 +2140,45 @@ public List<ArtistPendingEarningDTO> getPendingEarningsByArtist(Long artistId) {
 
 
 // New/Updated method to handle the admin "Pay Artist" action
+// Settled set-based: one aggregate, one bulk UPDATE (see PayoutSettlementEJB)
 @Override
-@jakarta.transaction.Transactional
 public Long payArtist(Long artistId, Long adminId, String notes) {
     if (artistId == null) throw new IllegalArgumentException("artistId is required");
 
-    AppUser artist = findUser(artistId);
-    AppUser admin = adminId != null ? findUser(adminId) : null;
-
-    List<EarningLog> pendingLogs = em.createQuery(
-        "SELECT e FROM EarningLog e WHERE e.artist.userId = :artistId AND e.payoutStatus = 'UNPAID' ORDER BY e.calculatedAt ASC",
-        EarningLog.class)
-        .setParameter("artistId", artistId)
-        .getResultList();
-
-    if (pendingLogs.isEmpty()) {
+    Long payoutId = payoutSettlement.settle(artistId, adminId, notes);
+    if (payoutId == null) {
         throw new IllegalStateException("No pending earnings for artist: " + artistId);
     }
+    dashboardStats.invalidate();
+    return payoutId;
+}
 
-    BigDecimal totalArtistShare = pendingLogs.stream()
-            .map(EarningLog::getArtistShare)
-            .filter(x -> x != null)
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
-            .setScale(2, RoundingMode.HALF_UP);
-
-    ArtistPayout payout = new ArtistPayout();
-    payout.setArtist(artist);
-    payout.setAdmin(admin);
-    payout.setAmount(totalArtistShare);
-    payout.setNotes(notes != null ? notes : ("Payout for " + pendingLogs.size() + " log(s)"));
-    payout.setPayoutStatus("PAID");
-    payout.setPayoutDate(LocalDateTime.now());
-    payout.setCreatedAt(LocalDateTime.now());
-
-    em.persist(payout);
-    em.flush();
+// Pays every artist with unpaid earnings; each artist is settled in its own
+// transaction so one failure does not undo the others
+@Override
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public PayoutBatchResultDTO payAllArtists(Long adminId, String notes) {
+    List<Long> artistIds = em.createQuery(
+        "SELECT DISTINCT e.artist.userId FROM EarningLog e WHERE e.payoutStatus = 'UNPAID' ORDER BY e.artist.userId",
+        Long.class)
+        .getResultList();
 
-    for (EarningLog log : pendingLogs) {
-        log.setPayoutStatus("PAID");
-        log.setPayout(payout);
-        log.setPayoutAt(payout.getPayoutDate());
-        em.merge(log);
+    PayoutBatchResultDTO result = new PayoutBatchResultDTO();
+    for (Long artistId : artistIds) {
+        try {
+            Long payoutId = payoutSettlement.settleInNewTransaction(artistId, adminId, notes);
+            if (payoutId != null) {
+                ArtistPayout payout = em.find(ArtistPayout.class, payoutId);
+                result.paid(artistId, payoutId, payout != null ? payout.getAmount() : null);
+            }
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Payout failed for artist " + artistId + ": " + cause.getMessage());
+            result.failed(artistId, cause.getMessage());
+        }
     }
-
-    return payout.getPayoutId();
+    dashboardStats.invalidate();
+    return result;
 }
 
 
@@ -2277,6 +2274,7 @@ private ArtistPendingEarningDTO mapToArtistPendingEarningDTO(EarningLog log) {
 }
 
 
+@Override
 @jakarta.transaction.Transactional
 public EarningLog createEarningLogForPayment(Integer paymentId, Long adminId) {
     Payment p = em.find(Payment.class, paymentId);
@@ -2316,6 +2314,8 @@ public EarningLog createEarningLogForPayment(Integer paymentId, Long adminId) {
 
     em.persist(log);
     em.flush();
+    earningLedger.earningAdded(artist.getUserId(), artistShare);
+    revenueRollup.touch(p.getPaymentDate());
     return log;
 }
 
@@ -2614,13 +2614,171 @@ public Announcement getAnnouncementById(Long announcementId) {
     @Override
 public List<Announcement> listAllAnnouncements() {
     // JOIN FETCH to initialize postedBy (so calling code can safely read postedBy fields)
-    TypedQuery<Announcement> q = em.createQuery(
+    return queryCache.get(QueryCacheEJB.ANNOUNCEMENTS, "all", () -> List.copyOf(em.createQuery(
         "SELECT a FROM Announcement a LEFT JOIN FETCH a.postedBy pb ORDER BY a.postedAt DESC",
         Announcement.class
-    );
-    return q.getResultList();
+    ).getResultList()));
 }
 
+    // -----------------------
+    // Streaming exports
+    // -----------------------
+
+    // Rows per keyset batch; each batch is a fresh cursor so memory stays flat.
+    // No transaction: an export can outlive the JTA timeout and only reads.
+    private static final int STREAM_BATCH = 500;
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long streamUsers(RowSink sink) {
+        sink.header("userId", "username", "fullName", "email", "phone", "role",
+                "isActive", "isVerified", "createdAt");
+        return streamByKey(
+            "SELECT u.userId, u.username, u.fullName, u.email, u.phone, r.roleName, " +
+            "u.isActive, u.isVerified, u.createdAt " +
+            "FROM AppUser u LEFT JOIN u.role r " +
+            "WHERE u.userId > :lastKey ORDER BY u.userId", 0L, sink);
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long streamPayments(RowSink sink) {
+        return streamPayments(null, null, null, sink);
+    }
+
+    // Finance exports: optional date range (inclusive days) and artist
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long streamPayments(LocalDate fromDate, LocalDate toDate, Long artistId, RowSink sink) {
+        sink.header("paymentId", "appointmentId", "clientId", "clientName", "artistId", "artistName",
+                "amount", "paymentMethod", "transactionId", "status", "paymentDate");
+        Map<String, Object> params = new HashMap<>();
+        return streamByKey(
+            "SELECT p.paymentId, ap.appointmentId, c.userId, c.fullName, ar.userId, ar.fullName, " +
+            "p.amount, p.paymentMethod, p.transactionId, p.status, p.paymentDate " +
+            "FROM Payment p LEFT JOIN p.appointment ap LEFT JOIN ap.artist ar LEFT JOIN p.client c " +
+            "WHERE p.paymentId > :lastKey" +
+            exportFilter("p.paymentDate", "ar.userId", fromDate, toDate, artistId, params) +
+            " ORDER BY p.paymentId", 0, params, sink);
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long streamEarningLogs(LocalDate fromDate, LocalDate toDate, Long artistId, RowSink sink) {
+        sink.header("logId", "paymentId", "appointmentId", "artistId", "artistName", "totalAmount",
+                "artistShare", "adminShare", "premiumBonus", "payoutStatus", "calculatedAt", "payoutId", "payoutAt");
+        Map<String, Object> params = new HashMap<>();
+        return streamByKey(
+            "SELECT e.logId, p.paymentId, ap.appointmentId, ar.userId, ar.fullName, e.totalAmount, " +
+            "e.artistShare, e.adminShare, e.premiumBonus, e.payoutStatus, e.calculatedAt, po.payoutId, e.payoutAt " +
+            "FROM EarningLog e LEFT JOIN e.payment p LEFT JOIN e.appointment ap " +
+            "LEFT JOIN e.artist ar LEFT JOIN e.payout po " +
+            "WHERE e.logId > :lastKey" +
+            exportFilter("e.calculatedAt", "ar.userId", fromDate, toDate, artistId, params) +
+            " ORDER BY e.logId", 0, params, sink);
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long streamPayouts(LocalDate fromDate, LocalDate toDate, Long artistId, RowSink sink) {
+        sink.header("payoutId", "artistId", "artistName", "amount", "payoutStatus", "payoutDate",
+                "createdAt", "adminId", "adminName", "notes");
+        Map<String, Object> params = new HashMap<>();
+        // Pending payouts have no payout date yet; they are dated by creation
+        return streamByKey(
+            "SELECT p.payoutId, ar.userId, ar.fullName, p.amount, p.payoutStatus, p.payoutDate, " +
+            "p.createdAt, ad.userId, ad.fullName, p.notes " +
+            "FROM ArtistPayout p LEFT JOIN p.artist ar LEFT JOIN p.admin ad " +
+            "WHERE p.payoutId > :lastKey" +
+            exportFilter("COALESCE(p.payoutDate, p.createdAt)", "ar.userId", fromDate, toDate, artistId, params) +
+            " ORDER BY p.payoutId", 0L, params, sink);
+    }
+
+    /** Extra WHERE terms for an export's date range and artist; fills {@code params}. */
+    private static String exportFilter(String dateExpr, String artistExpr, LocalDate fromDate, LocalDate toDate,
+                                       Long artistId, Map<String, Object> params) {
+        if (fromDate != null && toDate != null && toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("'to' date must not be before 'from' date.");
+        }
+        StringBuilder where = new StringBuilder();
+        if (fromDate != null) {
+            where.append(" AND ").append(dateExpr).append(" >= :fromDate");
+            params.put("fromDate", fromDate.atStartOfDay());
+        }
+        if (toDate != null) {
+            where.append(" AND ").append(dateExpr).append(" < :toDate");
+            params.put("toDate", toDate.plusDays(1).atStartOfDay());
+        }
+        if (artistId != null) {
+            where.append(" AND ").append(artistExpr).append(" = :artistId");
+            params.put("artistId", artistId);
+        }
+        return where.toString();
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long streamAppointments(boolean pendingFormsOnly, RowSink sink) {
+        sink.header("appointmentId", "clientId", "clientName", "artistId", "artistName",
+                "designId", "designTitle", "appointmentDateTime", "requestDateTime", "status");
+        return streamByKey(
+            "SELECT a.appointmentId, c.userId, c.fullName, ar.userId, ar.fullName, " +
+            "d.designId, d.title, a.appointmentDateTime, a.requestDateTime, a.status " +
+            "FROM Appointment a LEFT JOIN a.client c LEFT JOIN a.artist ar LEFT JOIN a.design d " +
+            "WHERE a.appointmentId > :lastKey " +
+            (pendingFormsOnly
+                ? "AND EXISTS (SELECT 1 FROM MedicalForm m WHERE m.appointment = a AND m.isApproved = false) " +
+                  "AND a.status IN ('PENDING', 'CONFIRMED') "
+                : "") +
+            "ORDER BY a.appointmentId", 0L, sink);
+    }
+
+    /**
+     * Runs a projection whose first column is the ordering key in batches of
+     * STREAM_BATCH, seeking past the last key of the previous batch, and hands
+     * each row to the sink as it is read.
+     */
+    private long streamByKey(String jpql, Object firstKey, RowSink sink) {
+        return streamByKey(jpql, firstKey, Map.of(), sink);
+    }
+
+    private long streamByKey(String jpql, Object firstKey, Map<String, Object> params, RowSink sink) {
+        Object lastKey = firstKey;
+        long total = 0;
+        while (true) {
+            int n = 0;
+            TypedQuery<Object[]> q = em.createQuery(jpql, Object[].class)
+                    .setParameter("lastKey", lastKey)
+                    .setMaxResults(STREAM_BATCH);
+            params.forEach(q::setParameter);
+            try (Stream<Object[]> rows = q.getResultStream()) {
+                for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                    Object[] row = it.next();
+                    sink.row(row);
+                    lastKey = row[0];
+                    n++;
+                }
+            }
+            total += n;
+            if (n < STREAM_BATCH) return total;
+        }
+    }
+
+    // -----------------------
+    // Caches
+    // -----------------------
+    @Override
+    public List<CacheRegionStatsDTO> getCacheStatistics() {
+        return queryCache.getStatistics();
+    }
+
+    @Override
+    public void clearCaches(boolean resetStatistics) {
+        queryCache.evictAll();
+        if (resetStatistics) queryCache.resetStatistics();
+    }
+
     @Override
     public void createPendingEarningForPaidAppointment(Long appointmentId, BigDecimal totalAmount) {
 //        throw new UnsupportedOperationException("Not supported yet."); // Generated from nbfs://nbhost/SystemFileSystem/Templates/Classes/Code/GeneratedMethodBody
@@ -4,9 +4,15 @@ package ejb;
 import dto.AdminProfileDTO;
 import dto.AppointmentDTO;
 import dto.AppointmentFilterDTO;
+import dto.CacheRegionStatsDTO;
+import dto.DashboardStatsDTO;
+import dto.ArtistEarningSummaryDTO;
 import dto.ArtistPendingEarningDTO;
 import dto.MedicalFormDTO;
 import dto.MedicalFormFilterDTO;
+import dto.PayoutBatchResultDTO;
+import dto.RowSink;
+import dto.SlotClaimResult;
 import dto.TimeSlotDTO;
 import dto.TimeSlotFilterDTO;
 import entities.*;
@@ -43,7 +49,7 @@ public interface AdminEJBLocal {
     List<Appointment> listAllAppointments(int offset, int limit);
     Appointment getAppointment(Long appointmentId);
 //    void changeAppointmentStatus(Long appointmentId, String status, String cancellationReason);
-    void assignSlotToAppointment(Long appointmentId, Integer slotId);
+    SlotClaimResult assignSlotToAppointment(Long appointmentId, Integer slotId);
     
     // Appointment Management with DTO
     List<AppointmentDTO> getFilteredAppointments(AppointmentFilterDTO filter);
@@ -68,6 +74,7 @@ public interface AdminEJBLocal {
     List<Payment> listPayments(int offset, int limit);
     void markPaymentStatus(Integer paymentId, String status, Long adminId);
     EarningLog logEarningsForPayment(Integer paymentId);
+    EarningLog createEarningLogForPayment(Integer paymentId, Long adminId);
     BigDecimal calculateArtistPendingEarnings(Long artistId, LocalDate fromDate, LocalDate toDate);
     Long simulatePayout(Long artistId, LocalDate forMonth, BigDecimal amount, Long adminId);
     List<ArtistPayout> listArtistPayouts(Long artistId, int offset, int limit);
@@ -89,6 +96,7 @@ public interface AdminEJBLocal {
     public Map<String, Object> getMedicalFormsStatistics(LocalDate startDate, LocalDate endDate);
     
     // -------- Dashboard Stats --------
+    DashboardStatsDTO getDashboardSnapshot();
     long countTotalUsers();
     long countTotalArtists();
     long countTotalClients();
@@ -123,9 +131,14 @@ Long countFilteredPayments(String clientName, String artistName,
                            LocalDate startDate, LocalDate endDate);
 BigDecimal calculateArtistPendingEarningsSummary(Long artistId);
 Map<String, Object> getPaymentStatistics(LocalDate startDate, LocalDate endDate);
+int rebuildReportRollups(LocalDate fromDate, LocalDate toDate);
+Map<String, Long> getPaymentOutboxStatus();
+int retryFailedPaymentEvents();
 
 List<ArtistPendingEarningDTO> getPendingEarningsByArtist(Long artistId);
+List<ArtistEarningSummaryDTO> listArtistEarningSummaries();
 Long payArtist(Long artistId, Long adminId, String notes);
+PayoutBatchResultDTO payAllArtists(Long adminId, String notes);
 
 // Payments / Payout helpers
 //List<dto.ArtistPendingEarningDTO> getPendingEarningsByArtist(Long artistId);
@@ -149,5 +162,17 @@ BigDecimal getTotalCompletedPaymentsAmount();
 Announcement getAnnouncementById(Long announcementId);
 List<Announcement> listAllAnnouncements(); // <-- CRITICAL ADDITION (Fixes the current error)
 
+// -------- Streaming exports (rows are pushed to the sink as they are read) --------
+long streamUsers(RowSink sink);
+long streamPayments(RowSink sink);
+long streamPayments(LocalDate fromDate, LocalDate toDate, Long artistId, RowSink sink);
+long streamEarningLogs(LocalDate fromDate, LocalDate toDate, Long artistId, RowSink sink);
+long streamPayouts(LocalDate fromDate, LocalDate toDate, Long artistId, RowSink sink);
+long streamAppointments(boolean pendingFormsOnly, RowSink sink);
+
+// -------- Caches --------
+List<CacheRegionStatsDTO> getCacheStatistics();
+void clearCaches(boolean resetStatistics);
+
 public void createPendingEarningForPaidAppointment(Long appointmentId, BigDecimal totalAmount) throws Exception;
 }
@@ -0,0 +1,94 @@
+package ejb;
+
+import clientDTO.ArtistCardDTO;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the last artist roster built for the browse page. Review writes and
+ * artist activation changes invalidate it once their transaction commits; a
+ * short TTL covers profile edits.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ArtistBrowseCacheEJB {
+
+    private static final long TTL_MILLIS = 5 * 60 * 1000L;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private static final class Snapshot {
+        final List<ArtistCardDTO> artists;
+        final long loadedAt;
+
+        Snapshot(List<ArtistCardDTO> artists) {
+            this.artists = Collections.unmodifiableList(artists);
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    private volatile Snapshot snapshot;
+
+    // Bumped on every invalidation so a load that raced with a review write is discarded.
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Cached roster, or null when empty or expired. */
+    public List<ArtistCardDTO> get() {
+        Snapshot s = snapshot;
+        if (s == null || System.currentTimeMillis() - s.loadedAt > TTL_MILLIS) {
+            return null;
+        }
+        return s.artists;
+    }
+
+    /** Call before loading; pass the value back to {@link #put}. */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    public synchronized void put(List<ArtistCardDTO> artists, long loadedGeneration) {
+        if (loadedGeneration == generation.get()) {
+            snapshot = new Snapshot(artists);
+        }
+    }
+
+    /**
+     * Drops the roster after the caller's transaction commits. Clearing any
+     * earlier would let a load that still sees the old rows store them again.
+     */
+    public void invalidate() {
+        int status = txRegistry.getTransactionStatus();
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            clear();
+            return;
+        }
+        if (status != Status.STATUS_ACTIVE) return;
+
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    clear();
+                }
+            }
+        });
+    }
+
+    private synchronized void clear() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+}
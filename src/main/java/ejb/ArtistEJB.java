@@ -3,8 +3,12 @@ package ejb;
 import artistDTO.ArtistAppointmentDTO;
 import artistDTO.ArtistAppointmentFilterDTO;
 import artistDTO.ArtistProfileeeDTO;
+import artistDTO.DesignListingDTO;
+import dto.SlotClaimResult;
+import dto.SlotGenerationResultDTO;
 import jakarta.persistence.NoResultException;
 import entities.*;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
 import jakarta.persistence.*;
@@ -17,7 +21,6 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
-import util.PasswordUtil;
 
 @Stateless
 public class ArtistEJB implements ArtistEJBLocal {
@@ -28,6 +31,33 @@ private beans.UserSessionBean userSession;
     @PersistenceContext(unitName = "TattooPU")
     private EntityManager em;
 
+    @EJB
+    private DesignCounterEJB designCounterEJB;
+
+    @EJB
+    private TrendingEJB trendingEJB;
+
+    @EJB
+    private RatingStatsEJB ratingStatsEJB;
+
+    @EJB
+    private TimeSlotEJB timeSlotEJB;
+
+    @EJB
+    private SlotAvailabilityEJB slotAvailability;
+
+    @EJB
+    private DesignSearchEJB designSearch;
+
+    @EJB
+    private QueryCacheEJB queryCache;
+
+    @EJB
+    private PasswordHashingEJB passwordHashing;
+
+    @EJB
+    private RevenueRollupEJB revenueRollup;
+
   private Long getAuthenticatedArtistId() {
         if (userSession == null || !userSession.isArtist()) {
             throw new SecurityException("Artist not authenticated");
@@ -97,6 +127,8 @@ private beans.UserSessionBean userSession;
     newDesign.setUploadedAt(LocalDateTime.now());
 
     em.persist(newDesign);
+    designSearch.designChanged(newDesign);
+    queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
 }
     
     @Override
@@ -124,15 +156,36 @@ public void updateDesign(Long designId, TattooDesign payload) {
     existing.setImagePath(payload.getImagePath());
 
     em.merge(existing);
+    designSearch.designChanged(existing);
+    queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
 }
 
+    @Override
+    public void checkDesignImageEditable(Long designId, Long artistId) {
+        ownedDesign(designId, artistId);
+    }
+
+    @Override
+    public void updateDesignImage(Long designId, Long artistId, String imagePath) {
+        TattooDesign design = ownedDesign(designId, artistId);
+        design.setImagePath(imagePath);
+        queryCache.evict(QueryCacheEJB.FEATURED_DESIGNS);
+    }
+
+    private TattooDesign ownedDesign(Long designId, Long artistId) {
+        TattooDesign design = em.find(TattooDesign.class, designId);
+        if (design == null || Boolean.TRUE.equals(design.getIsRemovedByArtist()))
+            throw new IllegalArgumentException("Design not found");
+        if (!design.getArtist().getUserId().equals(artistId))
+            throw new IllegalArgumentException("Unauthorized");
+        return design;
+    }
+
         
 @Override
     public List<TattooDesign> getArtistDesigns(Long artistId, int offset, int limit) {
         return em.createQuery(
             "SELECT d FROM TattooDesign d " +
-            "LEFT JOIN FETCH d.likes " +
-            "LEFT JOIN FETCH d.favourites " +
             "WHERE d.artist.userId = :artistId " +
             "AND d.isRemovedByArtist = false " +
             "ORDER BY d.uploadedAt DESC", TattooDesign.class)
@@ -142,6 +195,19 @@ public void updateDesign(Long designId, TattooDesign payload) {
             .getResultList();
     }
 
+    @Override
+    public List<DesignListingDTO> getArtistDesignListings(Long artistId, int offset, int limit) {
+        return em.createQuery(
+            DesignListingDTO.SELECT +
+            "WHERE a.userId = :artistId " +
+            "AND d.isRemovedByArtist = false " +
+            "ORDER BY d.uploadedAt DESC", DesignListingDTO.class)
+            .setParameter("artistId", artistId)
+            .setFirstResult(offset)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
 
 
    @Override
@@ -186,15 +252,8 @@ StringBuilder ql = new StringBuilder(
     if (limit > 0)
         q.setMaxResults(limit);
 
-    List<TattooDesign> list = q.getResultList();
-
-    list.forEach(d -> {
-        if (d.getArtist() != null) d.getArtist().getUserId();
-        if (d.getLikes() != null) d.getLikes().size();
-        if (d.getFavourites() != null) d.getFavourites().size();
-    });
-
-    return list;
+    // Like/favourite totals are the counter columns; no collection needs loading
+    return q.getResultList();
 }
 
 // In ArtistEJB.java - Add these methods
@@ -227,6 +286,7 @@ public boolean blockOwnSlotWithNotification(Integer slotId, Long artistId, Strin
             appointment.setCancellationReason(
                 "Appointment cancelled because time slot was blocked by artist. Reason: " + reason);
             em.merge(appointment);
+            revenueRollup.touch(appointment.getAppointmentDateTime());
             
             // Notify client
             createArtistBlockedSlotNotification(appointment.getClient().getUserId(), 
@@ -240,6 +300,7 @@ public boolean blockOwnSlotWithNotification(Integer slotId, Long artistId, Strin
         slot.setBlockReason(reason);
         slot.setBlockedBy(null); // Artist blocking, not admin
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
         
         return true;
         
@@ -268,6 +329,7 @@ private void createArtistBlockedSlotNotification(Long clientId, TimeSlot slot,
         announcement.setPostedBy(artist);
         announcement.setTargetRole("CLIENT");
         em.persist(announcement);
+        queryCache.evict(QueryCacheEJB.ANNOUNCEMENTS);
     }
 }
 
@@ -299,6 +361,7 @@ public boolean unblockOwnSlotWithNotification(Integer slotId, Long artistId) {
         slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
         slot.setBlockReason(null);
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
         
         return true;
         
@@ -344,6 +407,7 @@ public List<TimeSlot> getBlockedSlots(Long artistId) {
         like.setDesign(design);
         em.persist(like);
         em.flush();
+        designCounterEJB.adjustLikeCount(designId, 1);
         return like;
     }
 
@@ -356,6 +420,7 @@ public List<TimeSlot> getBlockedSlots(Long artistId) {
                     .setParameter("cid", clientId).setParameter("did", designId)
                     .getSingleResult();
             em.remove(l);
+            designCounterEJB.adjustLikeCount(designId, -1, l.getLikedAt());
         } catch (NoResultException ignored) {}
     }
 
@@ -380,6 +445,7 @@ public List<TimeSlot> getBlockedSlots(Long artistId) {
         fav.setDesign(design);
         em.persist(fav);
         em.flush();
+        designCounterEJB.adjustFavouriteCount(designId, 1);
         return fav;
     }
 
@@ -392,6 +458,7 @@ public List<TimeSlot> getBlockedSlots(Long artistId) {
                     .setParameter("cid", clientId).setParameter("did", designId)
                     .getSingleResult();
             em.remove(f);
+            designCounterEJB.adjustFavouriteCount(designId, -1, f.getFavoritedAt());
         } catch (NoResultException ignored) {}
     }
 
@@ -443,18 +510,8 @@ public ArtistSchedule saveArtistSchedule(Long artistId, ArtistSchedule schedule)
 @Override
 public List<TimeSlot> listAvailableTimeSlots(Long artistId) {
     try {
-        TypedQuery<TimeSlot> query = em.createQuery(
-            "SELECT t FROM TimeSlot t WHERE " +
-            "t.artist.userId = :artistId AND " +
-            "t.status = :status AND " +
-            "t.startTime > CURRENT_TIMESTAMP " +  // Only future slots
-            "ORDER BY t.startTime ASC", 
-            TimeSlot.class);
-        
-        query.setParameter("artistId", artistId);
-        query.setParameter("status", TimeSlot.TimeSlotStatus.AVAILABLE);
-        
-        return query.getResultList();
+        // Only future slots, served from the availability index
+        return slotAvailability.getAvailableFrom(artistId, LocalDateTime.now());
         
     } catch (Exception e) {
         System.err.println("Error listing available slots: " + e.getMessage());
@@ -464,79 +521,13 @@ public List<TimeSlot> listAvailableTimeSlots(Long artistId) {
 
    @Override
 @Transactional
-public List<TimeSlot> generateTimeSlotsForArtist(Long artistId, LocalDate startDate, LocalDate endDate, int slotDurationMinutes) {
+public SlotGenerationResultDTO generateTimeSlotsForArtist(Long artistId, LocalDate startDate, LocalDate endDate, int slotDurationMinutes) {
     AppUser artist = em.find(AppUser.class, artistId);
     if (artist == null) throw new IllegalArgumentException("Artist not found.");
-    List<ArtistSchedule> schedules = listSchedulesForArtist(artistId); 
-    
-    // Clear existing slots in the range to prevent duplicates/conflicts (CRITICAL)
-    em.createQuery("DELETE FROM TimeSlot t WHERE t.artist.userId = :artistId AND t.startTime >= :start AND t.endTime <= :end")
-        .setParameter("artistId", artistId)
-        .setParameter("start", startDate.atStartOfDay())
-        .setParameter("end", endDate.plusDays(1).atStartOfDay())
-        .executeUpdate();
-    
-    List<TimeSlot> createdSlots = new ArrayList<>();
-    
-    LocalDate currentDate = startDate;
-    while (!currentDate.isAfter(endDate)) {
-        DayOfWeek dayOfWeek = currentDate.getDayOfWeek();
-        
-        // Find the schedule for the current day
-        ArtistSchedule schedule = schedules.stream()
-                .filter(s -> s.getDayOfWeek() == dayOfWeek && s.isWorking())
-                .findFirst().orElse(null);
 
-        if (schedule != null) {
-            
-            LocalDateTime currentStart = currentDate.atTime(schedule.getStartTime()); // This is in scope for the while loop below
-            LocalDateTime scheduleEnd = currentDate.atTime(schedule.getEndTime());
-            
-            while (currentStart.isBefore(scheduleEnd)) {
-                
-                LocalDateTime currentEnd = currentStart.plusMinutes(slotDurationMinutes); // This is in scope for the rest of the loop
-                
-                // IMPORTANT: Ensure the last slot doesn't exceed the scheduled end time
-                if (currentEnd.isAfter(scheduleEnd)) {
-                    break; // Stop creating slots for this shift
-                }
-
-                // FUNCTIONAL FIX: Add check for existing slot to prevent duplicates (even after the DELETE query above, this is safer)
-                if (!checkExistingSlot(artistId, currentStart, currentEnd)) {
-                    TimeSlot slot = new TimeSlot();
-                    slot.setArtist(artist);
-                    slot.setStartTime(currentStart);
-                    slot.setEndTime(currentEnd); 
-                    slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
-                    
-                    em.persist(slot);
-                    createdSlots.add(slot);
-                } 
-                // Always advance the start time for the next iteration
-                currentStart = currentEnd; 
-            }
-        }
-        currentDate = currentDate.plusDays(1);
-    }
-    em.flush();
-    return createdSlots;
+    // Regenerate the grid: free AVAILABLE slots in the range are replaced, booked/blocked ones are kept
+    return timeSlotEJB.generateSlots(artistId, startDate, endDate, slotDurationMinutes, true);
 }
-    
-private boolean checkExistingSlot(Long artistId, LocalDateTime start, LocalDateTime end) {
-    try {
-        em.createQuery("SELECT t FROM TimeSlot t WHERE t.artist.userId = :artistId AND t.startTime = :start AND t.endTime = :end", TimeSlot.class)
-            .setParameter("artistId", artistId)
-            .setParameter("start", start)
-            .setParameter("end", end)
-            .getSingleResult();
-        return true;
-    } catch (NoResultException e) {
-        return false;
-    } catch (Exception e) {
-        // Log other exceptions
-        return true; 
-    }
-}    
 
     @Override
 public List<TimeSlot> getArtistTimeSlots(Long artistId) {
@@ -589,6 +580,7 @@ public List<ArtistSchedule> listSchedulesForArtist(Long artistId) {
     slot.setArtist(artist);
     em.persist(slot);
     em.flush();
+    slotAvailability.slotChanged(slot);
     return slot;
 }
     @Override
@@ -600,7 +592,9 @@ public TimeSlot updateTimeSlot(Integer slotId, LocalDateTime start, LocalDateTim
         if (start != null) t.setStartTime(start);
         if (end != null) t.setEndTime(end);
         if (status != null) t.setStatus(status);
-        return em.merge(t);
+        TimeSlot merged = em.merge(t);
+        slotAvailability.slotChanged(merged);
+        return merged;
     } catch (Exception e) {
         e.printStackTrace();
         throw e;
@@ -613,6 +607,7 @@ public TimeSlot updateTimeSlot(Integer slotId, LocalDateTime start, LocalDateTim
         TimeSlot t = em.find(TimeSlot.class, slotId);
         if (t == null) throw new IllegalArgumentException("Slot not found");
         em.remove(t);
+        slotAvailability.slotTaken(slotId);
     }
 
     @Override
@@ -623,6 +618,7 @@ public TimeSlot updateTimeSlot(Integer slotId, LocalDateTime start, LocalDateTim
         t.setStatus(TimeSlot.TimeSlotStatus.BLOCKED);
         t.setBlockReason(reason);
         em.merge(t);
+        slotAvailability.slotChanged(t);
     }
 
     // -------------------------
@@ -657,6 +653,7 @@ public TimeSlot updateTimeSlot(Integer slotId, LocalDateTime start, LocalDateTim
         if (a == null) throw new IllegalArgumentException("Appointment not found: " + appointmentId);
         a.setStatus(status);
         a.setCancellationReason("CANCELLED".equalsIgnoreCase(status) ? cancellationReason : null);
+        revenueRollup.touch(a.getAppointmentDateTime());
         return em.merge(a);
     }
 
@@ -824,13 +821,8 @@ public List<ArtistPayout> listArtistPayouts(Long artistId, int offset, int limit
 
     @Override
     public TattooDesign getDesignById(Long designId) {
-        TattooDesign design = em.find(TattooDesign.class, designId);
-        if (design != null) {
-            // Initialize collections for REST response (if needed)
-            if (design.getLikes() != null) design.getLikes().size();
-            if (design.getFavourites() != null) design.getFavourites().size();
-        }
-        return design; 
+        // likes/favourites are not serialized; the counters carry the totals
+        return em.find(TattooDesign.class, designId);
     }
     
     @Override
@@ -875,6 +867,9 @@ public void deleteDesignPermanently(Long designId, Long artistId) {
     d.setBannedAt(LocalDateTime.now());
 
     em.merge(d);
+    trendingEJB.remove(designId);
+    designSearch.designRemoved(designId);
+    queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
 }
 
 @Override
@@ -888,6 +883,9 @@ public void deleteDesign(Long designId, Long artistId) {
     design.setRemovedAt(LocalDateTime.now());
 
     em.merge(design);
+    trendingEJB.remove(designId);
+    designSearch.designRemoved(designId);
+    queryCache.evict(QueryCacheEJB.DESIGN_STYLES, QueryCacheEJB.FEATURED_DESIGNS);
 }
     
     
@@ -961,15 +959,7 @@ public long countUpcomingAppointments(Long artistId) {
 
     @Override
     public double calculateAverageRating(Long artistId) {
-        try {
-            Double avg = em.createQuery(
-                "SELECT AVG(r.rating) FROM Review r WHERE r.artist.userId = :id", Double.class)
-                .setParameter("id", artistId)
-                .getSingleResult();
-            return avg != null ? avg : 0.0;
-        } catch (NoResultException e) {
-            return 0.0;
-        }
+        return ratingStatsEJB.getReviewAverage(artistId);
     }
 
     @Override
@@ -1007,17 +997,14 @@ public long countUpcomingAppointments(Long artistId) {
     
     // In ArtistEJB.java - Add these appointment management methods
 @Override
-    public void approveAppointment(Long appointmentId, Integer slotId) {
+    public SlotClaimResult approveAppointment(Long appointmentId, Integer slotId) {
         Long artistId = getAuthenticatedArtistId();
         Appointment appointment = em.find(Appointment.class, appointmentId);
         if (!appointment.getArtist().getUserId().equals(artistId)) throw new SecurityException("Unauthorized");
         TimeSlot slot = em.find(TimeSlot.class, slotId);
-        if (slot.getStatus() != TimeSlot.TimeSlotStatus.AVAILABLE) throw new IllegalStateException("Slot not available");
-        appointment.setSlot(slot);
-        appointment.setStatus("CONFIRMED");
-        slot.setStatus(TimeSlot.TimeSlotStatus.BOOKED);
-        em.merge(appointment);
-        em.merge(slot);
+        if (slot == null) throw new IllegalArgumentException("Time slot not found");
+        if (slot.getStatus() != TimeSlot.TimeSlotStatus.AVAILABLE) return SlotClaimResult.SLOT_TAKEN;
+        return timeSlotEJB.claimSlotForAppointment(appointmentId, slotId, "CONFIRMED");
     }
 
 @Override
@@ -1025,17 +1012,7 @@ public List<TimeSlot> getAvailableTimeSlotsForMyAppointment(LocalDate date) {
 
     Long artistId = getAuthenticatedArtistId(); // 🔐 server-side identity
 
-    return em.createQuery(
-            "SELECT ts FROM TimeSlot ts " +
-            "WHERE ts.artist.userId = :artistId " +
-            "AND ts.status = :status " +
-            "AND DATE(ts.startTime) = :date " +
-            "ORDER BY ts.startTime",
-            TimeSlot.class)
-        .setParameter("artistId", artistId)
-        .setParameter("status", TimeSlot.TimeSlotStatus.AVAILABLE)
-        .setParameter("date", date)
-        .getResultList();
+    return slotAvailability.getAvailableOnDate(artistId, date);
 }
 
 
@@ -1047,6 +1024,7 @@ public List<TimeSlot> getAvailableTimeSlotsForMyAppointment(LocalDate date) {
         appointment.setStatus("REJECTED");
         appointment.setCancellationReason(reason);
         em.merge(appointment);
+        revenueRollup.touch(appointment.getAppointmentDateTime());
     }
 
 
@@ -1058,19 +1036,12 @@ public List<TimeSlot> getAvailableTimeSlotsForMyAppointment(LocalDate date) {
         if (!appointment.getArtist().getUserId().equals(artistId)) throw new SecurityException("Unauthorized");
         appointment.setStatus("COMPLETED");
         em.merge(appointment);
+        revenueRollup.touch(appointment.getAppointmentDateTime());
     }
     
 @Override
     public List<TimeSlot> getAvailableTimeSlotsForAppointment(Long artistId, LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
-        return em.createQuery(
-            "SELECT t FROM TimeSlot t WHERE t.artist.userId = :artistId AND t.startTime >= :start AND t.startTime < :end AND t.status = 'AVAILABLE' ORDER BY t.startTime ASC",
-            TimeSlot.class
-        ).setParameter("artistId", artistId)
-         .setParameter("start", startOfDay)
-         .setParameter("end", endOfDay)
-         .getResultList();
+        return slotAvailability.getAvailableOnDate(artistId, date);
     }
 
 // Update this in ArtistEJB.java
@@ -1103,13 +1074,14 @@ public List<TimeSlot> getAvailableTimeSlotsForMyAppointment(LocalDate date) {
         appointments.forEach(a -> {
             a.setStatus("COMPLETED");
             em.merge(a);
+            revenueRollup.touch(a.getAppointmentDateTime());
         });
     }
 
     
 @Override
 @Transactional
-public void assignTimeSlot(Long appointmentId, Integer slotId, LocalDateTime newStart, LocalDateTime newEnd) {
+public SlotClaimResult assignTimeSlot(Long appointmentId, Integer slotId, LocalDateTime newStart, LocalDateTime newEnd) {
 
     Long artistId = getAuthenticatedArtistId(); // 🔐 server decides
 
@@ -1128,23 +1100,24 @@ public void assignTimeSlot(Long appointmentId, Integer slotId, LocalDateTime new
     }
 
     if (slot.getStatus() != TimeSlot.TimeSlotStatus.AVAILABLE) {
-        throw new IllegalStateException("Time slot is not available");
+        return SlotClaimResult.SLOT_TAKEN;
     }
 
-    // ✅ Update start/end time if provided
+    // ✅ Claim first so a concurrent booking of the same slot loses cleanly
+    SlotClaimResult result = timeSlotEJB.claimSlotForAppointment(appointmentId, slotId, "CONFIRMED");
+    if (!result.isClaimed()) {
+        return result;
+    }
+
+    // ✅ Update start/end time if provided (slot is ours now; @Version guards the edit)
     if (newStart != null && newEnd != null) {
+        LocalDateTime slotStart = appointment.getAppointmentDateTime();
         slot.setStartTime(newStart);
         slot.setEndTime(newEnd);
+        appointment.setAppointmentDateTime(newStart);
+        revenueRollup.touch(slotStart, newStart);
     }
-
-    // ✅ Business update
-    appointment.setSlot(slot);
-    appointment.setStatus("CONFIRMED");
-
-    slot.setStatus(TimeSlot.TimeSlotStatus.BOOKED);
-
-    em.merge(appointment);
-    em.merge(slot);
+    return result;
 }
     // =========================
     // WEEKLY SCHEDULE
@@ -1187,48 +1160,12 @@ public void saveSchedule(ArtistSchedule schedule) {
 }
    @Override
     @Transactional
-public void generateSlotsNext7Days() {
+public SlotGenerationResultDTO generateSlotsNext7Days() {
     Long artistId = getAuthenticatedArtistId();
-    List<ArtistSchedule> weeklySchedule = getMyWeeklySchedule();
-
     LocalDate today = LocalDate.now();
-    LocalDate endDate = today.plusDays(7);
-
-    for (LocalDate date = today; !date.isAfter(endDate); date = date.plusDays(1)) {
-        DayOfWeek dow = date.getDayOfWeek();
-
-        for (ArtistSchedule schedule : weeklySchedule) {
-            if (!schedule.isWorking() || schedule.getDayOfWeek() != dow) continue;
-
-            LocalTime start = schedule.getStartTime();
-            LocalTime end = schedule.getEndTime();
-            LocalDateTime slotStart = LocalDateTime.of(date, start);
-
-            while (slotStart.toLocalTime().isBefore(end)) {
-                LocalDateTime slotEnd = slotStart.plusMinutes(60); // 1-hour slots
-                if (slotEnd.toLocalTime().isAfter(end)) break;
-
-                // Avoid duplicate slots
-                Long count = em.createQuery(
-                        "SELECT COUNT(t) FROM TimeSlot t WHERE t.artist.userId = :artistId AND t.startTime = :start",
-                        Long.class)
-                    .setParameter("artistId", artistId)
-                    .setParameter("start", slotStart)
-                    .getSingleResult();
-
-                if (count == 0) {
-                    TimeSlot ts = new TimeSlot();
-                    ts.setArtist(em.getReference(AppUser.class, artistId));
-                    ts.setStartTime(slotStart);
-                    ts.setEndTime(slotEnd);
-                    ts.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
-                    em.persist(ts);
-                }
 
-                slotStart = slotStart.plusMinutes(60);
-            }
-        }
-    }
+    // 1-hour slots, additive: existing slots in the window are left untouched
+    return timeSlotEJB.generateSlots(artistId, today, today.plusDays(7), 60, false);
 }
 
 @Override
@@ -1242,6 +1179,7 @@ public void blockSlot(Integer slotId, String reason) {
     slot.setStatus(TimeSlot.TimeSlotStatus.BLOCKED);
     slot.setBlockReason(reason);
     em.merge(slot);
+    slotAvailability.slotChanged(slot);
 }
 @Override
 @Transactional
@@ -1255,24 +1193,14 @@ public void unblockSlot(Integer slotId) {
         slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
         slot.setBlockReason(null);
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
     }
 }
 
 @Override
 public List<TimeSlot> getAvailableTimeSlotsForDate(LocalDate date) {
     Long artistId = getAuthenticatedArtistId();
-    LocalDateTime startOfDay = date.atStartOfDay();
-    LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
-
-    return em.createQuery(
-            "SELECT t FROM TimeSlot t WHERE t.artist.userId = :artistId AND t.status = :status " +
-            "AND t.startTime >= :start AND t.startTime < :end ORDER BY t.startTime",
-            TimeSlot.class)
-        .setParameter("artistId", artistId)
-        .setParameter("status", TimeSlot.TimeSlotStatus.AVAILABLE)
-        .setParameter("start", startOfDay)
-        .setParameter("end", endOfDay)
-        .getResultList();
+    return slotAvailability.getAvailableOnDate(artistId, date);
 }
 
 @Override
@@ -1346,12 +1274,12 @@ public boolean changeArtistPassword(Long artistId, String oldPassword, String ne
         if (artist == null) return false;
 
         // 🔐 Verify old password (hashed)
-        if (!PasswordUtil.verifyPassword(oldPassword, artist.getPassword())) {
+        if (!passwordHashing.verify(oldPassword, artist.getPassword())) {
             return false;
         }
 
         // 🔐 Store hashed password
-        String hashed = PasswordUtil.hashPassword(newPassword);
+        String hashed = passwordHashing.hash(newPassword);
         artist.setPassword(hashed);
 
         em.merge(artist);
@@ -1489,6 +1417,7 @@ public boolean changeArtistPassword(Long artistId, String oldPassword, String ne
 
         appt.setStatus("CONFIRMED");
         em.merge(appt);
+        revenueRollup.touch(appt.getAppointmentDateTime());
     }
 
     /* =========================================================
@@ -1512,16 +1441,18 @@ public boolean changeArtistPassword(Long artistId, String oldPassword, String ne
             slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
             appt.setSlot(null);
             em.merge(slot);
+            slotAvailability.slotChanged(slot);
         }
 
         em.merge(appt);
+        revenueRollup.touch(appt.getAppointmentDateTime());
     }
 
     /* =========================================================
        4️⃣ ASSIGN SLOT TO APPOINTMENT (ARTIST OWN SLOT ONLY)
        ========================================================= */
     @Override
-    public void assignSlotToAppointment(
+    public SlotClaimResult assignSlotToAppointment(
             Long appointmentId,
             Integer slotId,
             Long artistId) {
@@ -1529,7 +1460,7 @@ public boolean changeArtistPassword(Long artistId, String oldPassword, String ne
         Appointment appt = getOwnedAppointment(appointmentId, artistId);
 
         if (!"PENDING".equals(appt.getStatus())) {
-            throw new IllegalStateException("Slot can be assigned only to PENDING appointment");
+            return SlotClaimResult.APPOINTMENT_NOT_PENDING;
         }
 
         TimeSlot slot = em.find(TimeSlot.class, slotId);
@@ -1544,14 +1475,11 @@ public boolean changeArtistPassword(Long artistId, String oldPassword, String ne
         }
 
         if (slot.getStatus() != TimeSlot.TimeSlotStatus.AVAILABLE) {
-            throw new IllegalStateException("Slot is not available");
+            return SlotClaimResult.SLOT_TAKEN;
         }
 
-        slot.setStatus(TimeSlot.TimeSlotStatus.BOOKED);
-        appt.setSlot(slot);
-
-        em.merge(slot);
-        em.merge(appt);
+        // Appointment stays PENDING until the artist confirms it
+        return timeSlotEJB.claimSlotForAppointment(appointmentId, slotId, null);
     }
 
     /* =========================================================
@@ -1608,17 +1536,7 @@ public boolean changeArtistPassword(Long artistId, String oldPassword, String ne
    
   @Override
 public List<TimeSlot> getAvailableSlotsForArtist(Long artistId) {
-
-    return em.createQuery(
-        "SELECT s FROM TimeSlot s " +
-        "WHERE s.artist.userId = :artistId " +
-        "AND s.status = :status " +
-        "ORDER BY s.startTime",
-        TimeSlot.class
-    )
-    .setParameter("artistId", artistId)
-    .setParameter("status", TimeSlot.TimeSlotStatus.AVAILABLE)
-    .getResultList();
+    return slotAvailability.getAvailableFrom(artistId, null);
 }
 
  } 
@@ -1,8 +1,11 @@
 package ejb;
 
+import artistDTO.DesignListingDTO;
 import artistDTO.ArtistAppointmentDTO;
 import artistDTO.ArtistAppointmentFilterDTO;
 import artistDTO.ArtistProfileeeDTO;
+import dto.SlotClaimResult;
+import dto.SlotGenerationResultDTO;
 import entities.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -40,6 +43,9 @@ public List<TimeSlot> getAvailableTimeSlotsForMyAppointment(LocalDate date);
      * Populates like/favourite counts.
      */
     List<TattooDesign> getArtistDesigns(Long artistId, int offset, int limit);
+    List<DesignListingDTO> getArtistDesignListings(Long artistId, int offset, int limit);
+    void checkDesignImageEditable(Long designId, Long artistId);
+    void updateDesignImage(Long designId, Long artistId, String imagePath);
     
     TattooDesign getDesignById(Long designId);
     
@@ -66,7 +72,7 @@ public List<TimeSlot> getAvailableTimeSlotsForMyAppointment(LocalDate date);
     long countPendingRequestsToday(Long artistId);
     List<ArtistSchedule> listSchedulesForArtist(Long artistId);
     List<TimeSlot> getArtistTimeSlots(Long artistId);
-    List<TimeSlot> generateTimeSlotsForArtist(Long artistId, LocalDate startDate, LocalDate endDate, int slotDurationMinutes);
+    SlotGenerationResultDTO generateTimeSlotsForArtist(Long artistId, LocalDate startDate, LocalDate endDate, int slotDurationMinutes);
     TimeSlot addTimeSlot(Long artistId, TimeSlot slot);
     ArtistSchedule saveArtistSchedule(Long artistId, ArtistSchedule schedule);
     List<TimeSlot> listAvailableTimeSlots(Long artistId);
@@ -120,7 +126,7 @@ public List<TimeSlot> getAvailableTimeSlotsForDate(LocalDate date);
 public void blockSlot(Integer slotId, String reason);
 //    void assignTimeSlot(Long appointmentId, Integer slotId);
 
-void approveAppointment(Long appointmentId, Integer slotId);
+SlotClaimResult approveAppointment(Long appointmentId, Integer slotId);
 
 void rejectAppointment(Long appointmentId, String reason);
 
@@ -133,7 +139,7 @@ List<TimeSlot> getAvailableTimeSlotsForAppointment(Long artistId, LocalDate date
 List<Appointment> getMyAppointments(String statusFilter, int offset, int limit);
 
 // Automatic processing
-public void assignTimeSlot(Long appointmentId, Integer slotId, LocalDateTime newStart, LocalDateTime newEnd);
+public SlotClaimResult assignTimeSlot(Long appointmentId, Integer slotId, LocalDateTime newStart, LocalDateTime newEnd);
 
 
 void autoCompletePaidAppointments(Long artistId);
@@ -146,7 +152,7 @@ void autoCompletePaidAppointments(Long artistId);
     // =========================
     // TIME SLOTS
 
-    public void generateSlotsNext7Days();
+    public SlotGenerationResultDTO generateSlotsNext7Days();
     void unblockSlot(Integer slotId);
 
 
@@ -165,7 +171,7 @@ List<ArtistAppointmentDTO> getAppointmentsForArtist(
 
     void cancelAppointment(Long appointmentId, String reason, Long artistId);
 
-    void assignSlotToAppointment(Long appointmentId, Integer slotId, Long artistId);
+    SlotClaimResult assignSlotToAppointment(Long appointmentId, Integer slotId, Long artistId);
 
     List<TimeSlot> getAvailableSlotsForArtist(Long artistId);
 
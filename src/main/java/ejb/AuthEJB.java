@@ -2,13 +2,13 @@ package ejb;
 
 import entities.AppUser;
 import entities.GroupMaster;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import java.time.LocalDateTime;
-import util.PasswordUtil; 
 
 @Stateless
 public class AuthEJB {
@@ -16,6 +16,15 @@ public class AuthEJB {
     @PersistenceContext(unitName = "TattooPU")
     private EntityManager em;
 
+    @EJB
+    private QueryCacheEJB queryCache;
+
+    @EJB
+    private PasswordHashingEJB passwordHashing;
+
+    @EJB
+    private DashboardStatsEJB dashboardStats;
+
     public AppUser authenticateUser(String username, String password) {
         try {
             // STEP 1: Find user by username ONLY. 
@@ -26,9 +35,13 @@ query.setParameter("user", username);
 
             AppUser user = query.getSingleResult();
             
-            // STEP 2: Verify the password using your Utility
-            if (PasswordUtil.verifyPassword(password, user.getPassword())) {
+            // STEP 2: Verify the password on the hashing pool
+            if (passwordHashing.verify(password, user.getPassword())) {
                 if (user.getRole() != null) user.getRole().getRoleName().trim(); 
+                // Upgrade legacy or weaker hashes while the plain password is at hand
+                if (passwordHashing.needsRehash(user.getPassword())) {
+                    user.setPassword(passwordHashing.hash(password));
+                }
                 return user;
             } else {
                 return null;
@@ -36,7 +49,9 @@ query.setParameter("user", username);
 
 
         } catch (NoResultException e) {
-            return null; // Username not found
+            // Username not found; spend the same hashing time so the response doesn't tell
+            passwordHashing.verify(password, passwordHashing.getDummyHash());
+            return null;
         }
     }
     
@@ -52,12 +67,18 @@ query.setParameter("user", username);
         }
 
         // 2. Find or Create Role
-        GroupMaster role;
-        try {
-            role = em.createQuery("SELECT g FROM GroupMaster g WHERE g.roleName = :role", GroupMaster.class)
-                     .setParameter("role", roleName)
-                     .getSingleResult();
-        } catch (NoResultException e) {
+        // Role id by name is cached; the GroupMaster row itself comes from the entity cache
+        Integer roleId = queryCache.get(QueryCacheEJB.ROLES, roleName, () -> {
+            try {
+                return em.createQuery("SELECT g.roleId FROM GroupMaster g WHERE g.roleName = :role", Integer.class)
+                         .setParameter("role", roleName)
+                         .getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
+        GroupMaster role = queryCache.find(em, GroupMaster.class, roleId);
+        if (role == null) {
             role = new GroupMaster();
             role.setRoleName(roleName);
             em.persist(role);
@@ -71,5 +92,6 @@ query.setParameter("user", username);
 
         // 4. Save
         em.persist(newUser);
+        dashboardStats.invalidate();
     }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package ejb;
 
+import artistDTO.DesignListingDTO;
 import clientDTO.ArtistCardDTO;
+import clientDTO.FavouriteDesignDTO;
+import dto.DesignSearchResultDTO;
+import dto.DesignSeekKeyDTO;
 import jakarta.persistence.NoResultException;
 import entities.*;
 import jakarta.ejb.EJB;
@@ -14,7 +18,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Stateless
@@ -28,6 +35,49 @@ public class ClientEJB implements ClientEJBLocal {
     
     @EJB // Inject AdminEJB to handle payment status and trigger earning logs/appointment status update
     private AdminEJBLocal adminEJB;
+
+    @EJB // Keeps the like/favourite/comment counters on TattooDesign in step with writes
+    private DesignCounterEJB designCounterEJB;
+
+    @EJB
+    private DashboardStatsEJB dashboardStats;
+
+    @EJB
+    private PaymentOutboxEJB paymentOutbox;
+
+    @EJB
+    private TrendingEJB trendingEJB;
+
+    @EJB
+    private ArtistBrowseCacheEJB artistBrowseCache;
+
+    @EJB
+    private RatingStatsEJB ratingStatsEJB;
+
+    @EJB
+    private SlotAvailabilityEJB slotAvailability;
+
+    @EJB
+    private DesignSearchEJB designSearch;
+
+    @EJB
+    private QueryCacheEJB queryCache;
+
+    @EJB
+    private RevenueRollupEJB revenueRollup;
+
+    // One projection for the artist cards: experience and the materialized
+    // rating stats come back with the artist instead of two queries per row.
+    private static final String ARTIST_CARD_SELECT =
+        "SELECT NEW clientDTO.ArtistCardDTO(a.userId, a.fullName, e.yearsExperience, s.reviewAverage, s.reviewCount) " +
+        "FROM AppUser a " +
+        "LEFT JOIN a.experience e " +
+        "LEFT JOIN ArtistRatingStats s ON s.artistId = a.userId " +
+        "WHERE a.role.roleName = :roleName " +
+        "AND a.isActive = true ";
+
+    private static final String ARTIST_CARD_ORDER =
+        "ORDER BY a.fullName, a.userId";
     // -------------------------
     // Profile
     // -------------------------
@@ -75,21 +125,18 @@ public List<TattooDesign> searchDesigns(
         int offset,
         int limit) {
 
+    // Free-text queries go through the inverted index; only the page is fetched
+    if (qStr != null && !qStr.isBlank()) {
+        DesignSearchResultDTO hits = designSearch.search(qStr, style, minPrice, maxPrice, offset, limit);
+        return loadVisibleDesignsInOrder(hits.getDesignIds());
+    }
+
     StringBuilder ql = new StringBuilder(
         "SELECT d FROM TattooDesign d WHERE " +
         "(d.isBanned IS NULL OR d.isBanned = false) " +
         "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) "
     );
 
-    if (qStr != null && !qStr.isBlank()) {
-        ql.append(
-            "AND (LOWER(d.title) LIKE :q " +
-            "OR LOWER(d.description) LIKE :q " +
-            "OR LOWER(d.style) LIKE :q " +
-            "OR LOWER(d.artist.fullName) LIKE :q) "
-        );
-    }
-
     if (style != null && !style.isBlank()) {
         ql.append("AND LOWER(d.style) LIKE :style ");
     }
@@ -106,10 +153,6 @@ public List<TattooDesign> searchDesigns(
 
     TypedQuery<TattooDesign> q = em.createQuery(ql.toString(), TattooDesign.class);
 
-    if (qStr != null && !qStr.isBlank()) {
-        q.setParameter("q", "%" + qStr.toLowerCase() + "%");
-    }
-
     if (style != null && !style.isBlank()) {
         q.setParameter("style", "%" + style.toLowerCase() + "%");
     }
@@ -125,19 +168,175 @@ public List<TattooDesign> searchDesigns(
     if (offset >= 0) q.setFirstResult(offset);
     if (limit > 0) q.setMaxResults(limit);
 
-    List<TattooDesign> list = q.getResultList();
+    // Like/favourite totals are the counter columns; no collection needs loading
+    return q.getResultList();
+}
 
-    // Force lazy init safely
-    list.forEach(d -> {
-        if (d.getArtist() != null) d.getArtist().getUserId();
-        if (d.getLikes() != null) d.getLikes().size();
-        if (d.getFavourites() != null) d.getFavourites().size();
-    });
 
-    return list;
-}
 
+    // -------------------------
+    // Browse (server-side sort + keyset pagination)
+    // -------------------------
+
+    /** Text matches considered for a sorted browse page; bounds the IN list. */
+    private static final int MAX_BROWSE_TEXT_HITS = 1000;
+
+    @Override
+    public List<TattooDesign> browseDesigns(String qStr, String style, BigDecimal minPrice, BigDecimal maxPrice,
+                                            String sortBy, DesignSeekKeyDTO after, int skip, int limit) {
+        List<Long> textHits = null;
+        if (qStr != null && !qStr.isBlank()) {
+            textHits = designSearch.search(qStr, style, minPrice, maxPrice, 0, MAX_BROWSE_TEXT_HITS).getDesignIds();
+            if (textHits.isEmpty()) return new ArrayList<>();
+        }
+        if (browseSort(sortBy).startsWith("price_")) {
+            return browseByPrice(textHits, style, minPrice, maxPrice, "price_low".equals(sortBy), after, skip, limit);
+        }
+
+        StringBuilder ql = new StringBuilder("SELECT d FROM TattooDesign d JOIN FETCH d.artist WHERE ");
+        appendBrowseFilters(ql, textHits, style, minPrice, maxPrice);
+
+        if (after != null) {
+            switch (browseSort(sortBy)) {
+                case "popular":
+                    ql.append("AND (d.favouriteCount < :seekFav OR (d.favouriteCount = :seekFav AND " +
+                              "(d.likeCount < :seekLike OR (d.likeCount = :seekLike AND d.designId < :seekId)))) ");
+                    break;
+                default:
+                    ql.append("AND (d.uploadedAt < :seekUploaded OR " +
+                              "(d.uploadedAt = :seekUploaded AND d.designId < :seekId)) ");
+            }
+        }
+
+        switch (browseSort(sortBy)) {
+            case "popular":
+                ql.append("ORDER BY d.favouriteCount DESC, d.likeCount DESC, d.designId DESC");
+                break;
+            default:
+                ql.append("ORDER BY d.uploadedAt DESC, d.designId DESC");
+        }
+
+        TypedQuery<TattooDesign> q = em.createQuery(ql.toString(), TattooDesign.class);
+        setBrowseFilters(q, textHits, style, minPrice, maxPrice);
+
+        if (after != null) {
+            q.setParameter("seekId", after.getDesignId());
+            switch (browseSort(sortBy)) {
+                case "popular":
+                    q.setParameter("seekFav", after.getFavouriteCount());
+                    q.setParameter("seekLike", after.getLikeCount());
+                    break;
+                default:
+                    q.setParameter("seekUploaded", after.getUploadedAt());
+            }
+        }
+
+        if (skip > 0) q.setFirstResult(skip);
+        if (limit > 0) q.setMaxResults(limit);
+        return q.getResultList();
+    }
+
+    /**
+     * Price-sorted browse. Priced designs come first in price order, then the
+     * unpriced ones by id; each bucket seeks and orders on the bare columns so
+     * IDX_DESIGN_PRICE serves the sort. A seek key without a price points
+     * into the unpriced bucket.
+     */
+    private List<TattooDesign> browseByPrice(List<Long> textHits, String style, BigDecimal minPrice,
+                                             BigDecimal maxPrice, boolean ascending, DesignSeekKeyDTO after,
+                                             int skip, int limit) {
+        String cmp = ascending ? ">" : "<";
+        String dir = ascending ? " ASC" : " DESC";
+        List<TattooDesign> result = new ArrayList<>();
+        boolean unpricedSeek = after != null && after.getPrice() == null;
+
+        if (!unpricedSeek) {
+            StringBuilder where = new StringBuilder();
+            appendBrowseFilters(where, textHits, style, minPrice, maxPrice);
+            where.append("AND d.price IS NOT NULL ");
+            if (after != null) {
+                where.append("AND (d.price ").append(cmp).append(" :seekPrice OR (d.price = :seekPrice AND d.designId ")
+                     .append(cmp).append(" :seekId)) ");
+            }
+
+            TypedQuery<TattooDesign> q = em.createQuery("SELECT d FROM TattooDesign d JOIN FETCH d.artist WHERE " + where
+                    + "ORDER BY d.price" + dir + ", d.designId" + dir, TattooDesign.class);
+            setBrowseFilters(q, textHits, style, minPrice, maxPrice);
+            if (after != null) {
+                q.setParameter("seekPrice", after.getPrice());
+                q.setParameter("seekId", after.getDesignId());
+            }
+            if (skip > 0) q.setFirstResult(skip);
+            if (limit > 0) q.setMaxResults(limit);
+            result.addAll(q.getResultList());
+
+            // A price filter excludes unpriced designs anyway
+            if ((limit > 0 && result.size() >= limit) || minPrice != null || maxPrice != null) return result;
+
+            if (result.isEmpty() && skip > 0) {
+                // The whole priced remainder was skipped; carry the rest of the skip over
+                TypedQuery<Long> c = em.createQuery("SELECT COUNT(d) FROM TattooDesign d WHERE " + where, Long.class);
+                setBrowseFilters(c, textHits, style, minPrice, maxPrice);
+                if (after != null) {
+                    c.setParameter("seekPrice", after.getPrice());
+                    c.setParameter("seekId", after.getDesignId());
+                }
+                skip = (int) Math.max(0, skip - c.getSingleResult());
+            } else {
+                skip = 0;
+            }
+        }
+
+        StringBuilder ql = new StringBuilder("SELECT d FROM TattooDesign d JOIN FETCH d.artist WHERE ");
+        appendBrowseFilters(ql, textHits, style, minPrice, maxPrice);
+        ql.append("AND d.price IS NULL ");
+        if (unpricedSeek) ql.append("AND d.designId ").append(cmp).append(" :seekId ");
+        ql.append("ORDER BY d.designId").append(dir);
+
+        TypedQuery<TattooDesign> q = em.createQuery(ql.toString(), TattooDesign.class);
+        setBrowseFilters(q, textHits, style, minPrice, maxPrice);
+        if (unpricedSeek) q.setParameter("seekId", after.getDesignId());
+        if (skip > 0) q.setFirstResult(skip);
+        if (limit > 0) q.setMaxResults(limit - result.size());
+        result.addAll(q.getResultList());
+        return result;
+    }
 
+    @Override
+    public long countDesigns(String qStr, String style, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (qStr != null && !qStr.isBlank()) {
+            return Math.min(designSearch.search(qStr, style, minPrice, maxPrice, 0, 1).getTotalHits(),
+                            MAX_BROWSE_TEXT_HITS);
+        }
+        StringBuilder ql = new StringBuilder("SELECT COUNT(d) FROM TattooDesign d WHERE ");
+        appendBrowseFilters(ql, null, style, minPrice, maxPrice);
+        TypedQuery<Long> q = em.createQuery(ql.toString(), Long.class);
+        setBrowseFilters(q, null, style, minPrice, maxPrice);
+        return q.getSingleResult();
+    }
+
+    private static String browseSort(String sortBy) {
+        if ("popular".equals(sortBy) || "price_low".equals(sortBy) || "price_high".equals(sortBy)) return sortBy;
+        return "newest";
+    }
+
+    private static void appendBrowseFilters(StringBuilder ql, List<Long> textHits, String style,
+                                            BigDecimal minPrice, BigDecimal maxPrice) {
+        ql.append("(d.isBanned IS NULL OR d.isBanned = false) " +
+                  "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) ");
+        if (textHits != null) ql.append("AND d.designId IN :ids ");
+        if (style != null && !style.isBlank()) ql.append("AND LOWER(d.style) LIKE :style ");
+        if (minPrice != null) ql.append("AND d.price >= :minPrice ");
+        if (maxPrice != null) ql.append("AND d.price <= :maxPrice ");
+    }
+
+    private static void setBrowseFilters(TypedQuery<?> q, List<Long> textHits, String style,
+                                         BigDecimal minPrice, BigDecimal maxPrice) {
+        if (textHits != null) q.setParameter("ids", textHits);
+        if (style != null && !style.isBlank()) q.setParameter("style", "%" + style.toLowerCase() + "%");
+        if (minPrice != null) q.setParameter("minPrice", minPrice);
+        if (maxPrice != null) q.setParameter("maxPrice", maxPrice);
+    }
 
     // -------------------------
     // Likes / favourites
@@ -163,6 +362,7 @@ public List<TattooDesign> searchDesigns(
         like.setDesign(design);
         em.persist(like);
         em.flush();
+        designCounterEJB.adjustLikeCount(designId, 1);
         return like;
     }
 
@@ -175,6 +375,7 @@ public List<TattooDesign> searchDesigns(
                     .setParameter("cid", clientId).setParameter("did", designId)
                     .getSingleResult();
             em.remove(l);
+            designCounterEJB.adjustLikeCount(designId, -1, l.getLikedAt());
         } catch (NoResultException ignored) {}
     }
 
@@ -199,6 +400,7 @@ public List<TattooDesign> searchDesigns(
         fav.setDesign(design);
         em.persist(fav);
         em.flush();
+        designCounterEJB.adjustFavouriteCount(designId, 1);
         return fav;
     }
 
@@ -209,6 +411,21 @@ public void unfavouriteDesign(Long clientId, Long designId) {
 }
 
    @Override
+    public List<FavouriteDesignDTO> listFavouriteDesigns(Long clientId, int start, int max) {
+        return em.createQuery(
+            "SELECT NEW clientDTO.FavouriteDesignDTO(d.designId, d.title, d.imagePath, d.style, d.price, " +
+            "a.userId, a.fullName) " +
+            "FROM DesignFavourite f JOIN f.design d JOIN d.artist a " +
+            "WHERE f.client.userId = :clientId " +
+            "ORDER BY f.favoritedAt DESC",
+            FavouriteDesignDTO.class)
+            .setParameter("clientId", clientId)
+            .setFirstResult(start)
+            .setMaxResults(max)
+            .getResultList();
+    }
+
+    @Override
     public List<DesignFavourite> listFavourites(Long clientId, int start, int max) {
         return em.createQuery(
             "SELECT f FROM DesignFavourite f " +
@@ -227,22 +444,8 @@ public void unfavouriteDesign(Long clientId, Long designId) {
     // In ClientEJB.java - Update listAvailableTimeSlots method
 @Override
 public List<TimeSlot> listAvailableTimeSlots(Long artistId, LocalDate date) {
-
-    LocalDateTime start = date.atStartOfDay();
-    LocalDateTime end = date.atTime(23, 59, 59);
-
-    return em.createQuery(
-        "SELECT t FROM TimeSlot t " +
-        "WHERE t.artist.userId = :artistId " +
-        "AND t.startTime BETWEEN :start AND :end " +
-        "AND t.status = :status",
-        TimeSlot.class
-    )
-    .setParameter("artistId", artistId)
-    .setParameter("start", start)
-    .setParameter("end", end)
-    .setParameter("status", TimeSlot.TimeSlotStatus.AVAILABLE)
-    .getResultList();
+    // Served from the in-memory availability index
+    return slotAvailability.getAvailableOnDate(artistId, date);
 }
 
 
@@ -364,7 +567,9 @@ public Long bookAppointment(Long clientId, Long artistId, Long designId, String
 
     em.persist(appointment);
     em.flush();
+    dashboardStats.invalidate();
 
+    trendingEJB.recordBooking(designId);
     return appointment.getAppointmentId();
 }
 @Override
@@ -377,12 +582,15 @@ public void cancelAppointment(Long appointmentId) {
     // Update appointment
     appt.setStatus("CANCELLED");
     em.merge(appt);
+    dashboardStats.invalidate();
+    revenueRollup.touch(appt.getAppointmentDateTime());
 
     // Free slot correctly
     TimeSlot slot = appt.getSlot();
     if (slot != null) {
         slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
         em.merge(slot);
+        slotAvailability.slotChanged(slot);
     }
 }
 
@@ -501,24 +709,14 @@ public Payment createMockPayment(Long clientId, Long appointmentId, BigDecimal a
     payment.setPaymentMethod(method);
     payment.setStatus("COMPLETED"); // Assume success for mock payment
     payment.setTransactionId(java.util.UUID.randomUUID().toString()); // Mock Transaction ID
+    payment.setPaymentDate(LocalDateTime.now());
     
     em.persist(payment);
-    em.flush(); // Ensure the Payment ID is generated before calling AdminEJB
-
-    // 2. CRITICAL: Trigger the back-end financial workflow (Post-processing)
-    Long internalAdminId = 99L; // Placeholder for system/auditing
-    
-    try {
-        // This call executes the commission logic and updates the Appointment status.
-        adminEJB.markPaymentStatus(payment.getPaymentId(), "COMPLETED", internalAdminId); 
+    em.flush(); // Ensure the Payment ID is generated before queueing post-processing
+    revenueRollup.touch(payment.getPaymentDate());
 
-    } catch (Exception e) {
-        // If AdminEJB fails, the transaction attempts to roll back. We throw the informative error.
-        System.err.println("CRITICAL: Failed to update Admin/Earning log after payment completion for ID: " + payment.getPaymentId() + ". Error: " + e.getMessage());
-        
-        // This is the specific error message the client will see.
-        throw new jakarta.ejb.EJBException("Payment was successful but back-end logging failed. Manual review required.", e);
-    }
+    // 2. Earning log, appointment status and notifications run after commit (PaymentOutboxEJB)
+    paymentOutbox.enqueue(payment.getPaymentId(), PaymentOutbox.PAYMENT_COMPLETED);
     
     return payment;
 }
@@ -533,11 +731,11 @@ public Payment createMockPayment(Long clientId, Long appointmentId, BigDecimal a
         
         payment.setStatus(status); 
         em.merge(payment);
+        revenueRollup.touch(payment.getPaymentDate());
 
-        // Trigger Earning Log creation ONLY if payment is newly COMPLETED
+        // Queue post-processing ONLY if payment is newly COMPLETED
         if ("COMPLETED".equalsIgnoreCase(status) && !"COMPLETED".equalsIgnoreCase(currentStatus)) {
-            // This calls the financial logic in the ArtistEJB
-            adminEJB.logEarningsForPayment(paymentId);
+            paymentOutbox.enqueue(paymentId, PaymentOutbox.PAYMENT_COMPLETED);
         }
     }
 
@@ -595,6 +793,9 @@ public Payment createMockPayment(Long clientId, Long appointmentId, BigDecimal a
         f.setComment(comment);
         f.setCreatedAt(LocalDateTime.now());
         em.persist(f);
+        if (rating != null) {
+            ratingStatsEJB.feedbackAdded(a.getArtist().getUserId(), rating);
+        }
 
         // attach to appointment (bidirectional)
         a.setFeedback(f);
@@ -641,15 +842,67 @@ public List<TattooDesign> listDesignsByStyle(String style, int start, int max) {
             "SELECT d FROM TattooDesign d " +
             "WHERE (d.isBanned IS NULL OR d.isBanned = false) " +
             "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
-            "ORDER BY SIZE(d.favourites) DESC, SIZE(d.likes) DESC, d.uploadedAt DESC", 
+            "ORDER BY d.favouriteCount DESC, d.likeCount DESC, d.uploadedAt DESC", 
             TattooDesign.class)
             .setFirstResult(start)
             .setMaxResults(max)
             .getResultList();
     }
 
+    // One batch fetch for IDs ranked elsewhere (trending engine, search index), keeping their order
+    private List<TattooDesign> loadVisibleDesignsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        List<TattooDesign> found = em.createQuery(
+            "SELECT d FROM TattooDesign d JOIN FETCH d.artist " +
+            "WHERE d.designId IN :ids " +
+            "AND (d.isBanned IS NULL OR d.isBanned = false) " +
+            "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false)",
+            TattooDesign.class)
+            .setParameter("ids", ids)
+            .getResultList();
+
+        Map<Long, TattooDesign> byId = new HashMap<>();
+        for (TattooDesign d : found) byId.put(d.getDesignId(), d);
+
+        List<TattooDesign> ordered = new ArrayList<>();
+        for (Long id : ids) {
+            TattooDesign d = byId.get(id);
+            if (d != null) ordered.add(d);
+        }
+        return ordered;
+    }
+
+    private List<DesignListingDTO> loadDesignListingsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        List<DesignListingDTO> found = em.createQuery(
+            DesignListingDTO.SELECT +
+            "WHERE d.designId IN :ids " +
+            "AND (d.isBanned IS NULL OR d.isBanned = false) " +
+            "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false)",
+            DesignListingDTO.class)
+            .setParameter("ids", ids)
+            .getResultList();
+
+        Map<Long, DesignListingDTO> byId = new HashMap<>();
+        for (DesignListingDTO d : found) byId.put(d.getDesignId(), d);
+
+        List<DesignListingDTO> ordered = new ArrayList<>();
+        for (Long id : ids) {
+            DesignListingDTO d = byId.get(id);
+            if (d != null) ordered.add(d);
+        }
+        return ordered;
+    }
+
     @Override
     public List<TattooDesign> getTrendingDesigns(int start, int max) {
+        // Served from the in-memory decayed ranking; the query below is only
+        // the fallback while no design has any recorded activity. A page past
+        // the end of the ranking stays empty so one listing never switches order.
+        if (trendingEJB.size() > 0) {
+            return loadVisibleDesignsInOrder(trendingEJB.getTopDesignIds(start, max));
+        }
+
         LocalDateTime oneMonthAgo = LocalDateTime.now().minusMonths(1);
         
         return em.createQuery(
@@ -657,7 +910,7 @@ public List<TattooDesign> listDesignsByStyle(String style, int start, int max) {
             "WHERE d.uploadedAt >= :oneMonthAgo " +
             "AND (d.isBanned IS NULL OR d.isBanned = false) " +
             "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
-            "ORDER BY SIZE(d.favourites) + SIZE(d.likes) DESC, d.uploadedAt DESC", 
+            "ORDER BY d.favouriteCount + d.likeCount DESC, d.uploadedAt DESC", 
             TattooDesign.class)
             .setParameter("oneMonthAgo", oneMonthAgo)
             .setFirstResult(start)
@@ -684,27 +937,46 @@ public List<TattooDesign> listDesignsByStyle(String style, int start, int max) {
 
     @Override
     public List<AppUser> getTopArtists(int start, int max) {
-        // Get artists with highest average feedback ratings
-        return em.createQuery(
-            "SELECT a, COALESCE(AVG(f.rating),0.0) as avgRating, COUNT(f) as reviewCount\n" +
-"FROM AppUser a\n" +
-"LEFT JOIN Feedback f ON f.artist = a\n" +
-"WHERE a.role.roleName = 'ARTIST' AND a.isActive = true\n" +
-"GROUP BY a\n" +
-"ORDER BY avgRating DESC, reviewCount DESC", 
-            Object[].class)
+        // Get artists with highest average feedback ratings (indexed sort on artist_rating_stats)
+        List<AppUser> top = em.createQuery(
+            "SELECT a FROM ArtistRatingStats s, AppUser a " +
+            "WHERE a.userId = s.artistId " +
+            "AND a.role.roleName = 'ARTIST' AND a.isActive = true " +
+            "ORDER BY s.feedbackAverage DESC, s.feedbackCount DESC", 
+            AppUser.class)
             .setFirstResult(start)
             .setMaxResults(max)
-            .getResultStream()
-            .map(result -> (AppUser) result[0])
-            .collect(Collectors.toList());
+            .getResultList();
+
+        // Artists without a stats row (no reviews yet) rank last. The page
+        // continues into them at the offset left over after the ranked ones.
+        if (top.size() < max) {
+            Long ranked = em.createQuery(
+                "SELECT COUNT(a) FROM ArtistRatingStats s, AppUser a " +
+                "WHERE a.userId = s.artistId " +
+                "AND a.role.roleName = 'ARTIST' AND a.isActive = true",
+                Long.class)
+                .getSingleResult();
+            int unrankedStart = (int) Math.max(0, start + top.size() - ranked);
+            top = new ArrayList<>(top);
+            top.addAll(em.createQuery(
+                "SELECT a FROM AppUser a " +
+                "WHERE a.role.roleName = 'ARTIST' AND a.isActive = true " +
+                "AND NOT EXISTS (SELECT s FROM ArtistRatingStats s WHERE s.artistId = a.userId) " +
+                "ORDER BY a.userId",
+                AppUser.class)
+                .setFirstResult(unrankedStart)
+                .setMaxResults(max - top.size())
+                .getResultList());
+        }
+        return top;
     }
 
     @Override
     public List<TattooDesign> getFeaturedDesigns(int start, int max) {
         // Featured designs could be marked by admin or based on criteria
-        return em.createQuery(
-            "SELECT d FROM TattooDesign d " +
+        return queryCache.get(QueryCacheEJB.FEATURED_DESIGNS, start + ":" + max, () -> List.copyOf(em.createQuery(
+            "SELECT d FROM TattooDesign d JOIN FETCH d.artist " +
             "WHERE (d.isBanned IS NULL OR d.isBanned = false) " +
             "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
             "AND d.price > :minPrice " + // Example: featured designs are premium
@@ -713,12 +985,12 @@ public List<TattooDesign> listDesignsByStyle(String style, int start, int max) {
             .setParameter("minPrice", new BigDecimal("100"))
             .setFirstResult(start)
             .setMaxResults(max)
-            .getResultList();
+            .getResultList()));
     }
 
     @Override
 public List<String> getAvailableStyles() {
-    return em.createQuery(
+    return queryCache.get(QueryCacheEJB.DESIGN_STYLES, "all", () -> List.copyOf(em.createQuery(
         "SELECT DISTINCT LOWER(TRIM(d.style)) " +
         "FROM TattooDesign d " +
         "WHERE d.style IS NOT NULL " +
@@ -727,7 +999,7 @@ public List<String> getAvailableStyles() {
         "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
         "ORDER BY LOWER(TRIM(d.style))",
         String.class)
-        .getResultList();
+        .getResultList()));
 }
 
 
@@ -816,19 +1088,7 @@ public List<TattooDesign> getDesignsByArtist(Long artistId, int start, int max)
 
    @Override
 public Double getArtistAverageRating(Long artistId) {
-
-    Double avg = em.createQuery(
-        """
-        SELECT AVG(r.rating)
-        FROM Review r
-        WHERE r.artist.userId = :artistId
-        """,
-        Double.class
-    )
-    .setParameter("artistId", artistId)
-    .getSingleResult();
-
-    return avg != null ? avg : 0.0;
+    return ratingStatsEJB.getReviewAverage(artistId);
 }
 
 
@@ -847,19 +1107,14 @@ public Double getArtistAverageRating(Long artistId) {
 
     @Override
     public List<TattooDesign> searchDesigns(String keyword, int start, int max) {
-        return em.createQuery(
-            "SELECT d FROM TattooDesign d " +
-            "WHERE (LOWER(d.title) LIKE LOWER(:keyword) " +
-            "OR LOWER(d.description) LIKE LOWER(:keyword) " +
-            "OR LOWER(d.style) LIKE LOWER(:keyword)) " +
-            "AND (d.isBanned IS NULL OR d.isBanned = false) " +
-            "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
-            "ORDER BY d.uploadedAt DESC", 
-            TattooDesign.class)
-            .setParameter("keyword", "%" + keyword + "%")
-            .setFirstResult(start)
-            .setMaxResults(max)
-            .getResultList();
+        DesignSearchResultDTO hits = designSearch.search(keyword, null, null, null, start, max);
+        return loadVisibleDesignsInOrder(hits.getDesignIds());
+    }
+
+    @Override
+    public DesignSearchResultDTO searchDesignIds(String q, String style, BigDecimal minPrice, BigDecimal maxPrice,
+                                                 int offset, int limit) {
+        return designSearch.search(q, style, minPrice, maxPrice, offset, limit);
     }
     
 @Override
@@ -876,6 +1131,7 @@ public boolean toggleDesignLike(Long clientId, Long designId) {
 
         // if found → remove it
         em.remove(l);
+        designCounterEJB.adjustLikeCount(designId, -1, l.getLikedAt());
         return false; // now unliked
     }
     catch (NoResultException e) {
@@ -887,6 +1143,7 @@ public boolean toggleDesignLike(Long clientId, Long designId) {
         like.setClient(c);
         like.setDesign(d);
         em.persist(like);
+        designCounterEJB.adjustLikeCount(designId, 1);
         return true; // now liked
     }
 }
@@ -920,12 +1177,14 @@ public boolean toggleFavouriteDesign(Long clientId, Long designId) {
             .getSingleResult();
 
         em.remove(existing);
+        designCounterEJB.adjustFavouriteCount(designId, -1, existing.getFavoritedAt());
         return false; // removed from favourite
     } catch (NoResultException e) {
         DesignFavourite fav = new DesignFavourite();
         fav.setClient(client);
         fav.setDesign(design);
         em.persist(fav);
+        designCounterEJB.adjustFavouriteCount(designId, 1);
         return true; // added to favourite
     }
 }
@@ -981,7 +1240,7 @@ public List<Review> getReviewsForDesign(Long designId) {
     }
     
 @Override
-public List<TattooDesign> getRecommendedDesigns(Long clientId) {
+public List<DesignListingDTO> getRecommendedDesigns(Long clientId) {
     // 1. Get the styles of designs liked by the client
     List<String> likedStyles = em.createQuery(
         "SELECT DISTINCT LOWER(l.design.style) " +
@@ -992,12 +1251,12 @@ public List<TattooDesign> getRecommendedDesigns(Long clientId) {
         .setParameter("clientId", clientId)
         .getResultList();
 
-    List<TattooDesign> recommended = Collections.emptyList();
+    List<DesignListingDTO> recommended = new ArrayList<>();
 
     if (!likedStyles.isEmpty()) {
         // 2. Get designs with matching styles, excluding ones already liked
-        recommended = em.createQuery(
-            "SELECT DISTINCT d FROM TattooDesign d " +
+        recommended.addAll(em.createQuery(
+            DesignListingDTO.SELECT +
             "WHERE LOWER(d.style) IN :styles " +
             "AND (d.isBanned IS NULL OR d.isBanned = false) " +
             "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
@@ -1005,28 +1264,34 @@ public List<TattooDesign> getRecommendedDesigns(Long clientId) {
             "   SELECT l.design.designId FROM DesignLike l WHERE l.client.userId = :clientId" +
             ") " +
             "ORDER BY d.uploadedAt DESC", 
-            TattooDesign.class)
+            DesignListingDTO.class)
             .setParameter("styles", likedStyles)
             .setParameter("clientId", clientId)
             .setMaxResults(8)
-            .getResultList();
+            .getResultList());
     }
 
     // 3. If less than 8 designs, fill with trending designs
     if (recommended.size() < 8) {
-    List<TattooDesign> trending = getTrendingDesigns(0, 8 - recommended.size());
-    for (TattooDesign d : trending) {
-        if (!recommended.contains(d)) {
-            recommended.add(d);
+        Set<Long> seen = recommended.stream().map(DesignListingDTO::getDesignId).collect(Collectors.toSet());
+        List<Long> trendingIds = trendingEJB.getTopDesignIds(0, 16);
+        List<DesignListingDTO> trending = !trendingIds.isEmpty()
+            ? loadDesignListingsInOrder(trendingIds)
+            : em.createQuery(
+                DesignListingDTO.SELECT +
+                "WHERE d.uploadedAt >= :oneMonthAgo " +
+                "AND (d.isBanned IS NULL OR d.isBanned = false) " +
+                "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
+                "ORDER BY d.favouriteCount + d.likeCount DESC, d.uploadedAt DESC",
+                DesignListingDTO.class)
+                .setParameter("oneMonthAgo", LocalDateTime.now().minusMonths(1))
+                .setMaxResults(16)
+                .getResultList();
+        for (DesignListingDTO d : trending) {
+            if (recommended.size() >= 8) break;
+            if (seen.add(d.getDesignId())) recommended.add(d);
         }
     }
-}
-    // 4. Initialize lazy collections to prevent LazyInitializationException
-    recommended.forEach(d -> {
-        if (d.getArtist() != null) d.getArtist().getUserId();
-        if (d.getLikes() != null) d.getLikes().size();
-        if (d.getFavourites() != null) d.getFavourites().size();
-    });
 
     return recommended;
 }
@@ -1085,6 +1350,7 @@ public DesignComment addDesignComment(Long clientId, Long designId, String text)
     comment.setText(text);
 
     em.persist(comment);
+    designCounterEJB.adjustCommentCount(designId, 1);
     return comment;
 }
 
@@ -1130,6 +1396,7 @@ public void addLike(Long designId, Long clientId) {
         System.out.println("DEBUG: Persisting like...");
         em.persist(like);
         em.flush();
+        designCounterEJB.adjustLikeCount(designId, 1);
         System.out.println("DEBUG: Like persisted successfully");
         
     } catch (Exception e) {
@@ -1153,6 +1420,7 @@ public void removeLike(Long designId, Long clientId) {
         if (like != null) {
             em.remove(like);
             em.flush();
+            designCounterEJB.adjustLikeCount(designId, -1, like.getLikedAt());
         }
     } catch (NoResultException e) {
         // Like not found, nothing to remove
@@ -1193,6 +1461,7 @@ public void addFavourite(Long designId, Long clientId) {
         
         em.persist(favourite);
         em.flush();
+        designCounterEJB.adjustFavouriteCount(designId, 1);
         
     } catch (Exception e) {
         throw new RuntimeException("Failed to add favourite: " + e.getMessage(), e);
@@ -1214,6 +1483,7 @@ public void removeFavourite(Long designId, Long clientId) {
         if (favourite != null) {
             em.remove(favourite);
             em.flush();
+            designCounterEJB.adjustFavouriteCount(designId, -1, favourite.getFavoritedAt());
         }
     } catch (NoResultException e) {
         // Favourite not found, nothing to remove
@@ -1244,6 +1514,7 @@ public void removeFavourite(Long designId, Long clientId) {
             // Persist the comment
             em.persist(comment);
             em.flush();
+            designCounterEJB.adjustCommentCount(designId, 1);
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to add comment: " + e.getMessage(), e);
@@ -1290,17 +1561,7 @@ public List<Review> getReviewsByArtist(Integer artistId) {
 
 @Override
 public Long getArtistTotalReviews(Long artistId) {
-
-    return em.createQuery(
-        """
-        SELECT COUNT(r)
-        FROM Review r
-        WHERE r.artist.userId = :artistId
-        """,
-        Long.class
-    )
-    .setParameter("artistId", artistId)
-    .getSingleResult();
+    return ratingStatsEJB.getReviewCount(artistId);
 }
 
 @Override
@@ -1473,16 +1734,19 @@ public void addComment(Long designId, Long clientId, String commentText, int rat
 
     em.persist(comment);
     design.getComments().add(comment);
-    em.merge(design);
     em.flush();
+    designCounterEJB.adjustCommentCount(designId, 1);
 }
 
 @Override
 public Long getDesignLikeCount(Long designId) {
-    return em.createQuery(
-            "SELECT COUNT(dl) FROM DesignLike dl WHERE dl.design.designId = :designId", Long.class)
+    Integer count = em.createQuery(
+            "SELECT d.likeCount FROM TattooDesign d WHERE d.designId = :designId", Integer.class)
             .setParameter("designId", designId)
-            .getSingleResult();
+            .getResultStream()
+            .findFirst()
+            .orElse(null);
+    return count == null ? 0L : count.longValue();
 }
 
  @Override
@@ -1493,7 +1757,7 @@ public Long getDesignLikeCount(Long designId) {
                 "WHERE (d.isBanned IS NULL OR d.isBanned = false) " +
                 "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false) " +
                 "AND d.designId NOT IN (SELECT l.design.designId FROM DesignLike l WHERE l.client.userId = :clientId) " +
-                "ORDER BY SIZE(d.likes) DESC", TattooDesign.class)
+                "ORDER BY d.likeCount DESC", TattooDesign.class)
                 .setParameter("clientId", clientId)
                 .setMaxResults(max)
                 .getResultList();
@@ -1525,14 +1789,16 @@ public Long getDesignLikeCount(Long designId) {
             return 0L;
         }
         
-        TypedQuery<Long> query = em.createQuery(
-            "SELECT COUNT(c) FROM DesignComment c " +
-            "WHERE c.design.designId = :designId", 
-            Long.class
-        );
-        
-        query.setParameter("designId", designId);
-        return query.getSingleResult();
+        Integer count = em.createQuery(
+            "SELECT d.commentCount FROM TattooDesign d " +
+            "WHERE d.designId = :designId", 
+            Integer.class
+        )
+        .setParameter("designId", designId)
+        .getResultStream()
+        .findFirst()
+        .orElse(null);
+        return count == null ? 0L : count.longValue();
     }
     
     /**
@@ -1546,7 +1812,9 @@ public Long getDesignLikeCount(Long designId) {
         
         DesignComment comment = em.find(DesignComment.class, commentId);
         if (comment != null) {
+            Long designId = comment.getDesign() != null ? comment.getDesign().getDesignId() : null;
             em.remove(comment);
+            designCounterEJB.adjustCommentCount(designId, -1, comment.getCreatedAt());
         }
     }
     
@@ -1659,6 +1927,8 @@ public void addReview(Long artistId, Long clientId, Double rating, String commen
     review.setComments(comment);
 
     em.persist(review);
+    ratingStatsEJB.reviewAdded(artistId, rating);
+    artistBrowseCache.invalidate();
 }
 
 @Override
@@ -1730,53 +2000,20 @@ public MedicalForm getMedicalForm(Long appointmentId) {
 } 
 @Override
 public List<ArtistCardDTO> getAllArtistsForBrowse() {
+    List<ArtistCardDTO> cached = artistBrowseCache.get();
+    if (cached != null) {
+        return cached;
+    }
 
-    List<AppUser> artists = em.createQuery(
-        """
-        SELECT a
-        FROM AppUser a
-        WHERE a.role.roleName = :roleName
-          AND a.isActive = true
-        ORDER BY a.fullName
-        """,
-        AppUser.class
+    long generation = artistBrowseCache.currentGeneration();
+    List<ArtistCardDTO> result = em.createQuery(
+        ARTIST_CARD_SELECT + ARTIST_CARD_ORDER,
+        ArtistCardDTO.class
     )
     .setParameter("roleName", "ARTIST")
     .getResultList();
 
-    List<ArtistCardDTO> result = new ArrayList<>();
-
-    for (AppUser a : artists) {
-        ArtistCardDTO dto = new ArtistCardDTO();
-        dto.setArtistId(a.getUserId());
-        dto.setFullName(a.getFullName());
-
-        // experience
-        if (a.getExperience() != null) {
-            dto.setYearsExperience(a.getExperience().getYearsExperience());
-        }
-
-        // ratings (USE Review entity)
-        Double avgRating = em.createQuery(
-            "SELECT AVG(r.rating) FROM Review r WHERE r.artist.userId = :artistId",
-            Double.class
-        )
-        .setParameter("artistId", a.getUserId())
-        .getSingleResult();
-
-        Long reviewCount = em.createQuery(
-            "SELECT COUNT(r) FROM Review r WHERE r.artist.userId = :artistId",
-            Long.class
-        )
-        .setParameter("artistId", a.getUserId())
-        .getSingleResult();
-
-        dto.setAverageRating(avgRating != null ? avgRating : 0.0);
-        dto.setTotalReviews(reviewCount);
-
-        result.add(dto);
-    }
-
+    artistBrowseCache.put(result, generation);
     return result;
 }
 
@@ -1866,10 +2103,16 @@ public void submitArtistReview(Long artistId, Long clientId, Double rating, Stri
                     .getSingleResult();
 
             // 2. If found, update the existing review
+            Double previousRating = existingReview.getRating();
             existingReview.setRating(rating);
             existingReview.setComments(comments.trim());
             existingReview.setReviewDate(LocalDateTime.now());
             em.merge(existingReview);
+            if (previousRating != null) {
+                ratingStatsEJB.reviewChanged(artistId, previousRating, rating);
+            } else {
+                ratingStatsEJB.reviewAdded(artistId, rating);
+            }
 
         } catch (NoResultException e) {
             // 3. If no existing review, create a new one
@@ -1887,12 +2130,14 @@ public void submitArtistReview(Long artistId, Long clientId, Double rating, Stri
             newReview.setReviewDate(LocalDateTime.now());
 
             em.persist(newReview);
+            ratingStatsEJB.reviewAdded(artistId, rating);
             
         } catch (Exception e) {
             // Catch all other exceptions during DB operation and ensure transaction rollback
             // Wrap in EJBException to be handled by the Managed Bean
             throw new EJBException("Failed to submit or update review.", e);
         }
+        artistBrowseCache.invalidate();
     }
     // In ClientEJB.java
 @Override
@@ -1,6 +1,10 @@
 package ejb;
 
+import artistDTO.DesignListingDTO;
 import clientDTO.ArtistCardDTO;
+import clientDTO.FavouriteDesignDTO;
+import dto.DesignSearchResultDTO;
+import dto.DesignSeekKeyDTO;
 import entities.*;
 import jakarta.ejb.Local;
 import java.math.BigDecimal;
@@ -17,6 +21,10 @@ public interface ClientEJBLocal {
     // Designs (browse/search)
     List<TattooDesign> listDesigns(int offset, int limit);
     List<TattooDesign> searchDesigns(String q, String style, BigDecimal minPrice, BigDecimal maxPrice, int offset, int limit);
+    DesignSearchResultDTO searchDesignIds(String q, String style, BigDecimal minPrice, BigDecimal maxPrice, int offset, int limit);
+    List<TattooDesign> browseDesigns(String q, String style, BigDecimal minPrice, BigDecimal maxPrice,
+                                     String sortBy, DesignSeekKeyDTO after, int skip, int limit);
+    long countDesigns(String q, String style, BigDecimal minPrice, BigDecimal maxPrice);
 
     // Likes & favourites
     DesignLike likeDesign(Long clientId, Long designId);
@@ -26,6 +34,7 @@ public interface ClientEJBLocal {
 //    void unfavouriteDesign(Long clientId, Long designId);
     
     List<DesignFavourite> listFavourites(Long clientId, int offset, int limit);
+    List<FavouriteDesignDTO> listFavouriteDesigns(Long clientId, int offset, int limit);
 
     // Booking / appointments
     List<TimeSlot> listAvailableTimeSlots(Long artistId, LocalDate date);
@@ -94,7 +103,7 @@ TattooDesign getDesignById(Long designId);
 List<TattooDesign> getRelatedDesigns(String style, Long artistId);
 
     // --- Recommended Designs ---
-    List<TattooDesign> getRecommendedDesigns(Long clientId);
+    List<DesignListingDTO> getRecommendedDesigns(Long clientId);
 
     // --- Artist Info ---
     AppUser getArtistInfo(Long artistId);
@@ -1,6 +1,7 @@
 package ejb;
 
 import entities.*;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -15,6 +16,15 @@ public class ClientPaymentEJB {
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private DashboardStatsEJB dashboardStats;
+
+    @EJB
+    private PaymentOutboxEJB paymentOutbox;
+
+    @EJB
+    private RevenueRollupEJB revenueRollup;
+
     public Payment makeMockPayment(Appointment appointment,
                                    AppUser client,
                                    BigDecimal amount) {
@@ -39,6 +49,10 @@ public class ClientPaymentEJB {
 
         em.persist(payment);
         em.merge(appointment);
+        em.flush();
+        paymentOutbox.enqueue(payment.getPaymentId(), PaymentOutbox.PAYMENT_COMPLETED);
+        dashboardStats.invalidate();
+        revenueRollup.touch(payment.getPaymentDate(), appointment.getAppointmentDateTime());
 
         return payment;
     }
@@ -0,0 +1,162 @@
+package ejb;
+
+import dto.DashboardStatsDTO;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admin dashboard figures, computed with one grouped query per table and
+ * shared by every admin page and the statistics endpoints.
+ *
+ * The snapshot is rebuilt when it is older than the TTL
+ * ({@code tattoo.dashboard.ttl-seconds}, default 5) or after a writer calls
+ * {@link #invalidate()}; invalidation is applied once the writer's
+ * transaction completes. Only one caller rebuilds at a time, the others wait
+ * for its result instead of running the same queries.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class DashboardStatsEJB {
+
+    /** Statuses always present in the per-status maps, zero when unused. */
+    public static final List<String> APPOINTMENT_STATUSES =
+            List.of("PENDING", "CONFIRMED", "COMPLETED", "CANCELLED", "PAID");
+
+    /** Length of the "recent" window, matching the statistics endpoint default. */
+    private static final int RECENT_MONTHS = 1;
+
+    private static final long TTL_MILLIS =
+            Long.getLong("tattoo.dashboard.ttl-seconds", 5L) * 1000;
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private final Object refreshLock = new Object();
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile DashboardStatsDTO current;
+    private volatile long currentGeneration = -1;
+    private volatile long loadedAt;
+
+    /** Current snapshot, rebuilt first if it has expired or been invalidated. */
+    public DashboardStatsDTO snapshot() {
+        DashboardStatsDTO s = current;
+        if (isFresh(s)) return s;
+
+        synchronized (refreshLock) {
+            s = current;
+            if (isFresh(s)) return s;
+
+            long gen = generation.get();
+            s = load();
+            current = s;
+            currentGeneration = gen;
+            loadedAt = System.currentTimeMillis();
+            return s;
+        }
+    }
+
+    private boolean isFresh(DashboardStatsDTO s) {
+        return s != null
+                && currentGeneration == generation.get()
+                && System.currentTimeMillis() - loadedAt < TTL_MILLIS;
+    }
+
+    /** Marks the snapshot stale once the current transaction (if any) completes. */
+    public void invalidate() {
+        if (txRegistry != null && txRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            txRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {}
+
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            generation.incrementAndGet();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Grouped queries
+    // -------------------------------------------------------
+
+    private DashboardStatsDTO load() {
+        // Users: one row per role
+        Map<String, Long> usersByRole = new LinkedHashMap<>();
+        long totalUsers = 0;
+        List<Object[]> roleRows = em.createQuery(
+                "SELECT r.roleName, COUNT(u) FROM AppUser u JOIN u.role r GROUP BY r.roleName",
+                Object[].class).getResultList();
+        for (Object[] row : roleRows) {
+            long n = ((Number) row[1]).longValue();
+            usersByRole.put((String) row[0], n);
+            totalUsers += n;
+        }
+
+        // Appointments: one row per status, with today's and the recent window's counts alongside
+        LocalDate today = LocalDate.now();
+        LocalDate recentFrom = today.minusMonths(RECENT_MONTHS);
+        Map<String, Long> byStatus = zeroed();
+        Map<String, Long> recentByStatus = zeroed();
+        long totalAppointments = 0;
+        long todaysAppointments = 0;
+        List<Object[]> statusRows = em.createQuery(
+                "SELECT a.status, COUNT(a), "
+                + "SUM(CASE WHEN a.appointmentDateTime >= :todayStart AND a.appointmentDateTime < :tomorrow THEN 1 ELSE 0 END), "
+                + "SUM(CASE WHEN a.appointmentDateTime >= :recentStart AND a.appointmentDateTime <= :recentEnd THEN 1 ELSE 0 END) "
+                + "FROM Appointment a GROUP BY a.status", Object[].class)
+                .setParameter("todayStart", today.atStartOfDay())
+                .setParameter("tomorrow", today.plusDays(1).atStartOfDay())
+                .setParameter("recentStart", recentFrom.atStartOfDay())
+                .setParameter("recentEnd", today.atTime(23, 59, 59))
+                .getResultList();
+        for (Object[] row : statusRows) {
+            if (row[0] == null) continue;
+            String status = (String) row[0];
+            long n = ((Number) row[1]).longValue();
+            byStatus.put(status, n);
+            recentByStatus.put(status, row[3] != null ? ((Number) row[3]).longValue() : 0L);
+            totalAppointments += n;
+            todaysAppointments += row[2] != null ? ((Number) row[2]).longValue() : 0L;
+        }
+
+        // Payments
+        BigDecimal earnings = em.createQuery(
+                "SELECT SUM(p.amount) FROM Payment p WHERE p.status = 'COMPLETED'", BigDecimal.class)
+                .getSingleResult();
+
+        return new DashboardStatsDTO(totalUsers, usersByRole, totalAppointments, todaysAppointments,
+                byStatus, recentFrom, today, recentByStatus,
+                earnings != null ? earnings : BigDecimal.ZERO, LocalDateTime.now());
+    }
+
+    private static Map<String, Long> zeroed() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (String status : APPOINTMENT_STATUSES) m.put(status, 0L);
+        return m;
+    }
+}
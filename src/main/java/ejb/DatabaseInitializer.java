@@ -1,5 +1,7 @@
 package ejb;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
 import jakarta.persistence.PersistenceContext;
@@ -12,11 +14,45 @@ public class DatabaseInitializer {
     @PersistenceContext(unitName = "TattooPU")
     private EntityManager em;
 
+    @EJB
+    private SchemaMigrationEJB schemaMigrationEJB;
+
+    @EJB
+    private RatingStatsEJB ratingStatsEJB;
+
+    @EJB
+    private EarningLedgerEJB earningLedgerEJB;
+
+    @EJB
+    private RevenueRollupEJB revenueRollupEJB;
+
+    @PostConstruct
     public void init() {
-        // This method is called upon initialization.
-        // Simply injecting the EntityManager and letting the EJB start
-        // is enough to force the JPA provider to execute the 
-        // "create" database action defined in persistence.xml.
-        System.out.println("TattooPU Persistence Unit Initialized. Schema generation expected to run.");
+        // The persistence unit does not generate DDL; bring the schema up to
+        // date (new columns, tables, indexes) before anything queries it.
+        int applied = schemaMigrationEJB.migrate();
+        System.out.println("TattooPU Persistence Unit Initialized. Schema at V"
+                + schemaMigrationEJB.currentVersion() + " (" + applied + " migration(s) applied).");
+
+        // First deployment with artist_rating_stats: build it from existing reviews/feedback.
+        try {
+            ratingStatsEJB.rebuildIfEmpty();
+        } catch (Exception e) {
+            System.err.println("Artist rating stats backfill failed: " + e.getMessage());
+        }
+
+        // First deployment with artist_earning_balance: build it from earning logs and payouts.
+        try {
+            earningLedgerEJB.rebuildIfEmpty();
+        } catch (Exception e) {
+            System.err.println("Artist earning balance backfill failed: " + e.getMessage());
+        }
+
+        // First deployment with the report rollups: backfill them in the background.
+        try {
+            revenueRollupEJB.backfillIfEmpty();
+        } catch (Exception e) {
+            System.err.println("Revenue rollup backfill failed: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,100 @@
+package ejb;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the denormalized like / favourite / comment counters on
+ * TattooDesign. Writers call the increment helpers inside their own
+ * transaction; a nightly job recounts from the child tables to repair drift.
+ *
+ * The columns are created by schema migration V1 and filled from the child
+ * tables once by V11, which runs the same recount as the nightly job.
+ */
+@Stateless
+public class DesignCounterEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(DesignCounterEJB.class.getName());
+
+    /** Recounts drifted designs from the child tables; shared with the V11 backfill. */
+    static final String RECOUNT_SQL = """
+            UPDATE tattoo_design d SET
+                LIKE_COUNT = (SELECT COUNT(*) FROM design_like l WHERE l.DESIGN_ID = d.DESIGNID),
+                FAVOURITE_COUNT = (SELECT COUNT(*) FROM design_favourite f WHERE f.DESIGN_ID = d.DESIGNID),
+                COMMENT_COUNT = (SELECT COUNT(*) FROM design_comments c WHERE c.design_id = d.DESIGNID)
+            WHERE COALESCE(d.LIKE_COUNT, -1) <> (SELECT COUNT(*) FROM design_like l WHERE l.DESIGN_ID = d.DESIGNID)
+               OR COALESCE(d.FAVOURITE_COUNT, -1) <> (SELECT COUNT(*) FROM design_favourite f WHERE f.DESIGN_ID = d.DESIGNID)
+               OR COALESCE(d.COMMENT_COUNT, -1) <> (SELECT COUNT(*) FROM design_comments c WHERE c.design_id = d.DESIGNID)
+            """;
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @EJB
+    private TrendingEJB trendingEJB;
+
+    // -------------------------------------------------------
+    // Atomic counter updates (joins the caller's transaction)
+    // -------------------------------------------------------
+
+    public void adjustLikeCount(Long designId, int delta) {
+        adjustLikeCount(designId, delta, null);
+    }
+
+    /** @param happenedAt when the like was made (pass the removed row's time on unlike) */
+    public void adjustLikeCount(Long designId, int delta, LocalDateTime happenedAt) {
+        adjust(designId, "likeCount", delta);
+        trendingEJB.recordLike(designId, delta, happenedAt);
+    }
+
+    public void adjustFavouriteCount(Long designId, int delta) {
+        adjustFavouriteCount(designId, delta, null);
+    }
+
+    public void adjustFavouriteCount(Long designId, int delta, LocalDateTime happenedAt) {
+        adjust(designId, "favouriteCount", delta);
+        trendingEJB.recordFavourite(designId, delta, happenedAt);
+    }
+
+    public void adjustCommentCount(Long designId, int delta) {
+        adjustCommentCount(designId, delta, null);
+    }
+
+    public void adjustCommentCount(Long designId, int delta, LocalDateTime happenedAt) {
+        adjust(designId, "commentCount", delta);
+        trendingEJB.recordComment(designId, delta, happenedAt);
+    }
+
+    private void adjust(Long designId, String counter, int delta) {
+        if (designId == null || delta == 0) return;
+        // Single UPDATE ... SET x = x + :delta so concurrent writers never lose increments.
+        em.createQuery("UPDATE TattooDesign d SET d." + counter + " = d." + counter + " + :delta "
+                + "WHERE d.designId = :id AND d." + counter + " + :delta >= 0")
+                .setParameter("delta", delta)
+                .setParameter("id", designId)
+                .executeUpdate();
+    }
+
+    // -------------------------------------------------------
+    // Reconciliation
+    // -------------------------------------------------------
+
+    /**
+     * Recounts every design's counters from design_like, design_favourite and
+     * design_comments, touching only rows that drifted.
+     *
+     * @return number of designs whose counters were repaired
+     */
+    @Schedule(hour = "3", minute = "30", persistent = false)
+    public int reconcileCounters() {
+        int repaired = em.createNativeQuery(RECOUNT_SQL).executeUpdate();
+        LOGGER.info("Design counter reconciliation repaired " + repaired + " design(s).");
+        return repaired;
+    }
+}
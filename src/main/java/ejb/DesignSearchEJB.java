@@ -0,0 +1,402 @@
+package ejb;
+
+import dto.DesignSearchResultDTO;
+import entities.TattooDesign;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory inverted index over visible designs (title, description, style,
+ * artist name, with price and upload date kept for filtering and ordering).
+ * Replaces the LIKE '%q%' table scans of the client design search.
+ *
+ * Query terms are matched exactly, by prefix, and fuzzily (edit distance 1,
+ * or 2 for long words) when nothing else matches; every term must match.
+ * Hits are ranked by field-weighted TF-IDF, newest first on ties, and only
+ * IDs are returned so callers hydrate one page with a single fetch.
+ *
+ * Design writes report here and are applied after their transaction commits;
+ * an hourly rebuild repairs anything a writer did not report. Changes that
+ * arrive while a rebuild is loading are recorded and replayed onto the new
+ * index before it replaces the old one, so none are lost by the swap.
+ */
+@Startup
+@Singleton
+@DependsOn("DatabaseInitializer")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class DesignSearchEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(DesignSearchEJB.class.getName());
+
+    // Field weights for relevance
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float STYLE_WEIGHT = 2.0f;
+    private static final float ARTIST_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // Score factor by match kind
+    private static final double EXACT_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.6;
+    private static final double FUZZY_MATCH = 0.4;
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private static final class Doc {
+        final Long designId;
+        final String style;
+        final BigDecimal price;
+        final LocalDateTime uploadedAt;
+        final Map<String, Float> terms;
+
+        Doc(Long designId, String title, String description, String style,
+            BigDecimal price, LocalDateTime uploadedAt, String artistName) {
+            this.designId = designId;
+            this.style = style == null || style.isBlank() ? null : style.trim();
+            this.price = price;
+            this.uploadedAt = uploadedAt;
+            this.terms = new HashMap<>();
+            addField(title, TITLE_WEIGHT);
+            addField(style, STYLE_WEIGHT);
+            addField(artistName, ARTIST_WEIGHT);
+            addField(description, DESCRIPTION_WEIGHT);
+        }
+
+        private void addField(String text, float weight) {
+            for (String t : tokenize(text)) terms.merge(t, weight, Float::sum);
+        }
+    }
+
+    private static final class Index {
+        // term -> (designId -> weighted term frequency); sorted for prefix scans
+        final NavigableMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+        final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+
+        void put(Doc doc) {
+            remove(doc.designId);
+            docs.put(doc.designId, doc);
+            for (Map.Entry<String, Float> e : doc.terms.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new ConcurrentHashMap<>()).put(doc.designId, e.getValue());
+            }
+        }
+
+        void remove(Long designId) {
+            Doc old = docs.remove(designId);
+            if (old == null) return;
+            for (String term : old.terms.keySet()) {
+                Map<Long, Float> p = postings.get(term);
+                if (p != null) {
+                    p.remove(designId);
+                    if (p.isEmpty()) postings.remove(term, p);
+                }
+            }
+        }
+    }
+
+    private volatile Index index = new Index();
+
+    // Serializes writers; searches never lock
+    private final Object writeLock = new Object();
+
+    // One rebuild at a time, so there is a single replay list
+    private final Object rebuildLock = new Object();
+
+    // Changes applied since the running rebuild started loading; null when idle. Guarded by writeLock.
+    private List<Consumer<Index>> replay;
+
+    // -------------------------------------------------------
+    // Loading
+    // -------------------------------------------------------
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Design search index build failed", e);
+        }
+    }
+
+    @Schedule(hour = "*", minute = "40", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            // Start recording before the load, so every commit the query may miss is replayed
+            synchronized (writeLock) {
+                replay = new ArrayList<>();
+            }
+            try {
+                swapIn(load());
+            } finally {
+                synchronized (writeLock) {
+                    replay = null;
+                }
+            }
+        }
+    }
+
+    private Index load() {
+        List<Object[]> rows = em.createQuery(
+                "SELECT d.designId, d.title, d.description, d.style, d.price, d.uploadedAt, a.fullName " +
+                "FROM TattooDesign d JOIN d.artist a " +
+                "WHERE (d.isBanned IS NULL OR d.isBanned = false) " +
+                "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false)",
+                Object[].class)
+            .getResultList();
+
+        Index fresh = new Index();
+        for (Object[] r : rows) {
+            fresh.put(new Doc((Long) r[0], (String) r[1], (String) r[2], (String) r[3],
+                              (BigDecimal) r[4], (LocalDateTime) r[5], (String) r[6]));
+        }
+        return fresh;
+    }
+
+    // Changes are idempotent (put replaces, remove drops), so replaying one the load already saw is harmless
+    private void swapIn(Index fresh) {
+        int replayed;
+        synchronized (writeLock) {
+            replayed = replay.size();
+            for (Consumer<Index> change : replay) change.accept(fresh);
+            index = fresh;
+        }
+        LOGGER.info("Design search index built: " + fresh.docs.size() + " design(s), "
+                + fresh.postings.size() + " term(s), " + replayed + " concurrent change(s) replayed.");
+    }
+
+    // -------------------------------------------------------
+    // Write hooks (applied after the caller's transaction commits)
+    // -------------------------------------------------------
+
+    /** Indexes the design if it is visible, otherwise drops it. */
+    public void designChanged(TattooDesign d) {
+        if (d == null) return;
+        boolean visible = !Boolean.TRUE.equals(d.getIsBanned()) && !Boolean.TRUE.equals(d.getIsRemovedByArtist());
+        String title = d.getTitle();
+        String description = d.getDescription();
+        String style = d.getStyle();
+        BigDecimal price = d.getPrice();
+        LocalDateTime uploadedAt = d.getUploadedAt();
+        String artistName = d.getArtist() != null ? d.getArtist().getFullName() : null;
+
+        // New designs only get their generated ID at flush, so read it on commit
+        afterCommit(() -> {
+            Long id = d.getDesignId();
+            if (id == null) return;
+            if (visible) {
+                Doc doc = new Doc(id, title, description, style, price, uploadedAt, artistName);
+                apply(idx -> idx.put(doc));
+            } else {
+                apply(idx -> idx.remove(id));
+            }
+        });
+    }
+
+    public void designRemoved(Long designId) {
+        if (designId == null) return;
+        afterCommit(() -> apply(idx -> idx.remove(designId)));
+    }
+
+    private void apply(Consumer<Index> change) {
+        synchronized (writeLock) {
+            change.accept(index);
+            if (replay != null) replay.add(change);
+        }
+    }
+
+    // A transaction already marked for rollback changes nothing
+    private void afterCommit(Runnable action) {
+        int status = txRegistry.getTransactionStatus();
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            action.run();
+            return;
+        }
+        if (status != Status.STATUS_ACTIVE) return;
+
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    try {
+                        action.run();
+                    } catch (Exception e) {
+                        LOGGER.log(Level.WARNING, "Design search index update failed", e);
+                    }
+                }
+            }
+        });
+    }
+
+    // -------------------------------------------------------
+    // Search
+    // -------------------------------------------------------
+
+    /**
+     * @param q     free text; blank matches every visible design (newest first)
+     * @param style case-insensitive substring filter on the style, or null
+     */
+    public DesignSearchResultDTO search(String q, String style, BigDecimal minPrice, BigDecimal maxPrice,
+                                        int offset, int limit) {
+        Index idx = index;
+        Map<Long, Double> scores = score(idx, tokenize(q));
+        String styleFilter = style == null || style.isBlank() ? null : style.trim().toLowerCase(Locale.ROOT);
+
+        List<Doc> hits = new ArrayList<>();
+        Map<String, Long> facets = new HashMap<>();
+        for (Map.Entry<Long, Double> e : scores.entrySet()) {
+            Doc doc = idx.docs.get(e.getKey());
+            if (doc == null) continue;
+            if (minPrice != null && (doc.price == null || doc.price.compareTo(minPrice) < 0)) continue;
+            if (maxPrice != null && (doc.price == null || doc.price.compareTo(maxPrice) > 0)) continue;
+
+            // Facets ignore the style filter so the UI can offer the other styles
+            if (doc.style != null) facets.merge(doc.style, 1L, Long::sum);
+
+            if (styleFilter != null
+                    && (doc.style == null || !doc.style.toLowerCase(Locale.ROOT).contains(styleFilter))) continue;
+            hits.add(doc);
+        }
+
+        hits.sort(Comparator.comparingDouble((Doc d) -> scores.get(d.designId)).reversed()
+                .thenComparing(d -> d.uploadedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(d -> d.designId, Comparator.reverseOrder()));
+
+        int from = Math.max(0, offset);
+        int to = limit > 0 ? Math.min(hits.size(), from + limit) : hits.size();
+        List<Long> page = new ArrayList<>();
+        for (int i = from; i < to; i++) page.add(hits.get(i).designId);
+
+        Map<String, Long> sortedFacets = new LinkedHashMap<>();
+        facets.entrySet().stream()
+              .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+              .forEach(e -> sortedFacets.put(e.getKey(), e.getValue()));
+
+        return new DesignSearchResultDTO(page, hits.size(), sortedFacets);
+    }
+
+    public int size() {
+        return index.docs.size();
+    }
+
+    // Every query term must match; a design's score is the sum of its best match per term
+    private static Map<Long, Double> score(Index idx, List<String> queryTerms) {
+        Map<Long, Double> scores = new HashMap<>();
+        if (queryTerms.isEmpty()) {
+            for (Long id : idx.docs.keySet()) scores.put(id, 0.0);
+            return scores;
+        }
+
+        int n = Math.max(1, idx.docs.size());
+        boolean first = true;
+        for (String qt : new HashSet<>(queryTerms)) {
+            Map<Long, Double> termScores = new HashMap<>();
+            Map<String, Double> matches = expand(idx, qt);
+            for (Map.Entry<String, Double> m : matches.entrySet()) {
+                Map<Long, Float> posting = idx.postings.get(m.getKey());
+                if (posting == null || posting.isEmpty()) continue;
+                double idf = Math.log(1.0 + (double) n / posting.size());
+                for (Map.Entry<Long, Float> p : posting.entrySet()) {
+                    termScores.merge(p.getKey(), p.getValue() * idf * m.getValue(), Math::max);
+                }
+            }
+
+            if (first) {
+                scores.putAll(termScores);
+                first = false;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                    e.setValue(e.getValue() + termScores.get(e.getKey()));
+                }
+            }
+            if (scores.isEmpty()) break;
+        }
+        return scores;
+    }
+
+    // Index terms matching one query term, with their match factor
+    private static Map<String, Double> expand(Index idx, String qt) {
+        Map<String, Double> matches = new HashMap<>();
+        for (String term : idx.postings.subMap(qt, true, qt + Character.MAX_VALUE, false).keySet()) {
+            matches.put(term, term.equals(qt) ? EXACT_MATCH : PREFIX_MATCH);
+        }
+        if (!matches.isEmpty() || qt.length() < 4) return matches;
+
+        // Fuzzy fallback: same first letter, small edit distance
+        int maxEdits = qt.length() >= 7 ? 2 : 1;
+        String firstChar = qt.substring(0, 1);
+        for (String term : idx.postings.subMap(firstChar, true, firstChar + Character.MAX_VALUE, false).keySet()) {
+            if (Math.abs(term.length() - qt.length()) <= maxEdits && editDistance(qt, term, maxEdits) <= maxEdits) {
+                matches.put(term, FUZZY_MATCH);
+            }
+        }
+        return matches;
+    }
+
+    // Levenshtein distance, giving up once every cell exceeds the bound
+    private static int editDistance(String a, String b, int bound) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > bound) return bound + 1;
+            int[] tmp = prev; prev = cur; cur = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return Collections.emptyList();
+        List<String> tokens = new ArrayList<>();
+        for (String t : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty()) tokens.add(t);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,138 @@
+package ejb;
+
+import entities.ArtistEarningBalance;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJBException;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Keeps artist_earning_balance in step with EarningLog inserts and payout
+ * settlement. Update methods join the caller's transaction and lock the
+ * artist's row, so a payout and a new earning for the same artist serialize.
+ */
+@Stateless
+public class EarningLedgerEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(EarningLedgerEJB.class.getName());
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private SessionContext context;
+
+    // -------------------------------------------------------
+    // Writes
+    // -------------------------------------------------------
+    public void earningAdded(Long artistId, BigDecimal artistShare) {
+        lockOrCreate(artistId).addEarning(artistShare);
+    }
+
+    public void payoutSettled(Long artistId, BigDecimal amount, long settledLogs, LocalDateTime paidAt) {
+        lockOrCreate(artistId).addPayout(amount, settledLogs, paidAt);
+    }
+
+    private ArtistEarningBalance lockOrCreate(Long artistId) {
+        if (artistId == null) throw new IllegalArgumentException("Artist ID must not be null.");
+        ArtistEarningBalance b = em.find(ArtistEarningBalance.class, artistId, LockModeType.PESSIMISTIC_WRITE);
+        if (b == null) {
+            // As in RatingStatsEJB: insert the missing row in its own transaction,
+            // tolerate a concurrent insert, then take the row lock
+            try {
+                context.getBusinessObject(EarningLedgerEJB.class).createRow(artistId);
+            } catch (EJBException e) {
+                // Inserted concurrently; the row exists now
+            }
+            b = em.find(ArtistEarningBalance.class, artistId, LockModeType.PESSIMISTIC_WRITE);
+            if (b == null) {
+                throw new IllegalStateException("Earning balance for artist " + artistId + " could not be created.");
+            }
+        }
+        return b;
+    }
+
+    /** Inserts an empty balance row for the artist unless one exists. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void createRow(Long artistId) {
+        if (em.find(ArtistEarningBalance.class, artistId) == null) {
+            em.persist(new ArtistEarningBalance(artistId));
+            em.flush();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+    public ArtistEarningBalance getBalance(Long artistId) {
+        return artistId == null ? null : em.find(ArtistEarningBalance.class, artistId);
+    }
+
+    // -------------------------------------------------------
+    // Backfill / repair
+    // -------------------------------------------------------
+
+    /**
+     * Rebuilds every artist's row from EarningLog and ArtistPayout. Used at
+     * startup when the table is empty and available for manual repair.
+     *
+     * @return number of artist rows written
+     */
+    public int rebuildAll() {
+        Map<Long, ArtistEarningBalance> byArtist = new HashMap<>();
+
+        List<Object[]> pending = em.createQuery(
+                "SELECT e.artist.userId, SUM(e.artistShare), COUNT(e) FROM EarningLog e "
+                + "WHERE e.payoutStatus = 'UNPAID' GROUP BY e.artist.userId",
+                Object[].class)
+                .getResultList();
+        for (Object[] row : pending) {
+            ArtistEarningBalance b = byArtist.computeIfAbsent((Long) row[0], ArtistEarningBalance::new);
+            b.setPendingAmount(row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO);
+            b.setPendingCount(((Number) row[2]).longValue());
+        }
+
+        List<Object[]> paid = em.createQuery(
+                "SELECT p.artist.userId, SUM(p.amount), COUNT(p), MAX(p.payoutDate) FROM ArtistPayout p "
+                + "WHERE p.payoutStatus = 'PAID' GROUP BY p.artist.userId",
+                Object[].class)
+                .getResultList();
+        for (Object[] row : paid) {
+            ArtistEarningBalance b = byArtist.computeIfAbsent((Long) row[0], ArtistEarningBalance::new);
+            b.setPaidAmount(row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO);
+            b.setPayoutCount(((Number) row[2]).longValue());
+            b.setLastPayoutAt((LocalDateTime) row[3]);
+        }
+
+        em.createQuery("DELETE FROM ArtistEarningBalance b").executeUpdate();
+        LocalDateTime now = LocalDateTime.now();
+        for (ArtistEarningBalance b : byArtist.values()) {
+            b.setUpdatedAt(now);
+            em.persist(b);
+        }
+        em.flush();
+        LOGGER.info("Artist earning balances rebuilt for " + byArtist.size() + " artist(s).");
+        return byArtist.size();
+    }
+
+    /** Rebuilds only when the ledger table has never been populated. */
+    public void rebuildIfEmpty() {
+        Long rows = em.createQuery("SELECT COUNT(b) FROM ArtistEarningBalance b", Long.class)
+                .getSingleResult();
+        if (rows == null || rows == 0) {
+            rebuildAll();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package ejb;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed image store for design pictures.
+ *
+ * Uploads are streamed to disk while their SHA-256 is computed; the file is
+ * then moved to originals/ab/&lt;sha&gt;.&lt;ext&gt;, so identical uploads share one
+ * file and a stored file never changes. Thumbnails (THUMB_WIDTHS) are
+ * rendered in the background into thumbs/&lt;width&gt;/ab/&lt;sha&gt;.&lt;ext&gt;; until
+ * one exists, the original is served in its place.
+ *
+ * Stored images are referenced as "/media/&lt;sha&gt;.&lt;ext&gt;" in
+ * TattooDesign.imagePath and served by media.MediaServlet. The storage root
+ * is the {@code tattoo.media.root} system property (default
+ * ~/tattoo-media).
+ */
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ImageAssetEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(ImageAssetEJB.class.getName());
+
+    /** URL prefix of stored images, relative to the context root. */
+    public static final String URL_PREFIX = "/media/";
+
+    /** Thumbnail widths rendered for every upload. */
+    public static final List<Integer> THUMB_WIDTHS = List.of(160, 480);
+
+    /** Largest accepted upload. */
+    public static final long MAX_UPLOAD_BYTES = 10L * 1024 * 1024;
+
+    /**
+     * Largest accepted image in pixels (width x height). A small compressed
+     * file can declare huge dimensions; decoding it would need 4 bytes per
+     * pixel, so the declared size is checked before anything is decoded.
+     */
+    public static final long MAX_PIXELS = 40_000_000L;
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}\\.(jpg|png|gif|webp)");
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(System.getProperty("tattoo.media.root",
+                System.getProperty("user.home") + "/tattoo-media"));
+        try {
+            Files.createDirectories(root.resolve("tmp"));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Image store " + root + " is not writable", e);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Upload
+    // -------------------------------------------------------
+
+    /**
+     * Stores an uploaded image and queues its thumbnails.
+     *
+     * @return the image path to save on the design ("/media/&lt;sha&gt;.&lt;ext&gt;")
+     * @throws IllegalArgumentException when the data is not a PNG, JPEG, GIF or
+     *         WebP image or exceeds MAX_UPLOAD_BYTES
+     */
+    public String store(InputStream in) throws IOException {
+        Path tmp = Files.createTempFile(root.resolve("tmp"), "upload-", ".part");
+        try {
+            MessageDigest sha = sha256();
+            byte[] head = new byte[12];
+            int headLen = 0;
+            long total = 0;
+            try (InputStream digesting = new DigestInputStream(in, sha);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                byte[] buf = new byte[64 * 1024];
+                int n;
+                while ((n = digesting.read(buf)) > 0) {
+                    if (headLen < head.length) {
+                        int take = Math.min(n, head.length - headLen);
+                        System.arraycopy(buf, 0, head, headLen, take);
+                        headLen += take;
+                    }
+                    total += n;
+                    if (total > MAX_UPLOAD_BYTES) {
+                        throw new IllegalArgumentException("Image is larger than " + (MAX_UPLOAD_BYTES >> 20) + " MB.");
+                    }
+                    out.write(buf, 0, n);
+                }
+            }
+            String ext = sniffExtension(head, headLen);
+            if (ext == null) {
+                throw new IllegalArgumentException("Only PNG, JPEG, GIF or WebP images can be uploaded.");
+            }
+            long pixels = declaredPixels(tmp);
+            if (pixels > MAX_PIXELS) {
+                throw new IllegalArgumentException("Image dimensions are too large.");
+            }
+
+            String key = HexFormat.of().formatHex(sha.digest()) + "." + ext;
+            Path target = originalPath(key);
+            Files.createDirectories(target.getParent());
+            if (!Files.exists(target)) {
+                moveIntoPlace(tmp, target);
+            }
+            scheduleThumbnails(key);
+            return URL_PREFIX + key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(tmp, target);
+            } catch (FileAlreadyExistsException same) {
+                // Same content stored concurrently
+            }
+        } catch (FileAlreadyExistsException same) {
+            // Same content stored concurrently
+        }
+    }
+
+    // Magic numbers; the client's Content-Type is not trusted
+    private static String sniffExtension(byte[] h, int len) {
+        if (len >= 8 && (h[0] & 0xff) == 0x89 && h[1] == 'P' && h[2] == 'N' && h[3] == 'G') return "png";
+        if (len >= 3 && (h[0] & 0xff) == 0xFF && (h[1] & 0xff) == 0xD8 && (h[2] & 0xff) == 0xFF) return "jpg";
+        if (len >= 6 && h[0] == 'G' && h[1] == 'I' && h[2] == 'F' && h[3] == '8') return "gif";
+        if (len >= 12 && h[0] == 'R' && h[1] == 'I' && h[2] == 'F' && h[3] == 'F'
+                && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') return "webp";
+        return null;
+    }
+
+    // -------------------------------------------------------
+    // Thumbnails
+    // -------------------------------------------------------
+
+    private void scheduleThumbnails(String key) {
+        if (key.endsWith(".webp")) return; // ImageIO cannot decode WebP; the original is served
+        executor.submit(() -> {
+            try {
+                renderThumbnails(key);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Thumbnail generation failed for " + key, e);
+            }
+        });
+    }
+
+    private void renderThumbnails(String key) throws IOException {
+        BufferedImage source = readWithinBudget(originalPath(key));
+        if (source == null) return;
+        String format = thumbnailFormat(key);
+
+        for (int width : THUMB_WIDTHS) {
+            Path target = thumbnailPath(key, width);
+            if (Files.exists(target)) continue;
+
+            BufferedImage scaled = source.getWidth() <= width ? source : scale(source, width, format);
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(root.resolve("tmp"), "thumb-", ".part");
+            try {
+                ImageIO.write(scaled, format, tmp.toFile());
+                moveIntoPlace(tmp, target);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * Width x height from the image header without decoding pixels, or -1
+     * when no ImageIO reader understands the file (e.g. WebP).
+     */
+    private static long declaredPixels(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return -1;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return -1;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } catch (IOException e) {
+                return -1; // Unreadable header: stored, served as the original, never thumbnailed
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Decodes the first frame, or returns null when it is unreadable or over MAX_PIXELS. */
+    private static BufferedImage readWithinBudget(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_PIXELS) {
+                    LOGGER.warning("Thumbnail skipped for " + file.getFileName() + ": " + pixels + " pixels");
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, String format) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        int type = "png".equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage out = new BufferedImage(width, height, type);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    // JPEG sources stay JPEG; PNG and GIF keep transparency as PNG
+    private static String thumbnailFormat(String key) {
+        return key.endsWith(".jpg") ? "jpg" : "png";
+    }
+
+    // -------------------------------------------------------
+    // Lookup
+    // -------------------------------------------------------
+
+    public static boolean isValidKey(String key) {
+        return key != null && KEY.matcher(key).matches();
+    }
+
+    /** Whether a thumbnail width is one that is rendered. */
+    public static boolean isThumbnailWidth(int width) {
+        return THUMB_WIDTHS.contains(width);
+    }
+
+    public Path originalPath(String key) {
+        return root.resolve("originals").resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    public Path thumbnailPath(String key, int width) {
+        String name = key.substring(0, key.lastIndexOf('.') + 1) + thumbnailFormat(key);
+        return root.resolve("thumbs").resolve(String.valueOf(width)).resolve(key.substring(0, 2)).resolve(name);
+    }
+
+    public static String contentType(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".png")) return "image/png";
+        if (name.endsWith(".gif")) return "image/gif";
+        if (name.endsWith(".webp")) return "image/webp";
+        return "image/jpeg";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ejb;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJBException;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import util.PasswordUtil;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Password hashing with an adaptive work factor.
+ *
+ * At startup the work factor is calibrated so one hash takes about the target
+ * latency on this machine (never below a safe floor). Hashing and
+ * verification run on a small dedicated pool with a bounded queue: a login
+ * burst queues behind at most POOL_SIZE busy threads and is rejected once the
+ * queue is full, instead of tying up every request thread on key stretching.
+ *
+ * Configured with JVM system properties:
+ * {@code tattoo.password.algorithm} (bcrypt | pbkdf2, default bcrypt),
+ * {@code tattoo.password.target-millis} (default 250) and
+ * {@code tattoo.password.pool-size} (default: number of cores).
+ */
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class PasswordHashingEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(PasswordHashingEJB.class.getName());
+
+    private static final int BCRYPT_MIN_COST = 10;
+    private static final int BCRYPT_MAX_COST = 16;
+    private static final int PBKDF2_MIN_ITERATIONS = 310_000;
+    private static final int PBKDF2_MAX_ITERATIONS = 5_000_000;
+
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long WAIT_SECONDS = 10;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private String algorithm;
+    private volatile int workFactor;
+    private volatile String dummyHash;
+    private ThreadPoolExecutor pool;
+
+    @PostConstruct
+    public void init() {
+        algorithm = System.getProperty("tattoo.password.algorithm", PasswordUtil.BCRYPT)
+                .trim().toLowerCase(Locale.ROOT);
+        if (!PasswordUtil.PBKDF2.equals(algorithm)) algorithm = PasswordUtil.BCRYPT;
+
+        int poolSize = Integer.getInteger("tattoo.password.pool-size",
+                Runtime.getRuntime().availableProcessors());
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        workFactor = calibrate(Integer.getInteger("tattoo.password.target-millis", 250));
+        dummyHash = PasswordUtil.hashPassword(UUID.randomUUID().toString(), algorithm, workFactor);
+        LOGGER.info("Password hashing: " + algorithm + " work factor " + workFactor
+                + ", pool " + poolSize + ".");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    // Time one hash at the minimum factor and scale up; bcrypt doubles per cost step
+    private int calibrate(int targetMillis) {
+        if (PasswordUtil.PBKDF2.equals(algorithm)) {
+            int sample = 50_000;
+            long nanos = timeHash(sample);
+            long scaled = nanos <= 0 ? PBKDF2_MIN_ITERATIONS : sample * (targetMillis * 1_000_000L) / nanos;
+            return (int) Math.max(PBKDF2_MIN_ITERATIONS, Math.min(PBKDF2_MAX_ITERATIONS, scaled));
+        }
+        int cost = BCRYPT_MIN_COST;
+        long millis = timeHash(cost) / 1_000_000L;
+        while (cost < BCRYPT_MAX_COST && millis * 2 <= targetMillis) {
+            cost++;
+            millis *= 2;
+        }
+        return cost;
+    }
+
+    private long timeHash(int factor) {
+        PasswordUtil.hashPassword("calibration", algorithm, factor); // warm-up
+        long start = System.nanoTime();
+        PasswordUtil.hashPassword("calibration", algorithm, factor);
+        return System.nanoTime() - start;
+    }
+
+    // -------------------------------------------------------
+    // API (runs on the hashing pool)
+    // -------------------------------------------------------
+
+    /** Hashes a new password with the current algorithm and work factor. */
+    public String hash(String password) {
+        String alg = algorithm;
+        int factor = workFactor;
+        return run(() -> PasswordUtil.hashPassword(password, alg, factor));
+    }
+
+    /** Checks a password against any supported stored format. */
+    public boolean verify(String password, String storedHash) {
+        return run(() -> PasswordUtil.verifyPassword(password, storedHash));
+    }
+
+    /** True when the stored hash should be replaced at the next successful login. */
+    public boolean needsRehash(String storedHash) {
+        return PasswordUtil.needsRehash(storedHash, algorithm, workFactor);
+    }
+
+    /**
+     * A hash of a random password at the current work factor. Verifying
+     * against it costs the same as a real check, for callers that must not
+     * reveal whether an account exists.
+     */
+    public String getDummyHash() {
+        return dummyHash;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getWorkFactor() {
+        return workFactor;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> f;
+        try {
+            f = pool.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new EJBException("Too many concurrent password checks, please retry.");
+        }
+        try {
+            return f.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            throw new EJBException("Password check timed out, please retry.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EJBException(e);
+        } catch (ExecutionException e) {
+            throw new EJBException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package ejb;
+
+import entities.Appointment;
+import entities.Payment;
+import entities.PaymentOutbox;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Payment post-processing through a transactional outbox.
+ *
+ * Payment writers call {@link #enqueue} inside their own transaction, so the
+ * outbox row commits (or rolls back) together with the payment and the
+ * client's request does no bookkeeping. After commit a drain is started on
+ * the managed executor; a 30-second timer picks up anything missed and
+ * retries failures with exponential backoff.
+ *
+ * Each event is handled in its own transaction with the outbox row locked,
+ * so two nodes never work on the same event, and every step is idempotent:
+ * the earning log is created only once per payment, the appointment moves
+ * CONFIRMED -&gt; PAID only once, and cache invalidation is harmless to repeat.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PaymentOutboxEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(PaymentOutboxEJB.class.getName());
+
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Resource
+    private SessionContext context;
+
+    @EJB
+    private AdminEJBLocal adminEJB;
+
+    @EJB
+    private DashboardStatsEJB dashboardStats;
+
+    @EJB
+    private RevenueRollupEJB revenueRollup;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean rerun = new AtomicBoolean();
+
+    // Business proxy, so transaction attributes apply to calls on this bean
+    private PaymentOutboxEJB self;
+
+    @PostConstruct
+    public void init() {
+        self = context.getBusinessObject(PaymentOutboxEJB.class);
+    }
+
+    // -------------------------------------------------------
+    // Enqueue (caller's transaction)
+    // -------------------------------------------------------
+
+    /** Records a payment event; it is processed after the caller commits. */
+    @TransactionAttribute(TransactionAttributeType.MANDATORY)
+    public void enqueue(Integer paymentId, String eventType) {
+        Long existing = em.createQuery(
+                "SELECT COUNT(o) FROM PaymentOutbox o WHERE o.paymentId = :pid AND o.eventType = :type", Long.class)
+                .setParameter("pid", paymentId)
+                .setParameter("type", eventType)
+                .getSingleResult();
+        if (existing > 0) return;
+
+        em.persist(new PaymentOutbox(paymentId, eventType));
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) wake();
+            }
+        });
+    }
+
+    // -------------------------------------------------------
+    // Drain
+    // -------------------------------------------------------
+
+    /** Starts a background drain unless one is already running on this node. */
+    public void wake() {
+        if (draining.get()) {
+            // The running drain makes another pass when it finishes
+            rerun.set(true);
+            return;
+        }
+        try {
+            executor.submit(() -> self.drain());
+        } catch (Exception e) {
+            // Executor saturated or shutting down; the timer will pick the event up
+            LOGGER.log(Level.WARNING, "Payment outbox drain not scheduled", e);
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    public void sweep() {
+        wake();
+    }
+
+    /**
+     * Processes due events in batches until none are left.
+     *
+     * @return number of events completed
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int drain() {
+        if (!draining.compareAndSet(false, true)) return 0;
+        int done = 0;
+        try {
+            do {
+                rerun.set(false);
+                done += drainDue();
+            } while (rerun.get());
+        } finally {
+            draining.set(false);
+        }
+        if (done > 0) LOGGER.info("Payment outbox processed " + done + " event(s).");
+        return done;
+    }
+
+    private int drainDue() {
+        int done = 0;
+        while (true) {
+            List<Long> due = em.createQuery(
+                    "SELECT o.eventId FROM PaymentOutbox o "
+                    + "WHERE o.status = 'PENDING' AND o.availableAt <= :now ORDER BY o.eventId", Long.class)
+                    .setParameter("now", LocalDateTime.now())
+                    .setMaxResults(BATCH_SIZE)
+                    .getResultList();
+            if (due.isEmpty()) return done;
+
+            for (Long id : due) {
+                try {
+                    if (self.process(id)) done++;
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    LOGGER.log(Level.WARNING, "Payment outbox event " + id + " failed", cause);
+                    try {
+                        self.recordFailure(id, String.valueOf(cause.getMessage()));
+                    } catch (Exception recordError) {
+                        // Database trouble; stop this pass rather than spin on the same rows
+                        LOGGER.log(Level.WARNING, "Payment outbox paused", recordError);
+                        return done;
+                    }
+                }
+            }
+            if (due.size() < BATCH_SIZE) return done;
+        }
+    }
+
+    /** Handles one event in its own transaction; false when another worker already did. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean process(Long eventId) {
+        PaymentOutbox event = em.find(PaymentOutbox.class, eventId, LockModeType.PESSIMISTIC_WRITE);
+        if (event == null || !PaymentOutbox.PENDING.equals(event.getStatus())) return false;
+
+        if (PaymentOutbox.PAYMENT_COMPLETED.equals(event.getEventType())) {
+            paymentCompleted(event.getPaymentId());
+        } else {
+            throw new IllegalStateException("Unknown outbox event type: " + event.getEventType());
+        }
+
+        event.setStatus(PaymentOutbox.DONE);
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(null);
+        event.setProcessedAt(LocalDateTime.now());
+        return true;
+    }
+
+    /** Schedules a retry with exponential backoff, or parks the event as FAILED. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void recordFailure(Long eventId, String error) {
+        PaymentOutbox event = em.find(PaymentOutbox.class, eventId, LockModeType.PESSIMISTIC_WRITE);
+        if (event == null || !PaymentOutbox.PENDING.equals(event.getStatus())) return;
+
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+        if (attempts >= MAX_ATTEMPTS) {
+            event.setStatus(PaymentOutbox.FAILED);
+        } else {
+            long delay = Math.min(MAX_BACKOFF_SECONDS, 5L << Math.min(attempts, 20));
+            event.setAvailableAt(LocalDateTime.now().plusSeconds(delay));
+        }
+    }
+
+    // -------------------------------------------------------
+    // Handlers (idempotent)
+    // -------------------------------------------------------
+
+    private void paymentCompleted(Integer paymentId) {
+        Payment payment = em.find(Payment.class, paymentId);
+        if (payment == null) throw new IllegalArgumentException("Payment not found: " + paymentId);
+
+        // 1. Earning log (returns the existing log when already created)
+        adminEJB.createEarningLogForPayment(paymentId, null);
+
+        // 2. Appointment status
+        Appointment appt = payment.getAppointment();
+        if (appt != null && "CONFIRMED".equalsIgnoreCase(appt.getStatus())) {
+            appt.setStatus("PAID");
+            revenueRollup.touch(appt.getAppointmentDateTime());
+        }
+
+        // 3. Notify readers of derived figures
+        dashboardStats.invalidate();
+    }
+
+    // -------------------------------------------------------
+    // Admin
+    // -------------------------------------------------------
+
+    /** Event count per status. */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put(PaymentOutbox.PENDING, 0L);
+        counts.put(PaymentOutbox.DONE, 0L);
+        counts.put(PaymentOutbox.FAILED, 0L);
+        List<Object[]> rows = em.createQuery(
+                "SELECT o.status, COUNT(o) FROM PaymentOutbox o GROUP BY o.status", Object[].class)
+                .getResultList();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /** Puts FAILED events back in the queue and starts a drain. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public int retryFailed() {
+        int n = em.createQuery(
+                "UPDATE PaymentOutbox o SET o.status = 'PENDING', o.attempts = 0, o.availableAt = :now "
+                + "WHERE o.status = 'FAILED'")
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+        if (n > 0) {
+            txRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {}
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) wake();
+                }
+            });
+        }
+        return n;
+    }
+}
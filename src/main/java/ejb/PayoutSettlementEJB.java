@@ -0,0 +1,92 @@
+package ejb;
+
+import entities.AppUser;
+import entities.ArtistPayout;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Settles an artist's UNPAID earning logs into one ArtistPayout without
+ * loading the logs: an aggregate query fixes the amount and a high-water
+ * mark (largest LOGID), then one bulk UPDATE marks exactly those rows PAID.
+ *
+ * If the bulk update touches a different number of rows than were summed,
+ * another settlement or a late-committing log got in between; the
+ * transaction is rolled back rather than paying a wrong amount.
+ */
+@Stateless
+public class PayoutSettlementEJB {
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @EJB
+    private EarningLedgerEJB earningLedger;
+
+    /**
+     * Settles within the caller's transaction.
+     *
+     * @return the new payout id, or null when the artist has nothing unpaid
+     */
+    public Long settle(Long artistId, Long adminId, String notes) {
+        AppUser artist = em.find(AppUser.class, artistId);
+        if (artist == null) throw new IllegalArgumentException("User not found: " + artistId);
+        AppUser admin = adminId != null ? em.find(AppUser.class, adminId) : null;
+        if (adminId != null && admin == null) throw new IllegalArgumentException("User not found: " + adminId);
+
+        Object[] agg = em.createQuery(
+                "SELECT COUNT(e), SUM(e.artistShare), MAX(e.logId) FROM EarningLog e "
+                + "WHERE e.artist = :artist AND e.payoutStatus = 'UNPAID'", Object[].class)
+                .setParameter("artist", artist)
+                .getSingleResult();
+        long count = ((Number) agg[0]).longValue();
+        if (count == 0) return null;
+
+        BigDecimal total = agg[1] != null ? (BigDecimal) agg[1] : BigDecimal.ZERO;
+        Integer highWater = (Integer) agg[2];
+        LocalDateTime now = LocalDateTime.now();
+
+        ArtistPayout payout = new ArtistPayout();
+        payout.setArtist(artist);
+        payout.setAdmin(admin);
+        payout.setAmount(total.setScale(2, RoundingMode.HALF_UP));
+        payout.setNotes(notes != null ? notes : ("Payout for " + count + " log(s)"));
+        payout.setPayoutStatus("PAID");
+        payout.setPayoutDate(now);
+        payout.setCreatedAt(now);
+        em.persist(payout);
+        em.flush();
+
+        int updated = em.createQuery(
+                "UPDATE EarningLog e SET e.payoutStatus = 'PAID', e.payout = :payout, e.payoutAt = :at "
+                + "WHERE e.artist = :artist AND e.payoutStatus = 'UNPAID' AND e.logId <= :highWater")
+                .setParameter("payout", payout)
+                .setParameter("at", now)
+                .setParameter("artist", artist)
+                .setParameter("highWater", highWater)
+                .executeUpdate();
+        if (updated != count) {
+            throw new IllegalStateException("Unpaid earnings for artist " + artistId
+                    + " changed during settlement (" + count + " summed, " + updated + " updated); try again.");
+        }
+        earningLedger.payoutSettled(artistId, payout.getAmount(), count, now);
+        return payout.getPayoutId();
+    }
+
+    /**
+     * Settles one artist in its own transaction, so a failure is rolled back
+     * for that artist only (the batch equivalent of a savepoint).
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Long settleInNewTransaction(Long artistId, Long adminId, String notes) {
+        return settle(artistId, adminId, notes);
+    }
+}
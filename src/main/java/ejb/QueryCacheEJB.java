@@ -0,0 +1,272 @@
+package ejb;
+
+import dto.CacheRegionStatsDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Query-result regions for read-mostly lookups (style list, featured designs,
+ * announcements, roles) and hit/miss accounting for the JPA second-level
+ * entity cache.
+ *
+ * Entity caching itself is done by the persistence provider for the classes
+ * marked {@code @Cacheable}; see persistence.xml. Result regions are kept
+ * here because JPA has no portable query cache. Writers evict the regions
+ * they affect; eviction is applied after the surrounding transaction commits
+ * and bumps the region generation, so a load that overlapped the write is not
+ * stored.
+ *
+ * Region sizes and TTLs are read from persistence unit properties
+ * {@code tattoo.query-cache.<region>.max-entries} and
+ * {@code tattoo.query-cache.<region>.ttl-seconds};
+ * {@code tattoo.query-cache.enabled=false} turns result caching off.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class QueryCacheEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryCacheEJB.class.getName());
+
+    public static final String DESIGN_STYLES = "design-styles";
+    public static final String FEATURED_DESIGNS = "featured-designs";
+    public static final String ANNOUNCEMENTS = "announcements";
+    public static final String ROLES = "roles";
+
+    private static final String PROPERTY_PREFIX = "tattoo.query-cache.";
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private static final class Entry {
+        final Object value;
+        final long loadedAt;
+
+        Entry(Object value) {
+            this.value = value;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    private static final class Region {
+        final String name;
+        final int maxEntries;
+        final long ttlMillis;
+        final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+        final AtomicLong generation = new AtomicLong();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+
+        Region(String name, int maxEntries, long ttlMillis) {
+            this.name = name;
+            this.maxEntries = maxEntries;
+            this.ttlMillis = ttlMillis;
+        }
+    }
+
+    private static final class EntityCounters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+    private final Map<String, EntityCounters> entityCounters = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    @PostConstruct
+    public void init() {
+        Map<String, Object> props = em.getEntityManagerFactory().getProperties();
+        enabled = !"false".equalsIgnoreCase(String.valueOf(props.getOrDefault(PROPERTY_PREFIX + "enabled", "true")));
+        define(props, DESIGN_STYLES, 1, 600);
+        define(props, FEATURED_DESIGNS, 32, 120);
+        define(props, ANNOUNCEMENTS, 4, 600);
+        define(props, ROLES, 16, 3600);
+    }
+
+    private void define(Map<String, Object> props, String name, int defaultMax, long defaultTtlSeconds) {
+        int max = (int) longProperty(props, PROPERTY_PREFIX + name + ".max-entries", defaultMax);
+        long ttl = longProperty(props, PROPERTY_PREFIX + name + ".ttl-seconds", defaultTtlSeconds);
+        regions.put(name, new Region(name, Math.max(1, max), ttl * 1000L));
+    }
+
+    private static long longProperty(Map<String, Object> props, String key, long fallback) {
+        Object v = props.get(key);
+        if (v == null) return fallback;
+        try {
+            return Long.parseLong(v.toString().trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring invalid cache property " + key + "=" + v);
+            return fallback;
+        }
+    }
+
+    // -------------------------------------------------------
+    // Result regions
+    // -------------------------------------------------------
+
+    /**
+     * Cached result for {@code key} in {@code region}, loading it with
+     * {@code loader} on a miss. Cached values are shared between callers and
+     * must be treated as read-only.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String region, Object key, Supplier<T> loader) {
+        Region r = regions.get(region);
+        if (r == null || !enabled) return loader.get();
+
+        Entry e = r.entries.get(key);
+        if (e != null && (r.ttlMillis <= 0 || System.currentTimeMillis() - e.loadedAt <= r.ttlMillis)) {
+            r.hits.incrementAndGet();
+            return (T) e.value;
+        }
+        r.misses.incrementAndGet();
+
+        long loadedGeneration = r.generation.get();
+        T value = loader.get();
+        if (value != null) {
+            store(r, key, value, loadedGeneration);
+        }
+        return value;
+    }
+
+    private synchronized void store(Region r, Object key, Object value, long loadedGeneration) {
+        if (loadedGeneration != r.generation.get()) return;
+        if (r.entries.size() >= r.maxEntries && !r.entries.containsKey(key)) {
+            evictOldest(r);
+        }
+        r.entries.put(key, new Entry(value));
+    }
+
+    private void evictOldest(Region r) {
+        Object oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<Object, Entry> e : r.entries.entrySet()) {
+            if (e.getValue().loadedAt < oldest) {
+                oldest = e.getValue().loadedAt;
+                oldestKey = e.getKey();
+            }
+        }
+        if (oldestKey != null && r.entries.remove(oldestKey) != null) {
+            r.evictions.incrementAndGet();
+        }
+    }
+
+    /** Drops every entry of the given regions once the caller's transaction commits. */
+    public void evict(String... regionNames) {
+        for (String name : regionNames) {
+            Region r = regions.get(name);
+            if (r == null) continue;
+            // Bump now as well, so loads running during the write are not stored
+            r.generation.incrementAndGet();
+            afterCommit(() -> clear(r));
+        }
+    }
+
+    public void evictAll() {
+        for (Region r : regions.values()) {
+            r.generation.incrementAndGet();
+            clear(r);
+        }
+        em.getEntityManagerFactory().getCache().evictAll();
+    }
+
+    private synchronized void clear(Region r) {
+        r.generation.incrementAndGet();
+        r.evictions.addAndGet(r.entries.size());
+        r.entries.clear();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (txRegistry != null && txRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            txRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {}
+
+                @Override
+                public void afterCompletion(int status) {
+                    // Rolled-back writes changed nothing, but clearing is always safe
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Second-level entity cache
+    // -------------------------------------------------------
+
+    /**
+     * em.find through the caller's persistence context, counting whether the
+     * row was already in the shared cache.
+     */
+    public <T> T find(EntityManager callerEm, Class<T> type, Object id) {
+        if (id == null) return null;
+        Cache cache = callerEm.getEntityManagerFactory().getCache();
+        EntityCounters c = entityCounters.computeIfAbsent(type.getSimpleName(), k -> new EntityCounters());
+        if (cache.contains(type, id)) {
+            c.hits.incrementAndGet();
+        } else {
+            c.misses.incrementAndGet();
+        }
+        return callerEm.find(type, id);
+    }
+
+    /** Removes entities changed by native SQL, which the provider cannot see. */
+    public void evictEntities(Class<?> type) {
+        afterCommit(() -> em.getEntityManagerFactory().getCache().evict(type));
+    }
+
+    // -------------------------------------------------------
+    // Statistics
+    // -------------------------------------------------------
+
+    public List<CacheRegionStatsDTO> getStatistics() {
+        List<CacheRegionStatsDTO> stats = new ArrayList<>();
+        for (Region r : regions.values()) {
+            stats.add(new CacheRegionStatsDTO(r.name, "query", r.entries.size(), r.maxEntries,
+                    r.ttlMillis / 1000L, r.hits.get(), r.misses.get(), r.evictions.get()));
+        }
+        for (Map.Entry<String, EntityCounters> e : entityCounters.entrySet()) {
+            stats.add(new CacheRegionStatsDTO(e.getKey(), "entity", -1, -1, -1,
+                    e.getValue().hits.get(), e.getValue().misses.get(), 0));
+        }
+        stats.sort((a, b) -> a.getKind().equals(b.getKind())
+                ? a.getRegion().compareTo(b.getRegion())
+                : b.getKind().compareTo(a.getKind()));
+        return stats;
+    }
+
+    public void resetStatistics() {
+        for (Region r : regions.values()) {
+            r.hits.set(0);
+            r.misses.set(0);
+            r.evictions.set(0);
+        }
+        entityCounters.clear();
+    }
+}
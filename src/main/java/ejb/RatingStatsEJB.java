@@ -0,0 +1,163 @@
+package ejb;
+
+import entities.ArtistRatingStats;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJBException;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Keeps artist_rating_stats in step with Review and Feedback writes. All
+ * update methods join the caller's transaction and lock the artist's row,
+ * so concurrent reviews for the same artist serialize instead of racing.
+ */
+@Stateless
+public class RatingStatsEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(RatingStatsEJB.class.getName());
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private SessionContext context;
+
+    // -------------------------------------------------------
+    // Writes
+    // -------------------------------------------------------
+    public void reviewAdded(Long artistId, double rating) {
+        lockOrCreate(artistId).addReview(rating, +1);
+    }
+
+    public void reviewChanged(Long artistId, double oldRating, double newRating) {
+        ArtistRatingStats s = lockOrCreate(artistId);
+        s.addReview(oldRating, -1);
+        s.addReview(newRating, +1);
+    }
+
+    public void feedbackAdded(Long artistId, int rating) {
+        lockOrCreate(artistId).addFeedback(rating);
+    }
+
+    private ArtistRatingStats lockOrCreate(Long artistId) {
+        if (artistId == null) throw new IllegalArgumentException("Artist ID must not be null.");
+        ArtistRatingStats s = em.find(ArtistRatingStats.class, artistId, LockModeType.PESSIMISTIC_WRITE);
+        if (s == null) {
+            // No row to lock yet. Insert it in its own transaction so two first
+            // reviews collide there, not in the caller's; then lock it as usual.
+            try {
+                context.getBusinessObject(RatingStatsEJB.class).createRow(artistId);
+            } catch (EJBException e) {
+                // Inserted concurrently; the row exists now
+            }
+            s = em.find(ArtistRatingStats.class, artistId, LockModeType.PESSIMISTIC_WRITE);
+            if (s == null) {
+                throw new IllegalStateException("Rating stats for artist " + artistId + " could not be created.");
+            }
+        }
+        return s;
+    }
+
+    /** Inserts an empty stats row for the artist unless one exists. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void createRow(Long artistId) {
+        if (em.find(ArtistRatingStats.class, artistId) == null) {
+            em.persist(new ArtistRatingStats(artistId));
+            em.flush();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+    public ArtistRatingStats getStats(Long artistId) {
+        return artistId == null ? null : em.find(ArtistRatingStats.class, artistId);
+    }
+
+    public double getReviewAverage(Long artistId) {
+        ArtistRatingStats s = getStats(artistId);
+        return s != null && s.getReviewAverage() != null ? s.getReviewAverage() : 0.0;
+    }
+
+    public long getReviewCount(Long artistId) {
+        ArtistRatingStats s = getStats(artistId);
+        return s != null && s.getReviewCount() != null ? s.getReviewCount() : 0L;
+    }
+
+    // -------------------------------------------------------
+    // Backfill / repair
+    // -------------------------------------------------------
+
+    /**
+     * Rebuilds every artist's row from Review and Feedback. Used at startup
+     * when the table is empty and available for manual repair.
+     *
+     * @return number of artist rows written
+     */
+    public int rebuildAll() {
+        Map<Long, ArtistRatingStats> byArtist = new HashMap<>();
+
+        List<Long> artistIds = em.createQuery(
+                "SELECT a.userId FROM AppUser a WHERE a.role.roleName = 'ARTIST'", Long.class)
+                .getResultList();
+        for (Long id : artistIds) {
+            byArtist.put(id, new ArtistRatingStats(id));
+        }
+
+        List<Object[]> reviews = em.createQuery(
+                "SELECT r.artist.userId, r.rating, COUNT(r) FROM Review r "
+                + "WHERE r.rating IS NOT NULL GROUP BY r.artist.userId, r.rating",
+                Object[].class)
+                .getResultList();
+        for (Object[] row : reviews) {
+            ArtistRatingStats s = byArtist.computeIfAbsent((Long) row[0], ArtistRatingStats::new);
+            double rating = ((Number) row[1]).doubleValue();
+            long n = ((Number) row[2]).longValue();
+            for (long i = 0; i < n; i++) s.addReview(rating, +1);
+        }
+
+        List<Object[]> feedback = em.createQuery(
+                "SELECT f.artist.userId, COUNT(f), SUM(f.rating) FROM Feedback f "
+                + "WHERE f.rating IS NOT NULL GROUP BY f.artist.userId",
+                Object[].class)
+                .getResultList();
+        for (Object[] row : feedback) {
+            ArtistRatingStats s = byArtist.computeIfAbsent((Long) row[0], ArtistRatingStats::new);
+            long count = ((Number) row[1]).longValue();
+            long sum = row[2] == null ? 0 : ((Number) row[2]).longValue();
+            s.setFeedbackCount(count);
+            s.setFeedbackSum(sum);
+            s.setFeedbackAverage(count == 0 ? 0.0 : sum / (double) count);
+        }
+
+        em.createQuery("DELETE FROM ArtistRatingStats s").executeUpdate();
+        LocalDateTime now = LocalDateTime.now();
+        for (ArtistRatingStats s : byArtist.values()) {
+            s.setUpdatedAt(now);
+            em.persist(s);
+        }
+        em.flush();
+        LOGGER.info("Artist rating stats rebuilt for " + byArtist.size() + " artist(s).");
+        return byArtist.size();
+    }
+
+    /** Rebuilds only when the aggregate table has never been populated. */
+    public void rebuildIfEmpty() {
+        Long rows = em.createQuery("SELECT COUNT(s) FROM ArtistRatingStats s", Long.class)
+                .getSingleResult();
+        if (rows == null || rows == 0) {
+            rebuildAll();
+        }
+    }
+}
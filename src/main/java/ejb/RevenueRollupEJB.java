@@ -0,0 +1,463 @@
+package ejb;
+
+import entities.BookingRollup;
+import entities.RevenueRollup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Daily and monthly rollups of payments (revenue_rollup) and appointments
+ * (booking_rollup) per artist, payment method and status, so date-range
+ * reports sum a few dozen bucket rows instead of scanning transactions.
+ *
+ * Writers call {@link #touch} with the dates their change affects (payment
+ * date, appointment date, old and new date on a reschedule). Once their
+ * transaction commits those days are marked dirty and recomputed in the
+ * background: a day's rows are rebuilt from the source tables and its month
+ * is re-summed from the day rows. Recomputing rather than applying deltas
+ * keeps every bucket exact no matter how often a row changes status. Reads
+ * flush pending days first, a 5-minute timer catches anything left over, and
+ * a nightly pass rebuilds the last few days in case a writer was missed.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RevenueRollupEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(RevenueRollupEJB.class.getName());
+
+    /** Days rebuilt by the nightly repair pass, counting back from today. */
+    private static final int REPAIR_DAYS = 3;
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Resource
+    private SessionContext context;
+
+    private final Set<LocalDate> dirty = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object();
+
+    // Business proxy, so transaction attributes apply to calls on this bean
+    private RevenueRollupEJB self;
+
+    @PostConstruct
+    public void init() {
+        self = context.getBusinessObject(RevenueRollupEJB.class);
+    }
+
+    // -------------------------------------------------------
+    // Change tracking (caller's transaction)
+    // -------------------------------------------------------
+
+    /** Marks the days of the given times for recomputation once the current transaction commits. */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void touch(LocalDateTime... times) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDateTime t : times) {
+            if (t != null) days.add(t.toLocalDate());
+        }
+        if (days.isEmpty()) return;
+
+        if (txRegistry != null && txRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            txRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {}
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) markDirty(days);
+                }
+            });
+        } else {
+            markDirty(days);
+        }
+    }
+
+    private void markDirty(Collection<LocalDate> days) {
+        dirty.addAll(days);
+        try {
+            executor.submit(() -> self.flush());
+        } catch (Exception e) {
+            // Executor saturated or shutting down; the timer or the next read flushes
+            LOGGER.log(Level.WARNING, "Revenue rollup flush not scheduled", e);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Recompute
+    // -------------------------------------------------------
+
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void sweep() {
+        if (!dirty.isEmpty()) self.flush();
+    }
+
+    @Schedule(hour = "3", minute = "20", persistent = false)
+    public void nightlyRepair() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < REPAIR_DAYS; i++) {
+            dirty.add(today.minusDays(i));
+        }
+        self.flush();
+    }
+
+    /**
+     * Recomputes every dirty day and the months they fall in. A day that
+     * fails stays dirty for the next flush.
+     *
+     * @return number of days recomputed
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int flush() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) return 0;
+            // Taken out before recomputing: a commit landing meanwhile marks its day again
+            Set<LocalDate> days = new TreeSet<>(dirty);
+            dirty.removeAll(days);
+
+            Set<YearMonth> months = new TreeSet<>();
+            int done = 0;
+            for (LocalDate day : days) {
+                try {
+                    self.rebuildDays(day, day.plusDays(1));
+                    months.add(YearMonth.from(day));
+                    done++;
+                } catch (Exception e) {
+                    dirty.add(day);
+                    LOGGER.log(Level.WARNING, "Revenue rollup for " + day + " failed", e);
+                }
+            }
+            for (YearMonth month : months) {
+                try {
+                    self.rebuildMonth(month);
+                } catch (Exception e) {
+                    // Re-summed with the next change in that month or by the nightly pass
+                    LOGGER.log(Level.WARNING, "Revenue rollup for " + month + " failed", e);
+                }
+            }
+            return done;
+        }
+    }
+
+    /** Rebuilds the day rows for [from, to) from payments, earning logs and appointments. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void rebuildDays(LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+
+        em.createQuery("DELETE FROM RevenueRollup r WHERE r.grain = 'D' "
+                + "AND r.bucketStart >= :from AND r.bucketStart < :to")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .executeUpdate();
+        em.createQuery("DELETE FROM BookingRollup b WHERE b.grain = 'D' "
+                + "AND b.bucketStart >= :from AND b.bucketStart < :to")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .executeUpdate();
+
+        // Payments, bucketed by payment date
+        Map<String, RevenueRollup> revenue = new HashMap<>();
+        List<Object[]> payments = em.createQuery(
+                "SELECT p.paymentDate, a.artist.userId, p.paymentMethod, p.status, p.amount "
+                + "FROM Payment p JOIN p.appointment a "
+                + "WHERE p.paymentDate >= :start AND p.paymentDate < :end", Object[].class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList();
+        for (Object[] row : payments) {
+            revenueBucket(revenue, row).addPayment((BigDecimal) row[4]);
+        }
+
+        // Earning shares of those payments
+        List<Object[]> shares = em.createQuery(
+                "SELECT p.paymentDate, a.artist.userId, p.paymentMethod, p.status, "
+                + "SUM(e.artistShare), SUM(e.adminShare) "
+                + "FROM EarningLog e JOIN e.payment p JOIN p.appointment a "
+                + "WHERE p.paymentDate >= :start AND p.paymentDate < :end "
+                + "GROUP BY p.paymentDate, a.artist.userId, p.paymentMethod, p.status", Object[].class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList();
+        for (Object[] row : shares) {
+            revenueBucket(revenue, row).addShares((BigDecimal) row[4], (BigDecimal) row[5]);
+        }
+
+        // Appointments, bucketed by appointment date
+        Map<String, BookingRollup> bookings = new HashMap<>();
+        List<Object[]> appointments = em.createQuery(
+                "SELECT a.appointmentDateTime, a.artist.userId, a.status FROM Appointment a "
+                + "WHERE a.appointmentDateTime >= :start AND a.appointmentDateTime < :end", Object[].class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList();
+        for (Object[] row : appointments) {
+            LocalDate day = ((LocalDateTime) row[0]).toLocalDate();
+            Long artistId = (Long) row[1];
+            String status = row[2] != null ? (String) row[2] : "UNKNOWN";
+            bookings.computeIfAbsent(day + "|" + artistId + "|" + status,
+                    k -> new BookingRollup(RevenueRollup.DAY, day, artistId, status)).add(1);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (RevenueRollup r : revenue.values()) {
+            r.setUpdatedAt(now);
+            em.persist(r);
+        }
+        for (BookingRollup b : bookings.values()) {
+            b.setUpdatedAt(now);
+            em.persist(b);
+        }
+    }
+
+    private static RevenueRollup revenueBucket(Map<String, RevenueRollup> buckets, Object[] row) {
+        LocalDate day = ((LocalDateTime) row[0]).toLocalDate();
+        Long artistId = (Long) row[1];
+        String method = (String) row[2];
+        String status = (String) row[3];
+        return buckets.computeIfAbsent(day + "|" + artistId + "|" + method + "|" + status,
+                k -> new RevenueRollup(RevenueRollup.DAY, day, artistId, method, status));
+    }
+
+    /** Re-sums a month's rows from its day rows. */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void rebuildMonth(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+
+        em.createQuery("DELETE FROM RevenueRollup r WHERE r.grain = 'M' AND r.bucketStart = :month")
+                .setParameter("month", from)
+                .executeUpdate();
+        em.createQuery("DELETE FROM BookingRollup b WHERE b.grain = 'M' AND b.bucketStart = :month")
+                .setParameter("month", from)
+                .executeUpdate();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> revenue = em.createQuery(
+                "SELECT r.artistId, r.paymentMethod, r.status, SUM(r.paymentCount), SUM(r.amount), "
+                + "SUM(r.artistShare), SUM(r.adminShare) FROM RevenueRollup r "
+                + "WHERE r.grain = 'D' AND r.bucketStart >= :from AND r.bucketStart < :to "
+                + "GROUP BY r.artistId, r.paymentMethod, r.status", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        for (Object[] row : revenue) {
+            RevenueRollup r = new RevenueRollup(RevenueRollup.MONTH, from,
+                    (Long) row[0], (String) row[1], (String) row[2]);
+            r.setPaymentCount(((Number) row[3]).longValue());
+            r.setAmount((BigDecimal) row[4]);
+            r.setArtistShare((BigDecimal) row[5]);
+            r.setAdminShare((BigDecimal) row[6]);
+            r.setUpdatedAt(now);
+            em.persist(r);
+        }
+
+        List<Object[]> bookings = em.createQuery(
+                "SELECT b.artistId, b.status, SUM(b.appointmentCount) FROM BookingRollup b "
+                + "WHERE b.grain = 'D' AND b.bucketStart >= :from AND b.bucketStart < :to "
+                + "GROUP BY b.artistId, b.status", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        for (Object[] row : bookings) {
+            BookingRollup b = new BookingRollup(RevenueRollup.MONTH, from, (Long) row[0], (String) row[1]);
+            b.setAppointmentCount(((Number) row[2]).longValue());
+            b.setUpdatedAt(now);
+            em.persist(b);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Backfill / repair
+    // -------------------------------------------------------
+
+    /**
+     * Rebuilds the rollups month by month, one transaction per month. With no
+     * bounds, covers every month that has a payment or an appointment.
+     *
+     * @return number of months rebuilt
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            Object[] span = em.createQuery(
+                    "SELECT MIN(p.paymentDate), MAX(p.paymentDate) FROM Payment p", Object[].class)
+                    .getSingleResult();
+            Object[] apptSpan = em.createQuery(
+                    "SELECT MIN(a.appointmentDateTime), MAX(a.appointmentDateTime) FROM Appointment a", Object[].class)
+                    .getSingleResult();
+            LocalDateTime min = earliest((LocalDateTime) span[0], (LocalDateTime) apptSpan[0]);
+            LocalDateTime max = latest((LocalDateTime) span[1], (LocalDateTime) apptSpan[1]);
+            if (min == null) return 0;
+            if (from == null) from = min.toLocalDate();
+            if (to == null) to = max.toLocalDate();
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Backfill end date is before its start date.");
+        }
+
+        int months = 0;
+        synchronized (flushLock) {
+            for (YearMonth m = YearMonth.from(from); !m.isAfter(YearMonth.from(to)); m = m.plusMonths(1)) {
+                self.rebuildDays(m.atDay(1), m.plusMonths(1).atDay(1));
+                self.rebuildMonth(m);
+                months++;
+            }
+        }
+        LOGGER.info("Revenue rollups rebuilt for " + months + " month(s) from " + from + " to " + to + ".");
+        return months;
+    }
+
+    /** Starts a full backfill in the background when the rollups have never been populated. */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void backfillIfEmpty() {
+        Long rows = em.createQuery("SELECT COUNT(r) FROM RevenueRollup r", Long.class).getSingleResult();
+        Long bookingRows = em.createQuery("SELECT COUNT(b) FROM BookingRollup b", Long.class).getSingleResult();
+        if ((rows == null || rows == 0) && (bookingRows == null || bookingRows == 0)) {
+            executor.submit(() -> {
+                try {
+                    self.backfill(null, null);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Revenue rollup backfill failed", e);
+                }
+            });
+        }
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+
+    /**
+     * Payment totals per artist, method and status for the days from..to
+     * (inclusive), summed from month rows for whole months and day rows for
+     * the partial months at either end. Returned rows are not managed.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<RevenueRollup> revenue(LocalDate from, LocalDate to) {
+        if (!dirty.isEmpty()) self.flush();
+        Range r = new Range(from, to);
+        List<Object[]> rows = r.bind(em.createQuery(
+                "SELECT r.artistId, r.paymentMethod, r.status, SUM(r.paymentCount), SUM(r.amount), "
+                + "SUM(r.artistShare), SUM(r.adminShare) FROM RevenueRollup r WHERE "
+                + Range.where("r")
+                + " GROUP BY r.artistId, r.paymentMethod, r.status", Object[].class))
+                .getResultList();
+        List<RevenueRollup> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            RevenueRollup t = new RevenueRollup(null, null, (Long) row[0], (String) row[1], (String) row[2]);
+            t.setPaymentCount(((Number) row[3]).longValue());
+            t.setAmount((BigDecimal) row[4]);
+            t.setArtistShare((BigDecimal) row[5]);
+            t.setAdminShare((BigDecimal) row[6]);
+            result.add(t);
+        }
+        return result;
+    }
+
+    /** Appointment counts per artist and status for the days from..to (inclusive). */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<BookingRollup> bookings(LocalDate from, LocalDate to) {
+        if (!dirty.isEmpty()) self.flush();
+        Range r = new Range(from, to);
+        List<Object[]> rows = r.bind(em.createQuery(
+                "SELECT b.artistId, b.status, SUM(b.appointmentCount) FROM BookingRollup b WHERE "
+                + Range.where("b")
+                + " GROUP BY b.artistId, b.status", Object[].class))
+                .getResultList();
+        List<BookingRollup> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            BookingRollup t = new BookingRollup(null, null, (Long) row[0], (String) row[1]);
+            t.setAppointmentCount(((Number) row[2]).longValue());
+            result.add(t);
+        }
+        return result;
+    }
+
+    /**
+     * A closed date range split into a leading run of days, whole months and
+     * a trailing run of days; runs that do not apply are left empty.
+     */
+    private static final class Range {
+        final LocalDate headFrom, headTo, monthFrom, monthTo, tailFrom, tailTo;
+
+        Range(LocalDate from, LocalDate to) {
+            LocalDate end = to.plusDays(1);
+            YearMonth firstWhole = from.getDayOfMonth() == 1 ? YearMonth.from(from) : YearMonth.from(from).plusMonths(1);
+            YearMonth afterWhole = end.getDayOfMonth() == 1 ? YearMonth.from(end) : YearMonth.from(to);
+            if (firstWhole.isBefore(afterWhole)) {
+                headFrom = from;
+                headTo = firstWhole.atDay(1);
+                monthFrom = headTo;
+                monthTo = afterWhole.atDay(1);
+                tailFrom = monthTo;
+                tailTo = end;
+            } else {
+                headFrom = from;
+                headTo = end;
+                monthFrom = monthTo = tailFrom = tailTo = end;
+            }
+        }
+
+        static String where(String x) {
+            return "((" + x + ".grain = 'D' AND " + x + ".bucketStart >= :headFrom AND " + x + ".bucketStart < :headTo) "
+                    + "OR (" + x + ".grain = 'M' AND " + x + ".bucketStart >= :monthFrom AND " + x + ".bucketStart < :monthTo) "
+                    + "OR (" + x + ".grain = 'D' AND " + x + ".bucketStart >= :tailFrom AND " + x + ".bucketStart < :tailTo))";
+        }
+
+        <Q extends Query> Q bind(Q q) {
+            q.setParameter("headFrom", headFrom);
+            q.setParameter("headTo", headTo);
+            q.setParameter("monthFrom", monthFrom);
+            q.setParameter("monthTo", monthTo);
+            q.setParameter("tailFrom", tailFrom);
+            q.setParameter("tailTo", tailTo);
+            return q;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package ejb;
+
+import jakarta.annotation.Resource;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Versioned schema migrations, applied in order at startup by
+ * DatabaseInitializer. The persistence unit does not generate DDL, so every
+ * column, table and index the entities rely on beyond the original schema is
+ * created here.
+ *
+ * Applied versions are recorded in schema_version. Each step checks the
+ * database metadata before changing anything, so a migration is safe to rerun
+ * against a schema that already has part of it (e.g. from hbm2ddl or a node
+ * that started at the same time). New changes are appended as a new version;
+ * released versions are never edited.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class SchemaMigrationEJB {
+
+    @Resource(lookup = "jdbc/TattooStudioManagement")
+    private DataSource dataSource;
+
+    private static final String HISTORY_TABLE = "schema_version";
+
+    /** One schema change; statements run with auto-commit (DDL commits implicitly on MySQL). */
+    @FunctionalInterface
+    interface Step {
+        void apply(Schema schema) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step[] steps;
+
+        Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = steps;
+        }
+    }
+
+    // -------------------------------------------------------
+    // Migrations (append only)
+    // -------------------------------------------------------
+    private static final List<Migration> MIGRATIONS = List.of(
+
+        new Migration(1, "Design engagement counters",
+            s -> s.addColumn("tattoo_design", "LIKE_COUNT", "INT NOT NULL DEFAULT 0"),
+            s -> s.addColumn("tattoo_design", "FAVOURITE_COUNT", "INT NOT NULL DEFAULT 0"),
+            s -> s.addColumn("tattoo_design", "COMMENT_COUNT", "INT NOT NULL DEFAULT 0"),
+            s -> s.createIndex("IDX_DESIGN_POPULARITY", "tattoo_design", "FAVOURITE_COUNT", "LIKE_COUNT")),
+
+        new Migration(2, "Trending score snapshot",
+            s -> s.addColumn("tattoo_design", "TRENDING_SCORE", "DOUBLE PRECISION"),
+            s -> s.addColumn("tattoo_design", "TRENDING_AT", s.timestampType())),
+
+        new Migration(3, "Artist rating aggregate",
+            s -> s.createTable("artist_rating_stats",
+                    "ARTIST_ID BIGINT NOT NULL PRIMARY KEY, " +
+                    "REVIEW_COUNT BIGINT NOT NULL DEFAULT 0, " +
+                    "REVIEW_SUM DOUBLE PRECISION NOT NULL DEFAULT 0, " +
+                    "REVIEW_AVG DOUBLE PRECISION NOT NULL DEFAULT 0, " +
+                    "STAR_1 BIGINT NOT NULL DEFAULT 0, " +
+                    "STAR_2 BIGINT NOT NULL DEFAULT 0, " +
+                    "STAR_3 BIGINT NOT NULL DEFAULT 0, " +
+                    "STAR_4 BIGINT NOT NULL DEFAULT 0, " +
+                    "STAR_5 BIGINT NOT NULL DEFAULT 0, " +
+                    "FEEDBACK_COUNT BIGINT NOT NULL DEFAULT 0, " +
+                    "FEEDBACK_SUM BIGINT NOT NULL DEFAULT 0, " +
+                    "FEEDBACK_AVG DOUBLE PRECISION NOT NULL DEFAULT 0, " +
+                    "UPDATED_AT " + s.timestampType()),
+            s -> s.createIndex("IDX_RATING_STATS_FEEDBACK", "artist_rating_stats", "FEEDBACK_AVG", "FEEDBACK_COUNT")),
+
+        new Migration(4, "Optimistic lock columns for slot booking",
+            s -> s.addColumn("time_slot", "VERSION", "BIGINT NOT NULL DEFAULT 0"),
+            s -> s.addColumn("appointment", "VERSION", "BIGINT NOT NULL DEFAULT 0")),
+
+        new Migration(5, "Composite indexes for hot query predicates",
+            s -> s.createIndex("IDX_SLOT_ARTIST_START_STATUS", "time_slot", "ARTIST_ID", "STARTTIME", "STATUS"),
+            s -> s.createIndex("IDX_APPT_ARTIST_STATUS_REQUEST", "appointment", "ARTIST_ID", "STATUS", "REQUEST_DATETIME"),
+            s -> s.createIndex("IDX_APPT_CLIENT_DATETIME", "appointment", "CLIENT_ID", "APPOINTMENTDATETIME"),
+            s -> s.createIndex("IDX_EARNING_ARTIST_PAYOUT", "earning_log", "ARTIST_ID", "PAYOUTSTATUS"),
+            s -> s.createIndex("IDX_PAYMENT_DATE", "payment", "PAYMENT_DATE"),
+            s -> s.createIndex("IDX_DESIGN_VISIBLE_UPLOADED", "tattoo_design", "ISBANNED", "ISREMOVEDBYARTIST", "UPLOADEDAT")),
+
+        new Migration(6, "Price ordering for design browse",
+            s -> s.createIndex("IDX_DESIGN_PRICE", "tattoo_design", "PRICE", "DESIGNID")),
+
+        new Migration(7, "Artist earnings ledger balance",
+            s -> s.createTable("artist_earning_balance",
+                    "ARTIST_ID BIGINT NOT NULL PRIMARY KEY, " +
+                    "PENDING_AMOUNT DECIMAL(12,2) NOT NULL DEFAULT 0, " +
+                    "PENDING_COUNT BIGINT NOT NULL DEFAULT 0, " +
+                    "PAID_AMOUNT DECIMAL(12,2) NOT NULL DEFAULT 0, " +
+                    "PAYOUT_COUNT BIGINT NOT NULL DEFAULT 0, " +
+                    "LAST_PAYOUT_AT " + s.timestampType() + ", " +
+                    "UPDATED_AT " + s.timestampType()),
+            s -> s.createIndex("IDX_EARNING_BALANCE_PENDING", "artist_earning_balance", "PENDING_AMOUNT")),
+
+        new Migration(8, "Payment post-processing outbox",
+            s -> s.createTable("payment_outbox",
+                    "EVENT_ID " + s.identityType() + ", " +
+                    "PAYMENT_ID INT NOT NULL, " +
+                    "EVENT_TYPE VARCHAR(40) NOT NULL, " +
+                    "STATUS VARCHAR(20) NOT NULL, " +
+                    "ATTEMPTS INT NOT NULL DEFAULT 0, " +
+                    "LAST_ERROR VARCHAR(500), " +
+                    "CREATED_AT " + s.timestampType() + " NOT NULL, " +
+                    "AVAILABLE_AT " + s.timestampType() + " NOT NULL, " +
+                    "PROCESSED_AT " + s.timestampType()),
+            s -> s.createUniqueIndex("UQ_OUTBOX_PAYMENT_EVENT", "payment_outbox", "PAYMENT_ID", "EVENT_TYPE"),
+            s -> s.createIndex("IDX_OUTBOX_STATUS_AVAILABLE", "payment_outbox", "STATUS", "AVAILABLE_AT")),
+
+        new Migration(9, "Revenue and booking rollups",
+            s -> s.createTable("revenue_rollup",
+                    "ROLLUP_ID " + s.identityType() + ", " +
+                    "GRAIN CHAR(1) NOT NULL, " +
+                    "BUCKET_START DATE NOT NULL, " +
+                    "ARTIST_ID BIGINT NOT NULL, " +
+                    "METHOD VARCHAR(50) NOT NULL, " +
+                    "STATUS VARCHAR(50) NOT NULL, " +
+                    "PAYMENT_COUNT BIGINT NOT NULL DEFAULT 0, " +
+                    "PAYMENT_AMOUNT DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+                    "ARTIST_SHARE DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+                    "ADMIN_SHARE DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+                    "UPDATED_AT " + s.timestampType()),
+            s -> s.createUniqueIndex("UQ_REVENUE_ROLLUP_BUCKET", "revenue_rollup",
+                    "GRAIN", "BUCKET_START", "ARTIST_ID", "METHOD", "STATUS"),
+            s -> s.createTable("booking_rollup",
+                    "ROLLUP_ID " + s.identityType() + ", " +
+                    "GRAIN CHAR(1) NOT NULL, " +
+                    "BUCKET_START DATE NOT NULL, " +
+                    "ARTIST_ID BIGINT NOT NULL, " +
+                    "STATUS VARCHAR(50) NOT NULL, " +
+                    "APPOINTMENT_COUNT BIGINT NOT NULL DEFAULT 0, " +
+                    "UPDATED_AT " + s.timestampType()),
+            s -> s.createUniqueIndex("UQ_BOOKING_ROLLUP_BUCKET", "booking_rollup",
+                    "GRAIN", "BUCKET_START", "ARTIST_ID", "STATUS"),
+            // Rollup rebuilds read appointments by date
+            s -> s.createIndex("IDX_APPT_DATETIME", "appointment", "APPOINTMENTDATETIME")),
+
+        new Migration(10, "One slot per artist and start time",
+            // Drop duplicate AVAILABLE slots no appointment points at, keeping the oldest row.
+            // The derived table lets MySQL delete from the table it reads.
+            s -> s.update("DELETE FROM time_slot WHERE SLOTID IN (SELECT SLOTID FROM (" +
+                    "SELECT d.SLOTID FROM time_slot d JOIN time_slot k " +
+                    "ON k.ARTIST_ID = d.ARTIST_ID AND k.STARTTIME = d.STARTTIME AND k.SLOTID < d.SLOTID " +
+                    "WHERE d.STATUS = 'AVAILABLE' " +
+                    "AND NOT EXISTS (SELECT 1 FROM appointment a WHERE a.SLOT_ID = d.SLOTID)) dup)"),
+            s -> s.createUniqueIndex("UQ_SLOT_ARTIST_START", "time_slot", "ARTIST_ID", "STARTTIME")),
+
+        new Migration(11, "Backfill design engagement counters",
+            // V1 added the counters at 0; only designs that have likes, favourites or comments change
+            s -> s.update(DesignCounterEJB.RECOUNT_SQL)),
+
+        new Migration(12, "Change stamps polled by in-memory indexes",
+            s -> s.createTable("change_stamp",
+                    "NAME VARCHAR(50) NOT NULL PRIMARY KEY, " +
+                    "VERSION BIGINT NOT NULL DEFAULT 0"),
+            s -> s.insertIfMissing("change_stamp", "NAME", SlotAvailabilityEJB.STAMP_NAME, "VERSION", "0"))
+    );
+
+    // -------------------------------------------------------
+    // Runner
+    // -------------------------------------------------------
+
+    /**
+     * Applies every migration newer than the recorded schema version. Stops at
+     * the first failure so later versions never run on top of a broken one.
+     *
+     * @return number of migrations applied
+     */
+    public int migrate() {
+        int applied = 0;
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(true);
+            Schema schema = new Schema(con);
+            ensureHistoryTable(schema);
+            Set<Integer> done = appliedVersions(con);
+
+            for (Migration m : MIGRATIONS) {
+                if (done.contains(m.version)) continue;
+                try {
+                    for (Step step : m.steps) {
+                        step.apply(schema);
+                    }
+                    recordVersion(con, m);
+                    applied++;
+                    System.out.println("Schema migration V" + m.version + " applied: " + m.description);
+                } catch (SQLException e) {
+                    System.err.println("Schema migration V" + m.version + " (" + m.description + ") failed: " + e.getMessage());
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Schema migration aborted: " + e.getMessage());
+        }
+        return applied;
+    }
+
+    /** Highest version recorded in schema_version, or 0. */
+    public int currentVersion() {
+        try (Connection con = dataSource.getConnection()) {
+            return appliedVersions(con).stream().mapToInt(Integer::intValue).max().orElse(0);
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private void ensureHistoryTable(Schema schema) throws SQLException {
+        schema.createTable(HISTORY_TABLE,
+                "VERSION INT NOT NULL PRIMARY KEY, " +
+                "DESCRIPTION VARCHAR(200) NOT NULL, " +
+                "INSTALLED_AT " + schema.timestampType() + " NOT NULL");
+    }
+
+    private Set<Integer> appliedVersions(Connection con) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT VERSION FROM " + HISTORY_TABLE)) {
+            while (rs.next()) versions.add(rs.getInt(1));
+        }
+        return versions;
+    }
+
+    private void recordVersion(Connection con, Migration m) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO " + HISTORY_TABLE + " (VERSION, DESCRIPTION, INSTALLED_AT) VALUES (?, ?, ?)")) {
+            ps.setInt(1, m.version);
+            ps.setString(2, m.description);
+            ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // Another node recorded the same version first; the steps were idempotent
+            if (!appliedVersions(con).contains(m.version)) throw e;
+        }
+    }
+
+    // -------------------------------------------------------
+    // Idempotent DDL helpers
+    // -------------------------------------------------------
+    static final class Schema {
+        private final Connection con;
+        private final boolean mysql;
+
+        Schema(Connection con) throws SQLException {
+            this.con = con;
+            this.mysql = con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        }
+
+        String timestampType() {
+            return mysql ? "DATETIME" : "TIMESTAMP";
+        }
+
+        /** Auto-generated BIGINT primary key column definition. */
+        String identityType() {
+            return mysql ? "BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY" : "BIGSERIAL PRIMARY KEY";
+        }
+
+        void createTable(String table, String columns) throws SQLException {
+            if (columnsOf(table) != null) return;
+            execute("CREATE TABLE " + table + " (" + columns + ")");
+        }
+
+        void addColumn(String table, String column, String definition) throws SQLException {
+            Set<String> existing = columnsOf(table);
+            if (existing == null) throw new SQLException("Table " + table + " does not exist");
+            if (existing.contains(column.toUpperCase(Locale.ROOT))) return;
+            execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+
+        void createIndex(String name, String table, String... columns) throws SQLException {
+            if (indexesOf(table).contains(name.toUpperCase(Locale.ROOT))) return;
+            execute("CREATE INDEX " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+        }
+
+        void createUniqueIndex(String name, String table, String... columns) throws SQLException {
+            if (indexesOf(table).contains(name.toUpperCase(Locale.ROOT))) return;
+            execute("CREATE UNIQUE INDEX " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+        }
+
+        /** Data clean-up a constraint needs first; must be a no-op when rerun. */
+        void update(String sql) throws SQLException {
+            execute(sql);
+        }
+
+        /** Inserts a seed row unless a row with the same key already exists. */
+        void insertIfMissing(String table, String keyColumn, String key, String columns, String values)
+                throws SQLException {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT 1 FROM " + table + " WHERE " + keyColumn + " = ?")) {
+                ps.setString(1, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) return;
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO " + table + " (" + keyColumn + ", " + columns + ") VALUES (?, " + values + ")")) {
+                ps.setString(1, key);
+                ps.executeUpdate();
+            }
+        }
+
+        /** Upper-cased column names, or null when the table does not exist. */
+        private Set<String> columnsOf(String table) {
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+                ResultSetMetaData md = rs.getMetaData();
+                Set<String> names = new HashSet<>();
+                for (int i = 1; i <= md.getColumnCount(); i++) {
+                    names.add(md.getColumnName(i).toUpperCase(Locale.ROOT));
+                }
+                return names;
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+
+        // Identifier case in metadata differs per database (PostgreSQL folds to lower case)
+        private Set<String> indexesOf(String table) throws SQLException {
+            DatabaseMetaData md = con.getMetaData();
+            Set<String> names = new HashSet<>();
+            List<String> candidates = new ArrayList<>(List.of(table,
+                    table.toLowerCase(Locale.ROOT), table.toUpperCase(Locale.ROOT)));
+            for (String candidate : candidates) {
+                try (ResultSet rs = md.getIndexInfo(con.getCatalog(), null, candidate, false, true)) {
+                    while (rs.next()) {
+                        String name = rs.getString("INDEX_NAME");
+                        if (name != null) names.add(name.toUpperCase(Locale.ROOT));
+                    }
+                }
+                if (!names.isEmpty()) break;
+            }
+            return names;
+        }
+
+        private void execute(String sql) throws SQLException {
+            try (Statement st = con.createStatement()) {
+                st.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package ejb;
+
+import entities.AppUser;
+import entities.TimeSlot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application-wide index of AVAILABLE time slots from today onwards, kept
+ * per artist in a map sorted by start time. Booking pages read availability
+ * from here instead of querying time_slot with range and status filters.
+ *
+ * Writers report slot transitions (book, cancel, block, unblock, generation)
+ * and the index applies them once the surrounding transaction commits; a
+ * transaction that rolls back changes nothing. After each reporting
+ * transaction commits, the time_slot row of change_stamp is bumped in a short
+ * transaction of its own (never while the writer holds its locks), and that
+ * single row is polled so changes made on other cluster nodes trigger a
+ * reload within one poll interval.
+ */
+@Startup
+@Singleton
+@DependsOn("DatabaseInitializer")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class SlotAvailabilityEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(SlotAvailabilityEJB.class.getName());
+
+    /** Key of this index's row in change_stamp. */
+    static final String STAMP_NAME = "time_slot";
+
+    // Transaction resource marking that the stamp bump is already registered
+    private static final Object STAMP_BUMPED = new Object();
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Resource
+    private SessionContext context;
+
+    private static final class FreeSlot {
+        final Integer slotId;
+        final Long artistId;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        FreeSlot(Integer slotId, Long artistId, LocalDateTime start, LocalDateTime end) {
+            this.slotId = slotId;
+            this.artistId = artistId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final class Index {
+        final Map<Long, NavigableMap<LocalDateTime, FreeSlot>> byArtist = new ConcurrentHashMap<>();
+        final Map<Integer, FreeSlot> bySlot = new ConcurrentHashMap<>();
+        final LocalDate loadedFrom;
+
+        Index(LocalDate loadedFrom) {
+            this.loadedFrom = loadedFrom;
+        }
+
+        void put(FreeSlot s) {
+            remove(s.slotId);
+            bySlot.put(s.slotId, s);
+            byArtist.computeIfAbsent(s.artistId, k -> new ConcurrentSkipListMap<>()).put(s.start, s);
+        }
+
+        void remove(Integer slotId) {
+            FreeSlot old = bySlot.remove(slotId);
+            if (old != null) {
+                NavigableMap<LocalDateTime, FreeSlot> slots = byArtist.get(old.artistId);
+                if (slots != null) slots.remove(old.start, old);
+            }
+        }
+    }
+
+    private volatile Index index = new Index(LocalDate.now());
+    private volatile String stamp;
+
+    // -------------------------------------------------------
+    // Loading
+    // -------------------------------------------------------
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        try {
+            reloadAll();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Slot availability index warm-up failed", e);
+        }
+    }
+
+    /** Rebuilds the whole index from the database. */
+    public void reloadAll() {
+        String current = readStamp();
+        LocalDate from = LocalDate.now();
+        Index fresh = new Index(from);
+        for (FreeSlot s : loadFreeSlots(null, from)) {
+            fresh.put(s);
+        }
+        index = fresh;
+        stamp = current;
+        LOGGER.info("Slot availability index loaded " + fresh.bySlot.size() + " free slot(s).");
+    }
+
+    private void reloadArtist(Long artistId) {
+        Index idx = index;
+        List<FreeSlot> fresh = loadFreeSlots(artistId, idx.loadedFrom);
+        NavigableMap<LocalDateTime, FreeSlot> old = idx.byArtist.remove(artistId);
+        if (old != null) {
+            for (FreeSlot s : old.values()) idx.bySlot.remove(s.slotId, s);
+        }
+        for (FreeSlot s : fresh) idx.put(s);
+    }
+
+    private List<FreeSlot> loadFreeSlots(Long artistId, LocalDate from) {
+        TypedQuery<Object[]> q = em.createQuery(
+                "SELECT t.slotId, t.artist.userId, t.startTime, t.endTime FROM TimeSlot t " +
+                "WHERE t.status = :available AND t.startTime >= :from" +
+                (artistId != null ? " AND t.artist.userId = :artistId" : ""),
+                Object[].class)
+            .setParameter("available", TimeSlot.TimeSlotStatus.AVAILABLE)
+            .setParameter("from", from.atStartOfDay());
+        if (artistId != null) q.setParameter("artistId", artistId);
+        List<Object[]> rows = q.getResultList();
+
+        List<FreeSlot> result = new ArrayList<>(rows.size());
+        for (Object[] r : rows) {
+            result.add(new FreeSlot((Integer) r[0], (Long) r[1], (LocalDateTime) r[2], (LocalDateTime) r[3]));
+        }
+        return result;
+    }
+
+    // One primary-key row; every reporting transaction increments it
+    private String readStamp() {
+        List<?> r = em.createNativeQuery("SELECT VERSION FROM change_stamp WHERE NAME = ?")
+            .setParameter(1, STAMP_NAME)
+            .getResultList();
+        return r.isEmpty() ? "" : String.valueOf(r.get(0));
+    }
+
+    /**
+     * Increments the shared stamp in its own transaction, so the row lock is
+     * held only for this one statement. Called after a writer commits.
+     *
+     * @return the new stamp value, or -1 when the stamp row is missing
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public long bumpStamp() {
+        int rows = em.createNativeQuery("UPDATE change_stamp SET VERSION = VERSION + 1 WHERE NAME = ?")
+            .setParameter(1, STAMP_NAME)
+            .executeUpdate();
+        if (rows == 0) return -1;
+        return ((Number) em.createNativeQuery("SELECT VERSION FROM change_stamp WHERE NAME = ?")
+            .setParameter(1, STAMP_NAME)
+            .getSingleResult()).longValue();
+    }
+
+    // Once per committed transaction; the local index already has the change,
+    // so when nobody else bumped in between this node skips its own reload
+    private void bumpStampAfterCommit() {
+        if (txRegistry.getResource(STAMP_BUMPED) != null) return;
+        txRegistry.putResource(STAMP_BUMPED, Boolean.TRUE);
+        SlotAvailabilityEJB self = context.getBusinessObject(SlotAvailabilityEJB.class);
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED) return;
+                try {
+                    long bumped = self.bumpStamp();
+                    if (bumped > 0 && String.valueOf(bumped - 1).equals(stamp)) {
+                        stamp = String.valueOf(bumped);
+                    }
+                } catch (Exception e) {
+                    // Other nodes catch up at the day roll or their next own change
+                    LOGGER.log(Level.WARNING, "Slot availability stamp bump failed", e);
+                }
+            }
+        });
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void checkStamp() {
+        try {
+            boolean dayRolled = !index.loadedFrom.equals(LocalDate.now());
+            if (dayRolled || !readStamp().equals(stamp)) {
+                reloadAll();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Slot availability stamp check failed", e);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Transitions (applied after the caller's transaction commits)
+    // -------------------------------------------------------
+
+    /** Records the slot's current status: AVAILABLE slots are indexed, anything else is dropped. */
+    public void slotChanged(TimeSlot slot) {
+        if (slot == null || slot.getSlotId() == null) return;
+        Integer slotId = slot.getSlotId();
+        FreeSlot free = slot.getStatus() == TimeSlot.TimeSlotStatus.AVAILABLE && slot.getArtist() != null
+                ? new FreeSlot(slotId, slot.getArtist().getUserId(), slot.getStartTime(), slot.getEndTime())
+                : null;
+        afterCommit(() -> {
+            Index idx = index;
+            if (free != null && !free.start.toLocalDate().isBefore(idx.loadedFrom)) {
+                idx.put(free);
+            } else {
+                idx.remove(slotId);
+            }
+        });
+    }
+
+    /** Slot booked through a bulk claim, where no entity state is at hand. */
+    public void slotTaken(Integer slotId) {
+        if (slotId == null) return;
+        afterCommit(() -> index.remove(slotId));
+    }
+
+    /** Many slots of one artist changed at once (generation, purge). */
+    public void artistSlotsChanged(Long artistId) {
+        if (artistId == null) return;
+        afterCommit(() -> reloadArtist(artistId));
+    }
+
+    /**
+     * Applies the change once the caller's transaction commits. Without a
+     * transaction the write is already durable, so it applies at once; a
+     * transaction already marked for rollback is ignored.
+     */
+    private void afterCommit(Runnable action) {
+        int status = txRegistry.getTransactionStatus();
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            action.run();
+            return;
+        }
+        if (status != Status.STATUS_ACTIVE) return;
+
+        bumpStampAfterCommit();
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    try {
+                        action.run();
+                    } catch (Exception e) {
+                        // Next stamp check will reload
+                        stamp = null;
+                    }
+                }
+            }
+        });
+    }
+
+    // -------------------------------------------------------
+    // Reads (no database access for today and later)
+    // -------------------------------------------------------
+
+    /** Free slots of one artist starting at or after {@code from}. */
+    public List<TimeSlot> getAvailableFrom(Long artistId, LocalDateTime from) {
+        NavigableMap<LocalDateTime, FreeSlot> slots = artistId == null ? null : index.byArtist.get(artistId);
+        if (slots == null) return Collections.emptyList();
+        return toTimeSlots(from == null ? slots.values() : slots.tailMap(from, true).values());
+    }
+
+    /** Free slots of one artist starting on the given day. */
+    public List<TimeSlot> getAvailableOnDate(Long artistId, LocalDate date) {
+        if (artistId == null || date == null) return Collections.emptyList();
+        Index idx = index;
+        if (date.isBefore(idx.loadedFrom)) {
+            return loadPastDay(artistId, date);
+        }
+        NavigableMap<LocalDateTime, FreeSlot> slots = idx.byArtist.get(artistId);
+        if (slots == null) return Collections.emptyList();
+        return toTimeSlots(slots.subMap(date.atStartOfDay(), true, date.plusDays(1).atStartOfDay(), false).values());
+    }
+
+    /** Free slots of every artist starting on the given day, ordered by start time. */
+    public List<TimeSlot> getAvailableOnDate(LocalDate date) {
+        if (date == null) return Collections.emptyList();
+        Index idx = index;
+        if (date.isBefore(idx.loadedFrom)) {
+            return loadPastDay(null, date);
+        }
+        List<FreeSlot> all = new ArrayList<>();
+        for (NavigableMap<LocalDateTime, FreeSlot> slots : idx.byArtist.values()) {
+            all.addAll(slots.subMap(date.atStartOfDay(), true, date.plusDays(1).atStartOfDay(), false).values());
+        }
+        all.sort(Comparator.comparing((FreeSlot s) -> s.start));
+        return toTimeSlots(all);
+    }
+
+    public boolean isAvailable(Integer slotId) {
+        return slotId != null && index.bySlot.containsKey(slotId);
+    }
+
+    // Days before the index window are rare (history views); serve them from the table
+    private List<TimeSlot> loadPastDay(Long artistId, LocalDate date) {
+        TypedQuery<Object[]> q = em.createQuery(
+                "SELECT t.slotId, t.artist.userId, t.startTime, t.endTime FROM TimeSlot t " +
+                "WHERE t.status = :available AND t.startTime >= :start AND t.startTime < :end" +
+                (artistId != null ? " AND t.artist.userId = :artistId" : "") +
+                " ORDER BY t.startTime",
+                Object[].class)
+            .setParameter("available", TimeSlot.TimeSlotStatus.AVAILABLE)
+            .setParameter("start", date.atStartOfDay())
+            .setParameter("end", date.plusDays(1).atStartOfDay());
+        if (artistId != null) q.setParameter("artistId", artistId);
+
+        List<FreeSlot> result = new ArrayList<>();
+        for (Object[] r : q.getResultList()) {
+            result.add(new FreeSlot((Integer) r[0], (Long) r[1], (LocalDateTime) r[2], (LocalDateTime) r[3]));
+        }
+        return toTimeSlots(result);
+    }
+
+    // Unmanaged slot copies carrying the real artist row, loaded once per distinct artist
+    private List<TimeSlot> toTimeSlots(Iterable<FreeSlot> slots) {
+        Set<Long> artistIds = new HashSet<>();
+        for (FreeSlot s : slots) artistIds.add(s.artistId);
+        Map<Long, AppUser> artists = new HashMap<>();
+        if (artistIds.size() == 1) {
+            Long id = artistIds.iterator().next();
+            artists.put(id, em.find(AppUser.class, id));
+        } else if (!artistIds.isEmpty()) {
+            for (AppUser u : em.createQuery("SELECT u FROM AppUser u WHERE u.userId IN :ids", AppUser.class)
+                    .setParameter("ids", artistIds)
+                    .getResultList()) {
+                artists.put(u.getUserId(), u);
+            }
+        }
+
+        List<TimeSlot> result = new ArrayList<>();
+        for (FreeSlot s : slots) {
+            TimeSlot t = new TimeSlot();
+            t.setSlotId(s.slotId);
+            t.setArtist(artists.get(s.artistId));
+            t.setStartTime(s.start);
+            t.setEndTime(s.end);
+            t.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
+            result.add(t);
+        }
+        return result;
+    }
+}
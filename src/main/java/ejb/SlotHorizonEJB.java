@@ -0,0 +1,181 @@
+package ejb;
+
+import dto.SlotGenerationResultDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps every artist's calendar materialized HORIZON_DAYS ahead from their
+ * ArtistSchedule rows and purges past AVAILABLE slots nightly.
+ *
+ * Each run only generates the days that entered the horizon since the last
+ * run (the full window after a restart, started in the background when the
+ * bean is deployed). Generation skips slots that already exist and the
+ * unique (ARTIST_ID, STARTTIME) index drops any row another node inserted
+ * first, so overlapping or repeated runs are harmless. Only one run at a
+ * time does the work; a run requested while another is in progress is
+ * skipped, and callers are never blocked behind it.
+ */
+@Startup
+@Singleton
+@DependsOn("DatabaseInitializer")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SlotHorizonEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(SlotHorizonEJB.class.getName());
+
+    /** How many days ahead slots are kept materialized. */
+    public static final int HORIZON_DAYS = 14;
+
+    /** Length of generated slots, same as the artist "next 7 days" action. */
+    private static final int SLOT_MINUTES = 60;
+
+    /** Upper bound on artist chunks processed concurrently. */
+    private static final int MAX_PARALLEL = 4;
+
+    /** AVAILABLE slots that ended longer ago than this are purged. */
+    private static final int PURGE_AFTER_DAYS = 1;
+
+    @EJB
+    private TimeSlotEJB timeSlotEJB;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Resource
+    private SessionContext context;
+
+    // Last day already covered by a completed run; null until the first run.
+    private volatile LocalDate materializedUntil;
+
+    // Set while a run is generating slots
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Fills the horizon right after deployment instead of waiting for the
+     * nightly timer. Runs through the business proxy on the executor so
+     * deployment is not held up and the call gets its own transaction context.
+     */
+    @PostConstruct
+    void init() {
+        SlotHorizonEJB self = context.getBusinessObject(SlotHorizonEJB.class);
+        executor.submit(() -> {
+            try {
+                self.extendHorizon();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Startup slot horizon fill failed", e);
+            }
+        });
+    }
+
+    @Schedule(hour = "0", minute = "15", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void nightly() {
+        extendHorizon();
+        purgePastSlots();
+    }
+
+    /**
+     * Generates slots for the days between the previous horizon and
+     * today + HORIZON_DAYS for all schedulable artists. Returns 0 without
+     * doing anything when another run is still in progress.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int extendHorizon() {
+        if (!running.compareAndSet(false, true)) {
+            LOGGER.info("Slot horizon run already in progress, skipping.");
+            return 0;
+        }
+        try {
+            return runExtendHorizon();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int runExtendHorizon() {
+        LocalDate today = LocalDate.now();
+        LocalDate horizonEnd = today.plusDays(HORIZON_DAYS);
+        LocalDate from = (materializedUntil == null || materializedUntil.isBefore(today))
+                ? today
+                : materializedUntil.plusDays(1);
+        if (from.isAfter(horizonEnd)) return 0;
+
+        List<Long> artistIds = timeSlotEJB.listSchedulableArtistIds();
+        if (artistIds.isEmpty()) {
+            materializedUntil = horizonEnd;
+            return 0;
+        }
+
+        // Round-robin the artists into at most MAX_PARALLEL chunks
+        int chunks = Math.min(MAX_PARALLEL, artistIds.size());
+        List<List<Long>> buckets = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) buckets.add(new ArrayList<>());
+        for (int i = 0; i < artistIds.size(); i++) buckets.get(i % chunks).add(artistIds.get(i));
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        for (List<Long> bucket : buckets) {
+            futures.add(executor.submit(() -> {
+                for (Long artistId : bucket) {
+                    try {
+                        // Each call runs in its own transaction, one artist at a time
+                        SlotGenerationResultDTO r = timeSlotEJB.generateSlots(
+                                artistId, from, horizonEnd, SLOT_MINUTES, false);
+                        created.addAndGet(r.getCreated());
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        LOGGER.log(Level.WARNING, "Slot horizon failed for artist " + artistId, e);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> f : futures) {
+            try {
+                f.get(30, TimeUnit.MINUTES);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Slot horizon chunk did not complete", e);
+            }
+        }
+
+        // Only advance when every artist succeeded so failures are retried next run
+        if (failed.get() == 0) {
+            materializedUntil = horizonEnd;
+        }
+        LOGGER.info("Slot horizon " + from + " -> " + horizonEnd + ": created " + created.get()
+                + " slot(s) for " + artistIds.size() + " artist(s), " + failed.get() + " failure(s).");
+        return created.get();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int purgePastSlots() {
+        int removed = timeSlotEJB.purgePastAvailableSlots(LocalDateTime.now().minusDays(PURGE_AFTER_DAYS));
+        LOGGER.info("Purged " + removed + " past AVAILABLE slot(s).");
+        return removed;
+    }
+}
@@ -1,17 +1,31 @@
 package ejb;
 
+import dto.SlotClaimResult;
+import dto.SlotGenerationResultDTO;
+import entities.Appointment;
 import entities.ArtistSchedule;
 import entities.TimeSlot;
 import entities.AppUser;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 @Stateless
 public class TimeSlotEJB {
@@ -19,35 +33,277 @@ public class TimeSlotEJB {
     @PersistenceContext
     private EntityManager em;
 
+    @Resource(lookup = "jdbc/TattooStudioManagement")
+    private DataSource dataSource;
+
+    // Database dialect for the conflict-skipping slot insert; resolved once per JVM.
+    private static volatile Boolean mysql;
+
+    @EJB
+    private SlotAvailabilityEJB slotAvailability;
+
+    @EJB
+    private RevenueRollupEJB revenueRollup;
+
     // Generate slots for a given artist & date
     public void generateSlotsForDate(AppUser artist, LocalDate date, int slotDurationMinutes) {
-        // Fetch schedule for this day
-        ArtistSchedule schedule = em.createQuery(
-                "SELECT s FROM ArtistSchedule s WHERE s.artist = :artist AND s.dayOfWeek = :dow AND s.isWorking = true",
+        generateSlots(artist.getUserId(), date, date, slotDurationMinutes, false);
+    }
+
+    // -------------------------------------------------------
+    // Bulk generation
+    // -------------------------------------------------------
+
+    /** Rows per multi-row INSERT statement. */
+    private static final int INSERT_BATCH_SIZE = 100;
+
+    /**
+     * Generates AVAILABLE slots from the artist's weekly schedule for every
+     * day in [startDate, endDate]. Existing slots in the range are loaded once
+     * into a sorted map and candidates overlapping any of them are skipped, so
+     * the run costs a handful of statements instead of one query per slot.
+     *
+     * @param replaceAvailable when true, unreferenced AVAILABLE slots in the
+     *        range are deleted first so the grid can be regenerated with a new
+     *        duration; BOOKED / BLOCKED / PENDING slots are always kept.
+     */
+    public SlotGenerationResultDTO generateSlots(Long artistId, LocalDate startDate, LocalDate endDate,
+                                                 int slotDurationMinutes, boolean replaceAvailable) {
+        if (artistId == null) throw new IllegalArgumentException("Artist ID must not be null.");
+        if (slotDurationMinutes <= 0) throw new IllegalArgumentException("Slot duration must be positive.");
+
+        SlotGenerationResultDTO result = new SlotGenerationResultDTO(artistId, startDate, endDate);
+        LocalDateTime rangeStart = startDate.atStartOfDay();
+        LocalDateTime rangeEnd = endDate.plusDays(1).atStartOfDay();
+
+        if (replaceAvailable) {
+            result.setRemoved(em.createQuery(
+                    "DELETE FROM TimeSlot t WHERE t.artist.userId = :artistId " +
+                    "AND t.startTime >= :start AND t.endTime <= :end " +
+                    "AND t.status = :available " +
+                    "AND NOT EXISTS (SELECT a FROM Appointment a WHERE a.slot = t)")
+                .setParameter("artistId", artistId)
+                .setParameter("start", rangeStart)
+                .setParameter("end", rangeEnd)
+                .setParameter("available", TimeSlot.TimeSlotStatus.AVAILABLE)
+                .executeUpdate());
+            // Reported before any early return below; the delete alone changes the calendar
+            if (result.getRemoved() > 0) slotAvailability.artistSlotsChanged(artistId);
+        }
+
+        // Working hours per day of week, loaded once
+        Map<DayOfWeek, ArtistSchedule> schedule = new EnumMap<>(DayOfWeek.class);
+        for (ArtistSchedule s : em.createQuery(
+                "SELECT s FROM ArtistSchedule s WHERE s.artist.userId = :artistId AND s.isWorking = true",
                 ArtistSchedule.class)
-                .setParameter("artist", artist)
-                .setParameter("dow", date.getDayOfWeek())
-                .getResultStream()
-                .findFirst()
-                .orElse(null);
+                .setParameter("artistId", artistId)
+                .getResultList()) {
+            schedule.put(s.getDayOfWeek(), s);
+        }
+        if (schedule.isEmpty()) return result;
+
+        // Existing slots in the range: start -> end, sorted
+        NavigableMap<LocalDateTime, LocalDateTime> existing = new TreeMap<>();
+        for (Object[] row : em.createQuery(
+                "SELECT t.startTime, t.endTime FROM TimeSlot t WHERE t.artist.userId = :artistId " +
+                "AND t.startTime < :end AND t.endTime > :start",
+                Object[].class)
+                .setParameter("artistId", artistId)
+                .setParameter("start", rangeStart)
+                .setParameter("end", rangeEnd)
+                .getResultList()) {
+            existing.put((LocalDateTime) row[0], (LocalDateTime) row[1]);
+        }
+
+        List<LocalDateTime[]> pending = new ArrayList<>(INSERT_BATCH_SIZE);
+        int created = 0;
+        int skipped = 0;
+
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            ArtistSchedule day = schedule.get(date.getDayOfWeek());
+            if (day == null || day.getStartTime() == null || day.getEndTime() == null) continue;
+
+            LocalDateTime slotStart = date.atTime(day.getStartTime());
+            LocalDateTime shiftEnd = date.atTime(day.getEndTime());
 
-        if (schedule == null) return;
+            while (true) {
+                LocalDateTime slotEnd = slotStart.plusMinutes(slotDurationMinutes);
+                if (slotEnd.isAfter(shiftEnd)) break;
 
-        List<TimeSlot> slots = new ArrayList<>();
-        LocalTime start = schedule.getStartTime();
-        LocalTime end = schedule.getEndTime();
+                if (overlaps(existing, slotStart, slotEnd)) {
+                    skipped++;
+                } else {
+                    pending.add(new LocalDateTime[] { slotStart, slotEnd });
+                    if (pending.size() == INSERT_BATCH_SIZE) {
+                        created += insertAvailableSlots(artistId, pending);
+                        pending.clear();
+                    }
+                }
+                slotStart = slotEnd;
+            }
+        }
+        if (!pending.isEmpty()) {
+            created += insertAvailableSlots(artistId, pending);
+        }
+
+        result.setCreated(created);
+        result.setSkipped(skipped);
+        if (created > 0 && result.getRemoved() == 0) {
+            slotAvailability.artistSlotsChanged(artistId);
+        }
+        return result;
+    }
 
-        while (!start.plusMinutes(slotDurationMinutes).isAfter(end)) {
-            TimeSlot slot = new TimeSlot();
-            slot.setArtist(artist);
-            slot.setStartTime(LocalDateTime.of(date, start));
-            slot.setEndTime(LocalDateTime.of(date, start.plusMinutes(slotDurationMinutes)));
-            slot.setStatus(TimeSlot.TimeSlotStatus.AVAILABLE);
+    private static boolean overlaps(NavigableMap<LocalDateTime, LocalDateTime> existing,
+                                    LocalDateTime start, LocalDateTime end) {
+        Map.Entry<LocalDateTime, LocalDateTime> before = existing.floorEntry(start);
+        if (before != null && before.getValue().isAfter(start)) return true;
+        LocalDateTime next = existing.higherKey(start);
+        return next != null && next.isBefore(end);
+    }
 
-            slots.add(slot);
-            start = start.plusMinutes(slotDurationMinutes);
+    // One multi-row INSERT per batch; the slot rows never become managed entities.
+    // Rows another transaction already inserted for the same artist and start
+    // (UQ_SLOT_ARTIST_START) are skipped, so the count is what was really created.
+    private int insertAvailableSlots(Long artistId, List<LocalDateTime[]> slots) {
+        boolean my = isMySql();
+        StringBuilder sql = new StringBuilder(my ? "INSERT IGNORE" : "INSERT")
+                .append(" INTO time_slot (ARTIST_ID, STARTTIME, ENDTIME, STATUS, VERSION) VALUES ");
+        for (int i = 0; i < slots.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(?, ?, ?, ?, 0)");
         }
+        if (!my) sql.append(" ON CONFLICT DO NOTHING");
+
+        Query q = em.createNativeQuery(sql.toString());
+        int p = 1;
+        for (LocalDateTime[] slot : slots) {
+            q.setParameter(p++, artistId);
+            q.setParameter(p++, slot[0]);
+            q.setParameter(p++, slot[1]);
+            q.setParameter(p++, TimeSlot.TimeSlotStatus.AVAILABLE.name());
+        }
+        return q.executeUpdate();
+    }
+
+    private boolean isMySql() {
+        Boolean cached = mysql;
+        if (cached == null) {
+            try (Connection con = dataSource.getConnection()) {
+                cached = con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot determine database type: " + e.getMessage(), e);
+            }
+            mysql = cached;
+        }
+        return cached;
+    }
+
+    // -------------------------------------------------------
+    // Booking claim
+    // -------------------------------------------------------
+
+    /**
+     * Atomically books a slot for a PENDING appointment. The slot is taken
+     * with a conditional UPDATE ... WHERE status = 'AVAILABLE', so when two
+     * requests race for the same slot exactly one row update succeeds and the
+     * other gets SLOT_TAKEN immediately instead of a late constraint failure.
+     * Ownership and existence checks are the caller's job.
+     *
+     * @param newStatus appointment status to set on success, or null to keep PENDING
+     */
+    public SlotClaimResult claimSlotForAppointment(Long appointmentId, Integer slotId, String newStatus) {
+        int slotRows = em.createQuery(
+                "UPDATE TimeSlot t SET t.status = :booked, t.version = t.version + 1 " +
+                "WHERE t.slotId = :slotId AND t.status = :available")
+            .setParameter("booked", TimeSlot.TimeSlotStatus.BOOKED)
+            .setParameter("available", TimeSlot.TimeSlotStatus.AVAILABLE)
+            .setParameter("slotId", slotId)
+            .executeUpdate();
+        if (slotRows == 0) {
+            return SlotClaimResult.SLOT_TAKEN;
+        }
+
+        TimeSlot slotRef = em.getReference(TimeSlot.class, slotId);
+
+        // Cancelled/rejected appointments may still point at the freed slot; detach them
+        // so the unique SLOT_ID constraint cannot fail at commit.
+        em.createQuery(
+                "UPDATE Appointment a SET a.slot = NULL, a.version = a.version + 1 " +
+                "WHERE a.slot = :slot AND a.appointmentId <> :apptId " +
+                "AND a.status IN ('CANCELLED', 'REJECTED')")
+            .setParameter("slot", slotRef)
+            .setParameter("apptId", appointmentId)
+            .executeUpdate();
+
+        LocalDateTime slotStart = em.createQuery(
+                "SELECT t.startTime FROM TimeSlot t WHERE t.slotId = :slotId", LocalDateTime.class)
+            .setParameter("slotId", slotId)
+            .getSingleResult();
+
+        Query apptClaim = em.createQuery(
+                "UPDATE Appointment a SET a.slot = :slot, a.appointmentDateTime = :start, " +
+                (newStatus != null ? "a.status = :newStatus, " : "") +
+                "a.version = a.version + 1 " +
+                "WHERE a.appointmentId = :apptId AND a.status = 'PENDING'")
+            .setParameter("slot", slotRef)
+            .setParameter("start", slotStart)
+            .setParameter("apptId", appointmentId);
+        if (newStatus != null) apptClaim.setParameter("newStatus", newStatus);
+        int apptRows = apptClaim.executeUpdate();
+
+        if (apptRows == 0) {
+            // Appointment moved on concurrently: hand the slot back
+            em.createQuery(
+                    "UPDATE TimeSlot t SET t.status = :available, t.version = t.version + 1 " +
+                    "WHERE t.slotId = :slotId AND t.status = :booked")
+                .setParameter("booked", TimeSlot.TimeSlotStatus.BOOKED)
+                .setParameter("available", TimeSlot.TimeSlotStatus.AVAILABLE)
+                .setParameter("slotId", slotId)
+                .executeUpdate();
+            return SlotClaimResult.APPOINTMENT_NOT_PENDING;
+        }
+
+        // Bulk updates bypass the persistence context; resync any instances the caller holds
+        refreshIfManaged(em.find(TimeSlot.class, slotId));
+        refreshIfManaged(em.find(Appointment.class, appointmentId));
+        slotAvailability.slotTaken(slotId);
+        revenueRollup.touch(slotStart);
+        return SlotClaimResult.CLAIMED;
+    }
+
+    private void refreshIfManaged(Object entity) {
+        if (entity != null && em.contains(entity)) {
+            em.refresh(entity);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Housekeeping
+    // -------------------------------------------------------
+
+    /**
+     * Deletes AVAILABLE slots that ended before the cut-off and were never
+     * attached to an appointment. Booked and blocked history is kept.
+     *
+     * @return number of slots removed
+     */
+    public int purgePastAvailableSlots(LocalDateTime before) {
+        return em.createQuery(
+                "DELETE FROM TimeSlot t WHERE t.endTime < :before " +
+                "AND t.status = :available " +
+                "AND NOT EXISTS (SELECT a FROM Appointment a WHERE a.slot = t)")
+            .setParameter("before", before)
+            .setParameter("available", TimeSlot.TimeSlotStatus.AVAILABLE)
+            .executeUpdate();
+    }
 
-        slots.forEach(em::persist);
+    /** Active artists that have at least one working day configured. */
+    public List<Long> listSchedulableArtistIds() {
+        return em.createQuery(
+                "SELECT DISTINCT s.artist.userId FROM ArtistSchedule s " +
+                "WHERE s.isWorking = true AND s.artist.isActive = true",
+                Long.class)
+            .getResultList();
     }
 }
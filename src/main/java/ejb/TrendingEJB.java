@@ -0,0 +1,327 @@
+package ejb;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory trending engine. Every design carries an exponentially decayed
+ * engagement score; likes, favourites, comments and bookings bump it in
+ * constant time and top-N reads walk a sorted index instead of aggregating
+ * the design table.
+ *
+ * Scores are kept in "forward decay" form relative to a reference instant:
+ * an event of weight w at time t adds w * e^(lambda * (t - ref)). Because all
+ * designs share the same decay factor, ranking by the stored value equals
+ * ranking by the current decayed score, so nothing has to be re-decayed on
+ * read. The reference instant is moved forward when the exponent grows large.
+ *
+ * Events are applied once the caller's transaction commits. Removing an
+ * engagement (unlike, unfavourite, deleted comment) subtracts the weight at
+ * the time the engagement was made, which cancels exactly what it added;
+ * scores are clamped at zero for engagements that predate the restored
+ * snapshot.
+ */
+@Startup
+@Singleton
+@DependsOn("DatabaseInitializer")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TrendingEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(TrendingEJB.class.getName());
+
+    // Event weights
+    public static final double LIKE_WEIGHT = 1.0;
+    public static final double FAVOURITE_WEIGHT = 2.0;
+    public static final double COMMENT_WEIGHT = 1.5;
+    public static final double BOOKING_WEIGHT = 5.0;
+
+    /** A design's score halves every three days without new activity. */
+    private static final Duration HALF_LIFE = Duration.ofDays(3);
+    private static final double LAMBDA = Math.log(2) / HALF_LIFE.getSeconds();
+
+    /** Rebase once stored values reach e^30 so doubles never overflow. */
+    private static final double REBASE_EXPONENT = 30.0;
+
+    @PersistenceContext(unitName = "TattooPU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private static final class Entry {
+        final Long designId;
+        final double value;
+
+        Entry(Long designId, double value) {
+            this.designId = designId;
+            this.value = value;
+        }
+    }
+
+    private static final Comparator<Entry> BY_SCORE_DESC =
+            Comparator.comparingDouble((Entry e) -> e.value).reversed()
+                      .thenComparing(e -> e.designId);
+
+    private final ConcurrentHashMap<Long, Entry> scores = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_SCORE_DESC);
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    // Event updates share the read lock; rebasing the reference takes the write lock.
+    private final ReentrantReadWriteLock rebaseLock = new ReentrantReadWriteLock();
+    private volatile Instant reference = Instant.now();
+
+    // -------------------------------------------------------
+    // Startup: restore from the last snapshot
+    // -------------------------------------------------------
+    @PostConstruct
+    public void init() {
+        try {
+            List<Object[]> rows = em.createQuery(
+                    "SELECT d.designId, d.trendingScore, d.trendingAt, d.likeCount, d.favouriteCount, "
+                    + "d.commentCount, d.uploadedAt FROM TattooDesign d "
+                    + "WHERE (d.isBanned IS NULL OR d.isBanned = false) "
+                    + "AND (d.isRemovedByArtist IS NULL OR d.isRemovedByArtist = false)",
+                    Object[].class)
+                    .getResultList();
+
+            for (Object[] r : rows) {
+                Long designId = (Long) r[0];
+                Double snapshot = (Double) r[1];
+                LocalDateTime snapshotAt = (LocalDateTime) r[2];
+
+                double value;
+                if (snapshot != null && snapshotAt != null) {
+                    value = snapshot * growth(toInstant(snapshotAt));
+                } else {
+                    // No snapshot yet: seed from the counters as if they happened at upload time.
+                    double raw = intValue(r[3]) * LIKE_WEIGHT
+                            + intValue(r[4]) * FAVOURITE_WEIGHT
+                            + intValue(r[5]) * COMMENT_WEIGHT;
+                    LocalDateTime uploadedAt = (LocalDateTime) r[6];
+                    value = raw * growth(uploadedAt != null ? toInstant(uploadedAt) : reference);
+                }
+                if (value > 0) {
+                    Entry e = new Entry(designId, value);
+                    scores.put(designId, e);
+                    ranking.add(e);
+                }
+            }
+            LOGGER.info("TrendingEJB loaded " + scores.size() + " design score(s).");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "TrendingEJB failed to restore scores", e);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Events
+    // -------------------------------------------------------
+
+    /**
+     * @param happenedAt when the engagement was made; for a removal this is
+     *                   the original like time, null means now
+     */
+    public void recordLike(Long designId, int delta, LocalDateTime happenedAt) {
+        record(designId, LIKE_WEIGHT * delta, happenedAt);
+    }
+
+    public void recordFavourite(Long designId, int delta, LocalDateTime happenedAt) {
+        record(designId, FAVOURITE_WEIGHT * delta, happenedAt);
+    }
+
+    public void recordComment(Long designId, int delta, LocalDateTime happenedAt) {
+        record(designId, COMMENT_WEIGHT * delta, happenedAt);
+    }
+
+    public void recordBooking(Long designId) {
+        record(designId, BOOKING_WEIGHT, null);
+    }
+
+    /** Drops a design from the ranking (banned, removed or deleted). */
+    public void remove(Long designId) {
+        if (designId == null) return;
+        afterCommit(() -> {
+            scores.computeIfPresent(designId, (id, old) -> {
+                ranking.remove(old);
+                return null;
+            });
+            dirty.add(designId);
+        });
+    }
+
+    private void record(Long designId, double weight, LocalDateTime happenedAt) {
+        if (designId == null || weight == 0) return;
+        Instant at = happenedAt != null ? toInstant(happenedAt) : Instant.now();
+        afterCommit(() -> apply(designId, weight, at));
+    }
+
+    private void apply(Long designId, double weight, Instant at) {
+        rebaseLock.readLock().lock();
+        try {
+            double delta = weight * growth(at);
+            scores.compute(designId, (id, old) -> {
+                double value = Math.max(0, (old == null ? 0 : old.value) + delta);
+                if (old != null) ranking.remove(old);
+                if (value == 0) return null;
+                Entry e = new Entry(id, value);
+                ranking.add(e);
+                return e;
+            });
+            dirty.add(designId);
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    // Same contract as SlotAvailabilityEJB: nothing happens for a rolled-back transaction
+    private void afterCommit(Runnable action) {
+        int status = txRegistry.getTransactionStatus();
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            action.run();
+            return;
+        }
+        if (status != Status.STATUS_ACTIVE) return;
+
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+
+    /** Design ids ordered by current trending score, highest first. */
+    public List<Long> getTopDesignIds(int start, int max) {
+        List<Long> ids = new ArrayList<>(Math.max(max, 0));
+        int skipped = 0;
+        for (Entry e : ranking) {
+            if (ids.size() >= max) break;
+            if (skipped++ < start) continue;
+            ids.add(e.designId);
+        }
+        return ids;
+    }
+
+    /** Current decayed score of one design, 0 when it has no recent activity. */
+    public double getScore(Long designId) {
+        Entry e = designId == null ? null : scores.get(designId);
+        return e == null ? 0 : e.value / growth(Instant.now());
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    // -------------------------------------------------------
+    // Snapshots
+    // -------------------------------------------------------
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    public void snapshot() {
+        Instant now = Instant.now();
+        if (LAMBDA * Duration.between(reference, now).getSeconds() > REBASE_EXPONENT) {
+            rebase(now);
+        }
+        if (dirty.isEmpty()) return;
+
+        // Taken out up front so events arriving meanwhile mark their design again;
+        // put back unless the writes below commit, so the next run retries them
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED) {
+                    dirty.addAll(ids);
+                    LOGGER.warning("TrendingEJB snapshot rolled back; " + ids.size() + " design(s) kept for the next run.");
+                }
+            }
+        });
+
+        double nowFactor = growth(now);
+        LocalDateTime at = LocalDateTime.ofInstant(now, ZoneId.systemDefault());
+        int written = 0;
+        for (Long id : ids) {
+            Entry e = scores.get(id);
+            written += em.createQuery(
+                    "UPDATE TattooDesign d SET d.trendingScore = :score, d.trendingAt = :at WHERE d.designId = :id")
+                    .setParameter("score", e == null ? null : e.value / nowFactor)
+                    .setParameter("at", e == null ? null : at)
+                    .setParameter("id", id)
+                    .executeUpdate();
+        }
+        LOGGER.info("TrendingEJB snapshot persisted " + written + " design score(s).");
+    }
+
+    private void rebase(Instant newReference) {
+        rebaseLock.writeLock().lock();
+        try {
+            double factor = 1.0 / Math.exp(LAMBDA * Duration.between(reference, newReference).getSeconds());
+            List<Entry> rescaled = new ArrayList<>(scores.size());
+            for (Entry e : scores.values()) {
+                rescaled.add(new Entry(e.designId, e.value * factor));
+            }
+            ranking.clear();
+            scores.clear();
+            for (Entry e : rescaled) {
+                if (e.value > 0) {
+                    scores.put(e.designId, e);
+                    ranking.add(e);
+                }
+            }
+            reference = newReference;
+        } finally {
+            rebaseLock.writeLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Helpers
+    // -------------------------------------------------------
+    private double growth(Instant at) {
+        return Math.exp(LAMBDA * Duration.between(reference, at).getSeconds());
+    }
+
+    private static Instant toInstant(LocalDateTime dt) {
+        return dt.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static int intValue(Object o) {
+        return o == null ? 0 : ((Number) o).intValue();
+    }
+}
@@ -7,7 +7,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointment")
+@Table(name = "appointment",
+        indexes = {
+            @Index(name = "IDX_APPT_ARTIST_STATUS_REQUEST", columnList = "ARTIST_ID, STATUS, REQUEST_DATETIME"),
+            @Index(name = "IDX_APPT_CLIENT_DATETIME", columnList = "CLIENT_ID, APPOINTMENTDATETIME"),
+            @Index(name = "IDX_APPT_DATETIME", columnList = "APPOINTMENTDATETIME")
+        })
 public class Appointment implements Serializable {
 
     @Id
@@ -49,6 +54,10 @@ public class Appointment implements Serializable {
     @Column(name = "STATUS", nullable = false, length = 50)
     private String status; // PENDING, CONFIRMED, COMPLETED, CANCELLED
 
+    @Version
+    @Column(name = "VERSION", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version = 0L;
+
     // FIX: Added missing field to resolve 'cannot find symbol: setCancellationReason(String)'
     @Column(name = "CANCELLATION_REASON", length = 255)
     private String cancellationReason; 
@@ -120,6 +129,9 @@ public void setClientPreferredDate(LocalDate clientPreferredDate) { this.clientP
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
     
     public String getCancellationReason() { return cancellationReason; } // Getter/Setter for Cancellation Reason
     public void setCancellationReason(String cancellationReason) { this.cancellationReason = cancellationReason; }
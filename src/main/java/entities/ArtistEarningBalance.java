@@ -0,0 +1,87 @@
+package entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running earnings ledger per artist, kept in step with EarningLog inserts and
+ * payout settlement by EarningLedgerEJB so the payouts summary is one read.
+ */
+@Entity
+@Table(name = "artist_earning_balance",
+        indexes = @Index(name = "IDX_EARNING_BALANCE_PENDING", columnList = "PENDING_AMOUNT"))
+public class ArtistEarningBalance implements Serializable {
+
+    @Id
+    @Column(name = "ARTIST_ID")
+    private Long artistId;
+
+    // --- UNPAID earning logs ---
+    @Column(name = "PENDING_AMOUNT", nullable = false, precision = 12, scale = 2)
+    private BigDecimal pendingAmount = BigDecimal.ZERO;
+
+    @Column(name = "PENDING_COUNT", nullable = false)
+    private Long pendingCount = 0L;
+
+    // --- PAID payouts ---
+    @Column(name = "PAID_AMOUNT", nullable = false, precision = 12, scale = 2)
+    private BigDecimal paidAmount = BigDecimal.ZERO;
+
+    @Column(name = "PAYOUT_COUNT", nullable = false)
+    private Long payoutCount = 0L;
+
+    @Column(name = "LAST_PAYOUT_AT")
+    private LocalDateTime lastPayoutAt;
+
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+
+    public ArtistEarningBalance() {}
+
+    public ArtistEarningBalance(Long artistId) {
+        this.artistId = artistId;
+    }
+
+    // --- Mutators used by EarningLedgerEJB ---
+
+    public void addEarning(BigDecimal artistShare) {
+        pendingAmount = pendingAmount.add(artistShare != null ? artistShare : BigDecimal.ZERO);
+        pendingCount++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    public void addPayout(BigDecimal amount, long settledLogs, LocalDateTime paidAt) {
+        BigDecimal paid = amount != null ? amount : BigDecimal.ZERO;
+        pendingAmount = pendingAmount.subtract(paid).max(BigDecimal.ZERO);
+        pendingCount = Math.max(0, pendingCount - settledLogs);
+        paidAmount = paidAmount.add(paid);
+        payoutCount++;
+        if (paidAt != null && (lastPayoutAt == null || paidAt.isAfter(lastPayoutAt))) {
+            lastPayoutAt = paidAt;
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Long getArtistId() { return artistId; }
+    public void setArtistId(Long artistId) { this.artistId = artistId; }
+
+    public BigDecimal getPendingAmount() { return pendingAmount; }
+    public void setPendingAmount(BigDecimal pendingAmount) { this.pendingAmount = pendingAmount; }
+
+    public Long getPendingCount() { return pendingCount; }
+    public void setPendingCount(Long pendingCount) { this.pendingCount = pendingCount; }
+
+    public BigDecimal getPaidAmount() { return paidAmount; }
+    public void setPaidAmount(BigDecimal paidAmount) { this.paidAmount = paidAmount; }
+
+    public Long getPayoutCount() { return payoutCount; }
+    public void setPayoutCount(Long payoutCount) { this.payoutCount = payoutCount; }
+
+    public LocalDateTime getLastPayoutAt() { return lastPayoutAt; }
+    public void setLastPayoutAt(LocalDateTime lastPayoutAt) { this.lastPayoutAt = lastPayoutAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
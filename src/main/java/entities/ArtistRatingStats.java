@@ -0,0 +1,141 @@
+package entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Materialized rating aggregate per artist, kept in step with Review and
+ * Feedback writes by RatingStatsEJB so rating reads are primary-key lookups.
+ */
+@Entity
+@Table(name = "artist_rating_stats",
+        indexes = @Index(name = "IDX_RATING_STATS_FEEDBACK", columnList = "FEEDBACK_AVG, FEEDBACK_COUNT"))
+public class ArtistRatingStats implements Serializable {
+
+    @Id
+    @Column(name = "ARTIST_ID")
+    private Long artistId;
+
+    // --- Reviews (artist profile ratings, 1.0 - 5.0) ---
+    @Column(name = "REVIEW_COUNT", nullable = false)
+    private Long reviewCount = 0L;
+
+    @Column(name = "REVIEW_SUM", nullable = false)
+    private Double reviewSum = 0.0;
+
+    @Column(name = "REVIEW_AVG", nullable = false)
+    private Double reviewAverage = 0.0;
+
+    // Histogram of reviews per star (rating rounded to the nearest star)
+    @Column(name = "STAR_1", nullable = false)
+    private Long star1 = 0L;
+
+    @Column(name = "STAR_2", nullable = false)
+    private Long star2 = 0L;
+
+    @Column(name = "STAR_3", nullable = false)
+    private Long star3 = 0L;
+
+    @Column(name = "STAR_4", nullable = false)
+    private Long star4 = 0L;
+
+    @Column(name = "STAR_5", nullable = false)
+    private Long star5 = 0L;
+
+    // --- Appointment feedback (drives top-artist ranking) ---
+    @Column(name = "FEEDBACK_COUNT", nullable = false)
+    private Long feedbackCount = 0L;
+
+    @Column(name = "FEEDBACK_SUM", nullable = false)
+    private Long feedbackSum = 0L;
+
+    @Column(name = "FEEDBACK_AVG", nullable = false)
+    private Double feedbackAverage = 0.0;
+
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+
+    public ArtistRatingStats() {}
+
+    public ArtistRatingStats(Long artistId) {
+        this.artistId = artistId;
+    }
+
+    // --- Mutators used by RatingStatsEJB ---
+
+    public void addReview(double rating, int sign) {
+        reviewCount = Math.max(0, reviewCount + sign);
+        reviewSum = reviewCount == 0 ? 0.0 : reviewSum + sign * rating;
+        reviewAverage = reviewCount == 0 ? 0.0 : reviewSum / reviewCount;
+        switch (toStar(rating)) {
+            case 1: star1 = Math.max(0, star1 + sign); break;
+            case 2: star2 = Math.max(0, star2 + sign); break;
+            case 3: star3 = Math.max(0, star3 + sign); break;
+            case 4: star4 = Math.max(0, star4 + sign); break;
+            default: star5 = Math.max(0, star5 + sign); break;
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    public void addFeedback(int rating) {
+        feedbackCount++;
+        feedbackSum += rating;
+        feedbackAverage = feedbackSum / (double) feedbackCount;
+        updatedAt = LocalDateTime.now();
+    }
+
+    public static int toStar(double rating) {
+        return (int) Math.max(1, Math.min(5, Math.round(rating)));
+    }
+
+    public long getStarCount(int star) {
+        switch (star) {
+            case 1: return star1;
+            case 2: return star2;
+            case 3: return star3;
+            case 4: return star4;
+            case 5: return star5;
+            default: return 0;
+        }
+    }
+
+    public Long getArtistId() { return artistId; }
+    public void setArtistId(Long artistId) { this.artistId = artistId; }
+
+    public Long getReviewCount() { return reviewCount; }
+    public void setReviewCount(Long reviewCount) { this.reviewCount = reviewCount; }
+
+    public Double getReviewSum() { return reviewSum; }
+    public void setReviewSum(Double reviewSum) { this.reviewSum = reviewSum; }
+
+    public Double getReviewAverage() { return reviewAverage; }
+    public void setReviewAverage(Double reviewAverage) { this.reviewAverage = reviewAverage; }
+
+    public Long getStar1() { return star1; }
+    public void setStar1(Long star1) { this.star1 = star1; }
+
+    public Long getStar2() { return star2; }
+    public void setStar2(Long star2) { this.star2 = star2; }
+
+    public Long getStar3() { return star3; }
+    public void setStar3(Long star3) { this.star3 = star3; }
+
+    public Long getStar4() { return star4; }
+    public void setStar4(Long star4) { this.star4 = star4; }
+
+    public Long getStar5() { return star5; }
+    public void setStar5(Long star5) { this.star5 = star5; }
+
+    public Long getFeedbackCount() { return feedbackCount; }
+    public void setFeedbackCount(Long feedbackCount) { this.feedbackCount = feedbackCount; }
+
+    public Long getFeedbackSum() { return feedbackSum; }
+    public void setFeedbackSum(Long feedbackSum) { this.feedbackSum = feedbackSum; }
+
+    public Double getFeedbackAverage() { return feedbackAverage; }
+    public void setFeedbackAverage(Double feedbackAverage) { this.feedbackAverage = feedbackAverage; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -6,6 +6,7 @@ import java.time.DayOfWeek;
 import java.time.LocalTime;
 
 @Entity
+@Cacheable
 @Table(name = "artist_schedule",
         uniqueConstraints = @UniqueConstraint(columnNames = {"ARTIST_ID", "DAY_OF_WEEK"}))
 public class ArtistSchedule implements Serializable {
@@ -0,0 +1,74 @@
+package entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Appointments counted per day or month, artist and status, bucketed by
+ * appointment date. Maintained by RevenueRollupEJB alongside RevenueRollup.
+ */
+@Entity
+@Table(name = "booking_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "UQ_BOOKING_ROLLUP_BUCKET",
+                columnNames = {"GRAIN", "BUCKET_START", "ARTIST_ID", "STATUS"}))
+public class BookingRollup implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ROLLUP_ID")
+    private Long rollupId;
+
+    @Column(name = "GRAIN", nullable = false, length = 1)
+    private String grain; // RevenueRollup.DAY or RevenueRollup.MONTH
+
+    @Column(name = "BUCKET_START", nullable = false)
+    private LocalDate bucketStart;
+
+    @Column(name = "ARTIST_ID", nullable = false)
+    private Long artistId;
+
+    @Column(name = "STATUS", nullable = false, length = 50)
+    private String status;
+
+    @Column(name = "APPOINTMENT_COUNT", nullable = false)
+    private Long appointmentCount = 0L;
+
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+
+    public BookingRollup() {}
+
+    public BookingRollup(String grain, LocalDate bucketStart, Long artistId, String status) {
+        this.grain = grain;
+        this.bucketStart = bucketStart;
+        this.artistId = artistId;
+        this.status = status;
+    }
+
+    public void add(long count) {
+        appointmentCount += count;
+    }
+
+    public Long getRollupId() { return rollupId; }
+    public void setRollupId(Long rollupId) { this.rollupId = rollupId; }
+
+    public String getGrain() { return grain; }
+    public void setGrain(String grain) { this.grain = grain; }
+
+    public LocalDate getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDate bucketStart) { this.bucketStart = bucketStart; }
+
+    public Long getArtistId() { return artistId; }
+    public void setArtistId(Long artistId) { this.artistId = artistId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Long getAppointmentCount() { return appointmentCount; }
+    public void setAppointmentCount(Long appointmentCount) { this.appointmentCount = appointmentCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
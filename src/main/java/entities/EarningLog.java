@@ -6,7 +6,8 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "earning_log")
+@Table(name = "earning_log",
+        indexes = @Index(name = "IDX_EARNING_ARTIST_PAYOUT", columnList = "ARTIST_ID, PAYOUTSTATUS"))
 public class EarningLog implements Serializable {
 
     @Id
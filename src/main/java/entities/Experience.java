@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import java.io.Serializable;
 
 @Entity
+@Cacheable
 @Table(name = "experience")
 public class Experience implements Serializable {
 
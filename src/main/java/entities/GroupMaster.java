@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.util.List;
 
 @Entity
+@Cacheable
 @Table(name = "group_master")
 public class GroupMaster implements Serializable {
 
@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 import java.util.Date;
 
 @Entity
-@Table(name = "payment")
+@Table(name = "payment",
+        indexes = @Index(name = "IDX_PAYMENT_DATE", columnList = "PAYMENT_DATE"))
 public class Payment implements Serializable {
 
     @Id
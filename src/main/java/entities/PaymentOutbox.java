@@ -0,0 +1,89 @@
+package entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Follow-up work for a payment, written in the payment's own transaction and
+ * carried out afterwards by PaymentOutboxEJB. One row per payment and event
+ * type; handlers are idempotent, so a row may safely be processed again.
+ */
+@Entity
+@Table(name = "payment_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "UQ_OUTBOX_PAYMENT_EVENT", columnNames = {"PAYMENT_ID", "EVENT_TYPE"}),
+        indexes = @Index(name = "IDX_OUTBOX_STATUS_AVAILABLE", columnList = "STATUS, AVAILABLE_AT"))
+public class PaymentOutbox implements Serializable {
+
+    public static final String PAYMENT_COMPLETED = "PAYMENT_COMPLETED";
+
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "EVENT_ID")
+    private Long eventId;
+
+    @Column(name = "PAYMENT_ID", nullable = false)
+    private Integer paymentId;
+
+    @Column(name = "EVENT_TYPE", nullable = false, length = 40)
+    private String eventType;
+
+    @Column(name = "STATUS", nullable = false, length = 20)
+    private String status = PENDING; // PENDING, DONE, FAILED
+
+    @Column(name = "ATTEMPTS", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "LAST_ERROR", length = 500)
+    private String lastError;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Earliest time of the next attempt (backoff after a failure)
+    @Column(name = "AVAILABLE_AT", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "PROCESSED_AT")
+    private LocalDateTime processedAt;
+
+    public PaymentOutbox() {}
+
+    public PaymentOutbox(Integer paymentId, String eventType) {
+        this.paymentId = paymentId;
+        this.eventType = eventType;
+        this.createdAt = LocalDateTime.now();
+        this.availableAt = this.createdAt;
+    }
+
+    public Long getEventId() { return eventId; }
+    public void setEventId(Long eventId) { this.eventId = eventId; }
+
+    public Integer getPaymentId() { return paymentId; }
+    public void setPaymentId(Integer paymentId) { this.paymentId = paymentId; }
+
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getAvailableAt() { return availableAt; }
+    public void setAvailableAt(LocalDateTime availableAt) { this.availableAt = availableAt; }
+
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+}
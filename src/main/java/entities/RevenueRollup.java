@@ -0,0 +1,119 @@
+package entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Payments summed per day or month, artist, payment method and status, with
+ * the earning-log shares of those payments. Maintained by RevenueRollupEJB;
+ * payments are bucketed by their payment date.
+ */
+@Entity
+@Table(name = "revenue_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "UQ_REVENUE_ROLLUP_BUCKET",
+                columnNames = {"GRAIN", "BUCKET_START", "ARTIST_ID", "METHOD", "STATUS"}))
+public class RevenueRollup implements Serializable {
+
+    public static final String DAY = "D";
+    public static final String MONTH = "M";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ROLLUP_ID")
+    private Long rollupId;
+
+    @Column(name = "GRAIN", nullable = false, length = 1)
+    private String grain; // D (day) or M (month, BUCKET_START is the 1st)
+
+    @Column(name = "BUCKET_START", nullable = false)
+    private LocalDate bucketStart;
+
+    @Column(name = "ARTIST_ID", nullable = false)
+    private Long artistId;
+
+    @Column(name = "METHOD", nullable = false, length = 50)
+    private String paymentMethod;
+
+    @Column(name = "STATUS", nullable = false, length = 50)
+    private String status;
+
+    @Column(name = "PAYMENT_COUNT", nullable = false)
+    private Long paymentCount = 0L;
+
+    @Column(name = "PAYMENT_AMOUNT", nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Column(name = "ARTIST_SHARE", nullable = false, precision = 14, scale = 2)
+    private BigDecimal artistShare = BigDecimal.ZERO;
+
+    @Column(name = "ADMIN_SHARE", nullable = false, precision = 14, scale = 2)
+    private BigDecimal adminShare = BigDecimal.ZERO;
+
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+
+    public RevenueRollup() {}
+
+    public RevenueRollup(String grain, LocalDate bucketStart, Long artistId, String paymentMethod, String status) {
+        this.grain = grain;
+        this.bucketStart = bucketStart;
+        this.artistId = artistId;
+        this.paymentMethod = paymentMethod;
+        this.status = status;
+    }
+
+    // --- Accumulators used by RevenueRollupEJB ---
+
+    public void addPayment(BigDecimal paymentAmount) {
+        paymentCount++;
+        if (paymentAmount != null) amount = amount.add(paymentAmount);
+    }
+
+    public void addShares(BigDecimal artist, BigDecimal admin) {
+        if (artist != null) artistShare = artistShare.add(artist);
+        if (admin != null) adminShare = adminShare.add(admin);
+    }
+
+    public void add(RevenueRollup other) {
+        paymentCount += other.paymentCount;
+        amount = amount.add(other.amount);
+        artistShare = artistShare.add(other.artistShare);
+        adminShare = adminShare.add(other.adminShare);
+    }
+
+    public Long getRollupId() { return rollupId; }
+    public void setRollupId(Long rollupId) { this.rollupId = rollupId; }
+
+    public String getGrain() { return grain; }
+    public void setGrain(String grain) { this.grain = grain; }
+
+    public LocalDate getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDate bucketStart) { this.bucketStart = bucketStart; }
+
+    public Long getArtistId() { return artistId; }
+    public void setArtistId(Long artistId) { this.artistId = artistId; }
+
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Long getPaymentCount() { return paymentCount; }
+    public void setPaymentCount(Long paymentCount) { this.paymentCount = paymentCount; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public BigDecimal getArtistShare() { return artistShare; }
+    public void setArtistShare(BigDecimal artistShare) { this.artistShare = artistShare; }
+
+    public BigDecimal getAdminShare() { return adminShare; }
+    public void setAdminShare(BigDecimal adminShare) { this.adminShare = adminShare; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -8,7 +8,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "tattoo_design")
+@Table(name = "tattoo_design",
+        indexes = {
+            @Index(name = "IDX_DESIGN_POPULARITY", columnList = "FAVOURITE_COUNT, LIKE_COUNT"),
+            @Index(name = "IDX_DESIGN_VISIBLE_UPLOADED", columnList = "ISBANNED, ISREMOVEDBYARTIST, UPLOADEDAT"),
+            @Index(name = "IDX_DESIGN_PRICE", columnList = "PRICE, DESIGNID")
+        })
 public class TattooDesign implements Serializable {
 
     @Id
@@ -44,6 +49,24 @@ private List<DesignComment> comments;
 
     @Column(name = "UPLOADEDAT")
     private LocalDateTime uploadedAt = LocalDateTime.now();
+
+    // Denormalized engagement counters, maintained by DesignCounterEJB on every
+    // like/favourite/comment write so listings can rank without SIZE() sub-counts.
+    @Column(name = "LIKE_COUNT", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer likeCount = 0;
+
+    @Column(name = "FAVOURITE_COUNT", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer favouriteCount = 0;
+
+    @Column(name = "COMMENT_COUNT", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer commentCount = 0;
+
+    // Last persisted snapshot of the time-decayed trending score (see TrendingEJB).
+    @Column(name = "TRENDING_SCORE")
+    private Double trendingScore;
+
+    @Column(name = "TRENDING_AT")
+    private LocalDateTime trendingAt;
     
     public String getShortDescription() {
     if (description == null) return "";
@@ -74,12 +97,6 @@ private List<DesignComment> comments;
     @OneToMany(mappedBy = "design", cascade = CascadeType.REMOVE, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<DesignFavourite> favourites;
     
-    // --- NEW FIELD FOR FILE TRANSFER ---
-    @Transient // JPA ignores this field
-    // @JsonbTransient // Optional: if you don't want to send this field back in responses
-    private String imageDataBase64; 
-    // -----------------------------------
-
     // Constructors
     public TattooDesign() {}
     
@@ -117,21 +134,27 @@ LocalDateTime removedAt;
     public LocalDateTime getUploadedAt() { return uploadedAt; }
     public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
 
+    public Integer getLikeCount() { return likeCount; }
+    public void setLikeCount(Integer likeCount) { this.likeCount = likeCount; }
+
+    public Integer getFavouriteCount() { return favouriteCount; }
+    public void setFavouriteCount(Integer favouriteCount) { this.favouriteCount = favouriteCount; }
+
+    public Integer getCommentCount() { return commentCount; }
+    public void setCommentCount(Integer commentCount) { this.commentCount = commentCount; }
+
+    public Double getTrendingScore() { return trendingScore; }
+    public void setTrendingScore(Double trendingScore) { this.trendingScore = trendingScore; }
+
+    public LocalDateTime getTrendingAt() { return trendingAt; }
+    public void setTrendingAt(LocalDateTime trendingAt) { this.trendingAt = trendingAt; }
+
     public List<DesignLike> getLikes() { return likes; }
     public void setLikes(List<DesignLike> likes) { this.likes = likes; }
 
     public List<DesignFavourite> getFavourites() { return favourites; }
     public void setFavourites(List<DesignFavourite> favourites) { this.favourites = favourites; }
     
-    // Getter/Setter for new transient field
-    public String getImageDataBase64() {
-        return imageDataBase64;
-    }
-
-    public void setImageDataBase64(String imageDataBase64) {
-        this.imageDataBase64 = imageDataBase64;
-    }
-
     public Boolean getIsBanned() {
         return isBanned;
     }
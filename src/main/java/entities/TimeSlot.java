@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 @Entity
-@Table(name = "time_slot")
+@Table(name = "time_slot",
+        uniqueConstraints = @UniqueConstraint(name = "UQ_SLOT_ARTIST_START", columnNames = {"ARTIST_ID", "STARTTIME"}),
+        indexes = @Index(name = "IDX_SLOT_ARTIST_START_STATUS", columnList = "ARTIST_ID, STARTTIME, STATUS"))
 public class TimeSlot implements Serializable {
 
     @Id
@@ -38,6 +40,11 @@ public class TimeSlot implements Serializable {
     @JoinColumn(name = "BLOCKED_BY_ADMIN_ID")
     private AppUser blockedBy;
 
+    // Optimistic lock; the booking claim in TimeSlotEJB also bumps it.
+    @Version
+    @Column(name = "VERSION", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version = 0L;
+
     public TimeSlot() {}
 
     // Getters and setters 
@@ -47,6 +54,9 @@ public class TimeSlot implements Serializable {
     public AppUser getArtist() { return artist; }
     public void setArtist(AppUser artist) { this.artist = artist; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public LocalDateTime getStartTime() { return startTime; }
     public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
 
@@ -0,0 +1,147 @@
+package filters;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access rules for the web area, compiled once into a trie over path
+ * segments. A rule is registered either for an exact page or for a directory
+ * prefix; lookup walks the request path once and keeps the deepest prefix rule
+ * seen, so the cost is independent of the number of rules.
+ *
+ * Static resources are recognised by file extension (every dot-separated
+ * suffix of the last segment, so Faces resource names like
+ * {@code theme.css.xhtml} count) and by the Faces resource handler path.
+ * Path parameters ({@code ;jsessionid=...}) are removed from every segment
+ * before either check, so they can neither hide a page rule nor pose as an
+ * extension. Classified paths are memoized; the set of pages is small and
+ * fixed.
+ */
+final class RouteTable {
+
+    enum Access {
+        /** CSS, scripts, images, fonts: no checks. */
+        RESOURCE,
+        /** Reachable without login. */
+        PUBLIC,
+        /** Any logged-in user. */
+        AUTHENTICATED,
+        /** Logged-in admins. */
+        ADMIN,
+        /** Logged-in artists; unverified artists are sent to the pending page. */
+        ARTIST,
+        /** Logged-in artists, including unverified ones. */
+        ARTIST_UNVERIFIED_OK
+    }
+
+    private static final Set<String> RESOURCE_EXTENSIONS = Set.of(
+            "css", "js", "map", "png", "jpg", "jpeg", "gif", "svg", "webp", "ico",
+            "woff", "woff2", "ttf", "eot");
+
+    private static final String FACES_RESOURCE_MARKER = "faces.resource/";
+
+    private static final int MAX_MEMOIZED = 4096;
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Access exact;
+        Access prefix;
+    }
+
+    private final Node root = new Node();
+    private final Access fallback;
+    private final Map<String, Access> memo = new ConcurrentHashMap<>();
+
+    RouteTable(Access fallback) {
+        this.fallback = fallback;
+    }
+
+    /** Rule for exactly this page. */
+    RouteTable page(String path, Access access) {
+        node(path).exact = access;
+        return this;
+    }
+
+    /** Rule for every path below this directory (path ends with '/'). */
+    RouteTable prefix(String path, Access access) {
+        node(path).prefix = access;
+        return this;
+    }
+
+    private Node node(String path) {
+        Node n = root;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+            n = n.children.computeIfAbsent(segment, k -> new Node());
+        }
+        return n;
+    }
+
+    Access classify(String path) {
+        path = stripPathParameters(path);
+        Access cached = memo.get(path);
+        if (cached != null) return cached;
+
+        Access access = isResource(path) ? Access.RESOURCE : match(path);
+        if (memo.size() < MAX_MEMOIZED) {
+            memo.put(path, access);
+        }
+        return access;
+    }
+
+    /** "/a;x=1/b.xhtml;jsessionid=2" -&gt; "/a/b.xhtml" */
+    static String stripPathParameters(String path) {
+        if (path.indexOf(';') < 0) return path;
+        StringBuilder sb = new StringBuilder(path.length());
+        int i = 0;
+        int len = path.length();
+        while (i < len) {
+            char c = path.charAt(i);
+            if (c == ';') {
+                // Skip to the end of this segment
+                while (i < len && path.charAt(i) != '/') i++;
+                continue;
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private Access match(String path) {
+        Node n = root;
+        Access best = root.prefix != null ? root.prefix : fallback;
+        int start = 0;
+        int len = path.length();
+        while (start < len) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) end = len;
+            n = n.children.get(path.substring(start, end));
+            if (n == null) return best;
+            // A segment followed by more path is a directory
+            if (end < len && n.prefix != null) best = n.prefix;
+            if (end == len) return n.exact != null ? n.exact : best;
+            start = end;
+        }
+        return best;
+    }
+
+    private static boolean isResource(String path) {
+        if (path.contains(FACES_RESOURCE_MARKER)) return true;
+        int slash = path.lastIndexOf('/');
+        int dot = path.indexOf('.', slash + 1);
+        while (dot >= 0) {
+            int next = path.indexOf('.', dot + 1);
+            String ext = path.substring(dot + 1, next < 0 ? path.length() : next);
+            if (RESOURCE_EXTENSIONS.contains(ext.toLowerCase())) return true;
+            dot = next;
+        }
+        return false;
+    }
+}
@@ -1,12 +1,19 @@
 package filters;
 
 import beans.UserSessionBean;
+import filters.RouteTable.Access;
 import jakarta.inject.Inject;
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @WebFilter(
     filterName = "SecurityFilter",
@@ -14,10 +21,12 @@ import java.io.IOException;
     servletNames = {"Faces Servlet"}
 )
 public class SecurityFilter implements Filter {
-    
+
+    private static final Logger LOGGER = Logger.getLogger(SecurityFilter.class.getName());
+
     @Inject
     private UserSessionBean sessionBean;
-    
+
     // URLs that are accessible without login
     private static final String[] PUBLIC_URLS = {
         "/web/login.xhtml",
@@ -30,173 +39,148 @@ public class SecurityFilter implements Filter {
         "/web/client/home.xhtml",
         "/web/client/designs.xhtml",
         "/web/client/artist-list.xhtml",
-        "/web/client/artist-profile.xhtml",
-        "/web/resources/"  // Allow access to CSS, JS, images
+        "/web/client/artist-profile.xhtml"
     };
-    
-    // URLs that require login but not specific role
-    private static final String[] AUTHENTICATED_URLS = {
-        "/web/client/profile.xhtml",
-        "/web/client/appointments.xhtml",
-        "/web/client/book-appointment.xhtml",
-        "/web/client/my-designs.xhtml"
+
+    // Artist pages an unverified artist may still open
+    private static final String[] ARTIST_UNVERIFIED_URLS = {
+        "/web/artist/pending.xhtml",
+        "/web/artist/profile.xhtml"
     };
-    
+
+    /** Outcome of one access check, for the latency counters. */
+    public enum Decision { RESOURCE, PUBLIC, ALLOWED, LOGIN_REDIRECT, DENIED, PENDING_REDIRECT, ERROR }
+
+    private static final class Counter {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    private static final Map<Decision, Counter> COUNTERS = new EnumMap<>(Decision.class);
+    static {
+        for (Decision d : Decision.values()) COUNTERS.put(d, new Counter());
+    }
+
+    private RouteTable routes;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Anything not listed below needs a login but no particular role (client area, default)
+        RouteTable table = new RouteTable(Access.AUTHENTICATED)
+                .prefix("/web/resources/", Access.RESOURCE)
+                // Served by MediaServlet outside this filter's mapping; kept public should the mapping widen
+                .prefix("/media/", Access.RESOURCE)
+                .prefix("/web/admin/", Access.ADMIN)
+                .prefix("/web/artist/", Access.ARTIST);
+        for (String url : PUBLIC_URLS) table.page(url, Access.PUBLIC);
+        for (String url : ARTIST_UNVERIFIED_URLS) table.page(url, Access.ARTIST_UNVERIFIED_OK);
+        routes = table;
+        LOGGER.info("SecurityFilter initialized");
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        
+
+        long start = System.nanoTime();
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
-        
+
         String contextPath = httpRequest.getContextPath();
-        String requestURI = httpRequest.getRequestURI();
-        String path = requestURI.substring(contextPath.length());
-        
-        // Debug logging (remove in production)
-        System.out.println("SecurityFilter checking: " + path);
-        System.out.println("User logged in: " + (sessionBean != null && sessionBean.isLoggedIn()));
-        if (sessionBean != null && sessionBean.isLoggedIn()) {
-            System.out.println("User role: " + sessionBean.getRole());
-        }
-        
-        // Check if it's a resource request (CSS, JS, images)
-        if (isResourceRequest(path)) {
-            chain.doFilter(request, response);
-            return;
-        }
-        
-        // Check if URL is public
-        if (isPublicUrl(path)) {
-            chain.doFilter(request, response);
-            return;
-        }
-        
-        // If sessionBean is null (CDI injection failed), redirect to error
-        if (sessionBean == null) {
-            System.err.println("SecurityFilter: sessionBean is null - CDI injection failed");
-            httpResponse.sendRedirect(contextPath + "/web/error.xhtml");
-            return;
-        }
-        
-        // Check if user is logged in for authenticated URLs
-        if (!sessionBean.isLoggedIn()) {
-            // Store the attempted URL for redirect after login
-            String redirectUrl = httpRequest.getRequestURI();
-            if (httpRequest.getQueryString() != null) {
-                redirectUrl += "?" + httpRequest.getQueryString();
-            }
-            httpRequest.getSession().setAttribute("redirectAfterLogin", redirectUrl);
-            
-            // Redirect to login
-            httpResponse.sendRedirect(contextPath + "/web/login.xhtml");
-            return;
-        }
-        
-        // Check role-based access
-        if (!hasAccessToPath(path, sessionBean)) {
-            // Log access denied attempt
-            System.out.println("Access denied for user " + sessionBean.getUsername() + 
-                             " to path: " + path + " (Role: " + sessionBean.getRole() + ")");
-            
-            httpResponse.sendRedirect(contextPath + "/web/access-denied.xhtml");
-            return;
+        // Decoded, without ";jsessionid=..." and other path parameters (unlike getRequestURI)
+        String path = httpRequest.getServletPath()
+                + (httpRequest.getPathInfo() != null ? httpRequest.getPathInfo() : "");
+
+        Decision decision = decide(path);
+        record(decision, start);
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("SecurityFilter " + path + " -> " + decision
+                    + (sessionBean != null && sessionBean.isLoggedIn() ? " (role " + sessionBean.getRole() + ")" : ""));
         }
-        
-        // Check artist verification status
-        if (requiresArtistVerification(path, sessionBean)) {
-            httpResponse.sendRedirect(contextPath + "/web/artist/pending.xhtml");
-            return;
+
+        switch (decision) {
+            case RESOURCE:
+            case PUBLIC:
+            case ALLOWED:
+                chain.doFilter(request, response);
+                return;
+            case ERROR:
+                // sessionBean is null (CDI injection failed)
+                LOGGER.severe("SecurityFilter: sessionBean is null - CDI injection failed");
+                httpResponse.sendRedirect(contextPath + "/web/error.xhtml");
+                return;
+            case LOGIN_REDIRECT:
+                // Store the attempted URL for redirect after login
+                String redirectUrl = httpRequest.getRequestURI();
+                if (httpRequest.getQueryString() != null) {
+                    redirectUrl += "?" + httpRequest.getQueryString();
+                }
+                httpRequest.getSession().setAttribute("redirectAfterLogin", redirectUrl);
+                httpResponse.sendRedirect(contextPath + "/web/login.xhtml");
+                return;
+            case DENIED:
+                if (LOGGER.isLoggable(Level.INFO)) {
+                    LOGGER.info("Access denied for user " + sessionBean.getUsername()
+                            + " to path: " + path + " (Role: " + sessionBean.getRole() + ")");
+                }
+                httpResponse.sendRedirect(contextPath + "/web/access-denied.xhtml");
+                return;
+            case PENDING_REDIRECT:
+                httpResponse.sendRedirect(contextPath + "/web/artist/pending.xhtml");
+                return;
+            default:
+                chain.doFilter(request, response);
         }
-        
-        // All checks passed - proceed
-        chain.doFilter(request, response);
     }
-    
-    private boolean isResourceRequest(String path) {
-        return path.startsWith("/web/resources/") || 
-               path.startsWith("/javax.faces.resource/") ||
-               path.contains(".css") || 
-               path.contains(".js") || 
-               path.contains(".png") || 
-               path.contains(".jpg") || 
-               path.contains(".gif") ||
-               path.contains(".ico") ||
-               path.contains(".woff") ||
-               path.contains(".woff2") ||
-               path.contains(".ttf") ||
-               path.contains(".map");
-    }
-    
-    private boolean isPublicUrl(String path) {
-        for (String publicUrl : PUBLIC_URLS) {
-            if (path.equals(publicUrl) || path.startsWith(publicUrl)) {
-                return true;
-            }
+
+    private Decision decide(String path) {
+        Access access = routes.classify(path);
+        if (access == Access.RESOURCE) return Decision.RESOURCE;
+        if (access == Access.PUBLIC) return Decision.PUBLIC;
+
+        if (sessionBean == null) return Decision.ERROR;
+        if (!sessionBean.isLoggedIn()) return Decision.LOGIN_REDIRECT;
+
+        switch (access) {
+            case ADMIN:
+                return sessionBean.isAdmin() ? Decision.ALLOWED : Decision.DENIED;
+            case ARTIST:
+                if (!sessionBean.isArtist()) return Decision.DENIED;
+                return sessionBean.isArtistVerified() ? Decision.ALLOWED : Decision.PENDING_REDIRECT;
+            case ARTIST_UNVERIFIED_OK:
+                return sessionBean.isArtist() ? Decision.ALLOWED : Decision.DENIED;
+            default:
+                return Decision.ALLOWED;
         }
-        return false;
     }
-    
-    private boolean hasAccessToPath(String path, UserSessionBean session) {
-        // Check admin area
-        if (path.startsWith("/web/admin/")) {
-            return session.isAdmin();
-        }
-        
-        // Check artist area
-        if (path.startsWith("/web/artist/")) {
-            // Allow access to pending page for unverified artists
-            if (path.contains("/pending.xhtml")) {
-                return session.isArtist();
-            }
-            return session.isArtist();
-        }
-        
-        // Check client area - any logged in user can access
-        if (path.startsWith("/web/client/")) {
-            // These are public URLs already filtered above
-            // Remaining client URLs require login but any role
-            return true;
-        }
-        
-        // Default: allow access
-        return true;
+
+    private static void record(Decision decision, long startNanos) {
+        Counter c = COUNTERS.get(decision);
+        c.count.increment();
+        c.nanos.add(System.nanoTime() - startNanos);
     }
-    
-    private boolean requiresArtistVerification(String path, UserSessionBean session) {
-        // Only check for artists
-        if (!session.isArtist()) {
-            return false;
-        }
-        
-        // If artist is already verified, no restriction
-        if (session.isArtistVerified()) {
-            return false;
-        }
-        
-        // Unverified artists can only access:
-        // 1. Pending page
-        // 2. Logout
-        // 3. Profile page (maybe)
-        
-        if (path.contains("/pending.xhtml") || 
-            path.contains("/logout") ||
-            path.contains("/profile.xhtml") ||
-            path.contains("/login.xhtml")) {
-            return false;
+
+    /**
+     * Per-decision totals since startup: count, total and mean check time in
+     * microseconds (time to classify, not to serve the page).
+     */
+    public static Map<String, Map<String, Object>> getDecisionStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (Map.Entry<Decision, Counter> e : COUNTERS.entrySet()) {
+            long count = e.getValue().count.sum();
+            long nanos = e.getValue().nanos.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("count", count);
+            row.put("totalMicros", nanos / 1_000);
+            row.put("meanMicros", count == 0 ? 0.0 : nanos / 1_000.0 / count);
+            stats.put(e.getKey().name(), row);
         }
-        
-        // For all other artist pages, require verification
-        return path.startsWith("/web/artist/");
+        return stats;
     }
-    
-    @Override
-    public void init(FilterConfig filterConfig) throws ServletException {
-        System.out.println("SecurityFilter initialized");
-    }
-    
+
     @Override
     public void destroy() {
-        System.out.println("SecurityFilter destroyed");
+        LOGGER.info("SecurityFilter destroyed");
     }
-}
\ No newline at end of file
+}
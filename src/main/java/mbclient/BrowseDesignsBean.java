@@ -1,7 +1,7 @@
 package mbclient;
 
 import entities.TattooDesign;
-import entities.DesignFavourite;
+import dto.DesignSeekKeyDTO;
 import ejb.ClientEJBLocal;
 import beans.UserSessionBean;
 
@@ -16,7 +16,6 @@ import jakarta.inject.Named;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Named("browseDesignsBean")
 @ViewScoped
@@ -44,6 +43,10 @@ public class BrowseDesignsBean implements Serializable {
     private int totalPages = 1;
     private long totalDesigns = 0;
 
+    // page number -> seek key of the row just before it (last row of the previous page)
+    private final TreeMap<Integer, DesignSeekKeyDTO> pageStartKeys = new TreeMap<>();
+    private String lastQuery;
+
     // -------- User State --------
     private Set<Long> userFavourites = new HashSet<>();
     private Set<Long> userLikes = new HashSet<>();
@@ -60,12 +63,7 @@ public class BrowseDesignsBean implements Serializable {
             Long uid = userSessionBean.getUserId();
 
             // favourites
-            List<DesignFavourite> favs =
-                clientEJB.listFavourites(uid, 0, Integer.MAX_VALUE);
-
-            userFavourites = favs.stream()
-                    .map(f -> f.getDesign().getDesignId())
-                    .collect(Collectors.toSet());
+            userFavourites = new HashSet<>(clientEJB.listFavouriteDesignIds(uid));
 
             // likes
             userLikes = new HashSet<>(clientEJB.listLikedDesignIds(uid));
@@ -77,72 +75,32 @@ public class BrowseDesignsBean implements Serializable {
 
     // -------- Search --------
     public void searchDesigns() {
-    int offset = (currentPage - 1) * DESIGNS_PER_PAGE;
-    
-    // Get designs from EJB
-    List<TattooDesign> results = clientEJB.searchDesigns(
-            searchKeyword == null || searchKeyword.isBlank() ? null : searchKeyword,
-            selectedStyle == null || selectedStyle.isBlank() ? null : selectedStyle,
-            minPrice,
-            maxPrice,
-            offset,
-            DESIGNS_PER_PAGE
-    );
-    
-    // Sort the results
-    designs = sortDesigns(results);
-    
-    // Get total count from database
-    totalDesigns = getTotalDesignsCount();
-    totalPages = (int) Math.ceil((double) totalDesigns / DESIGNS_PER_PAGE);
-}
+    String keyword = searchKeyword == null || searchKeyword.isBlank() ? null : searchKeyword;
+    String style = selectedStyle == null || selectedStyle.isBlank() ? null : selectedStyle;
+
+    // New filters or sort order invalidate the remembered page positions
+    String query = String.join("|", String.valueOf(keyword), String.valueOf(style),
+            String.valueOf(minPrice), String.valueOf(maxPrice), sortBy);
+    if (!query.equals(lastQuery)) {
+        lastQuery = query;
+        pageStartKeys.clear();
+        currentPage = 1;
+        totalDesigns = clientEJB.countDesigns(keyword, style, minPrice, maxPrice);
+        totalPages = Math.max(1, (int) Math.ceil((double) totalDesigns / DESIGNS_PER_PAGE));
+    }
+    if (currentPage > totalPages) currentPage = totalPages;
 
-    // -------- Sorting --------
-    private List<TattooDesign> sortDesigns(List<TattooDesign> input) {
-        if (input == null || input.isEmpty()) return input;
+    // Seek from the closest earlier page whose start is known; skip only the pages in between
+    Map.Entry<Integer, DesignSeekKeyDTO> anchor = pageStartKeys.floorEntry(currentPage);
+    DesignSeekKeyDTO anchorKey = anchor != null ? anchor.getValue() : null;
+    int skip = (currentPage - (anchor != null ? anchor.getKey() : 1)) * DESIGNS_PER_PAGE;
 
-    List<TattooDesign> sorted = new ArrayList<>(input);
-    
-    switch (sortBy) {
-        case "newest":
-            sorted.sort((a, b) -> {
-                if (a.getUploadedAt() == null && b.getUploadedAt() == null) return 0;
-                if (a.getUploadedAt() == null) return 1;
-                if (b.getUploadedAt() == null) return -1;
-                return b.getUploadedAt().compareTo(a.getUploadedAt());
-            });
-            break;
-
-        case "popular":
-            sorted.sort((a, b) -> {
-                int aLikes = a.getLikes() != null ? a.getLikes().size() : 0;
-                int aFavs = a.getFavourites() != null ? a.getFavourites().size() : 0;
-                int bLikes = b.getLikes() != null ? b.getLikes().size() : 0;
-                int bFavs = b.getFavourites() != null ? b.getFavourites().size() : 0;
-                int aScore = aLikes + aFavs;
-                int bScore = bLikes + bFavs;
-                return Integer.compare(bScore, aScore);
-            });
-            break;
-
-        case "price_low":
-            sorted.sort((a, b) -> {
-                BigDecimal aPrice = a.getPrice() != null ? a.getPrice() : BigDecimal.ZERO;
-                BigDecimal bPrice = b.getPrice() != null ? b.getPrice() : BigDecimal.ZERO;
-                return aPrice.compareTo(bPrice);
-            });
-            break;
-
-        case "price_high":
-            sorted.sort((a, b) -> {
-                BigDecimal aPrice = a.getPrice() != null ? a.getPrice() : BigDecimal.ZERO;
-                BigDecimal bPrice = b.getPrice() != null ? b.getPrice() : BigDecimal.ZERO;
-                return bPrice.compareTo(aPrice);
-            });
-            break;
-    }
-    return sorted;
+    designs = clientEJB.browseDesigns(keyword, style, minPrice, maxPrice, sortBy, anchorKey, skip, DESIGNS_PER_PAGE);
+
+    if (!designs.isEmpty()) {
+        pageStartKeys.put(currentPage + 1, DesignSeekKeyDTO.of(designs.get(designs.size() - 1)));
     }
+}
 
     // -------- Like / Favourite --------
     public void toggleLike(Long designId) {
@@ -250,15 +208,5 @@ public void clearFilters() {
     searchDesigns();
 }
 
-// Update the searchDesigns method to fix pagination
-
-
-// Add this method to get total count
-private long getTotalDesignsCount() {
-    // You need to implement a count method in ClientEJB
-    // For now, return designs.size() * 2 as placeholder
-    return designs.size();
-}
-
 
 }
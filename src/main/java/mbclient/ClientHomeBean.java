@@ -1,5 +1,6 @@
 package mbclient;
 
+import artistDTO.DesignListingDTO;
 import entities.*;
 import ejb.ClientEJBLocal;
 import beans.UserSessionBean;
@@ -33,7 +34,7 @@ public class ClientHomeBean implements Serializable {
     
     // Recent Data
     private List<Appointment> recentAppointments = Collections.emptyList();
-    private List<TattooDesign> recommendedDesigns = Collections.emptyList();
+    private List<DesignListingDTO> recommendedDesigns = Collections.emptyList();
     private List<AppUser> topArtists = Collections.emptyList();
     private List<TattooDesign> trendingDesigns = Collections.emptyList();
     private List<String> availableStyles = Collections.emptyList();
@@ -152,7 +153,7 @@ public void init() {
     public Long getTotalFavourites() { return totalFavourites; }
     public Long getPendingMedicalForms() { return pendingMedicalForms; }
     public List<Appointment> getRecentAppointments() { return recentAppointments; }
-    public List<TattooDesign> getRecommendedDesigns() { return recommendedDesigns; }
+    public List<DesignListingDTO> getRecommendedDesigns() { return recommendedDesigns; }
     public List<AppUser> getTopArtists() { return topArtists; }
     public List<TattooDesign> getTrendingDesigns() { return trendingDesigns; }
     public List<String> getAvailableStyles() { return availableStyles; }
@@ -2,8 +2,6 @@ package beans;
 
 import clientDTO.FavouriteDesignDTO;
 import ejb.ClientEJBLocal;
-import entities.DesignFavourite;
-import entities.TattooDesign;
 import jakarta.annotation.PostConstruct;
 import jakarta.ejb.EJB;
 import jakarta.faces.view.ViewScoped;
@@ -38,24 +36,8 @@ public class FavouriteDesignBean implements Serializable {
             return; // not logged in
         }
 
-        List<DesignFavourite> favEntities =
-                clientEJB.listFavourites(clientId, 0, 100);
-
-        for (DesignFavourite fav : favEntities) {
-            TattooDesign d = fav.getDesign();
-
-            FavouriteDesignDTO dto = new FavouriteDesignDTO();
-            dto.setDesignId(d.getDesignId());
-            dto.setTitle(d.getTitle());
-            dto.setImagePath(d.getImagePath());
-            dto.setStyle(d.getStyle());
-            dto.setPrice(d.getPrice());
-
-            dto.setArtistId(d.getArtist().getUserId());
-            dto.setArtistName(d.getArtist().getFullName());
-
-            favourites.add(dto);
-        }
+        // Projected straight into DTOs: one statement, no managed entities
+        favourites.addAll(clientEJB.listFavouriteDesigns(clientId, 0, 100));
     }
 
     // -------- navigation helpers --------
@@ -0,0 +1,367 @@
+package media;
+
+import ejb.ImageAssetEJB;
+import jakarta.ejb.EJB;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves images from the content-addressed store.
+ *
+ * <pre>
+ *   /media/&lt;sha&gt;.&lt;ext&gt;           original
+ *   /media/t&lt;width&gt;/&lt;sha&gt;.&lt;ext&gt;  thumbnail (original until it has been rendered)
+ * </pre>
+ *
+ * A URL's content never changes, so stored files are sent with a strong ETag
+ * and {@code Cache-Control: immutable}. A thumbnail that is not rendered yet
+ * falls back to the original with a short max-age so clients pick up the
+ * thumbnail later. Conditional requests (If-None-Match, If-Modified-Since,
+ * If-Range) and single byte ranges are supported.
+ *
+ * Bodies are streamed with non-blocking servlet I/O: the request thread
+ * returns once the response is set up, and a {@link WriteListener} copies the
+ * file through one fixed CHUNK_BYTES buffer whenever the client can take more.
+ * Memory per download is bounded and slow clients do not hold a thread.
+ * Images are already compressed, so no Content-Encoding is applied. File
+ * metadata is kept in a small LRU so a page of thumbnails costs no repeated
+ * stat calls.
+ *
+ * /media is outside SecurityFilter's mapping: stored images are public, like
+ * the static resources the filter lets through.
+ */
+@WebServlet(name = "MediaServlet", urlPatterns = {"/media/*"}, asyncSupported = true)
+public class MediaServlet extends HttpServlet {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String FALLBACK = "public, max-age=60";
+
+    /** Copy buffer per download. */
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    /** Upper bound for one download to a stalled client. */
+    private static final long ASYNC_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+    private static final int MAX_CACHED_FILES = 2048;
+
+    @EJB
+    private ImageAssetEJB imageAssets;
+
+    /** Metadata of a stored file. */
+    private static final class FileInfo {
+        final Path path;
+        final long length;
+        final long lastModified; // whole seconds, as sent in Last-Modified
+        final String contentType;
+
+        FileInfo(Path path, long length, long lastModified, String contentType) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+    }
+
+    // Access-ordered LRU; stored files are immutable, so entries never go stale.
+    // Missing files are not cached, so a thumbnail is picked up once rendered.
+    private final Map<Path, FileInfo> metadata = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, FileInfo> eldest) {
+            return size() > MAX_CACHED_FILES;
+        }
+    };
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        serve(req, resp, true);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        serve(req, resp, false);
+    }
+
+    private void serve(HttpServletRequest req, HttpServletResponse resp, boolean sendBody) throws IOException {
+        String path = req.getPathInfo();
+        if (path == null || path.length() < 2) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Parse "/<key>" or "/t<width>/<key>"
+        String key = path.substring(1);
+        Integer width = null;
+        int slash = key.indexOf('/');
+        if (slash > 0) {
+            String sizePart = key.substring(0, slash);
+            key = key.substring(slash + 1);
+            try {
+                width = sizePart.startsWith("t") ? Integer.valueOf(sizePart.substring(1)) : null;
+            } catch (NumberFormatException e) {
+                width = null;
+            }
+            if (width == null || !ImageAssetEJB.isThumbnailWidth(width)) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        }
+        if (!ImageAssetEJB.isValidKey(key)) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        FileInfo file = null;
+        boolean immutable = true;
+        String tag = key;
+        if (width != null) {
+            file = lookup(imageAssets.thumbnailPath(key, width));
+            if (file != null) {
+                tag = key + "-t" + width;
+            } else {
+                immutable = false;
+            }
+        }
+        if (file == null) file = lookup(imageAssets.originalPath(key));
+        if (file == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + tag + "\"";
+
+        resp.setHeader("ETag", etag);
+        resp.setDateHeader("Last-Modified", file.lastModified);
+        resp.setHeader("Cache-Control", immutable ? IMMUTABLE : FALLBACK);
+        resp.setHeader("Accept-Ranges", "bytes");
+
+        if (notModified(req, etag, file.lastModified)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = file.length;
+        long start = 0;
+        long end = length - 1;
+
+        String range = req.getHeader("Range");
+        if (range != null && ifRangeMatches(req, etag, file.lastModified)) {
+            long[] r = parseRange(range, length);
+            if (r == null) {
+                resp.setHeader("Content-Range", "bytes */" + length);
+                resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (r.length == 2) {
+                start = r[0];
+                end = r[1];
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        resp.setContentType(file.contentType);
+        resp.setContentLengthLong(count);
+        if (!sendBody || count <= 0) return;
+
+        FileChannel in = FileChannel.open(file.path, StandardOpenOption.READ);
+        if (!req.isAsyncSupported()) {
+            // Some filter in the chain is synchronous; copy on this thread instead
+            try (in) {
+                BodyWriter writer = new BodyWriter(in, start, count, resp.getOutputStream(), null);
+                while (writer.writeChunk()) {
+                    // blocking writes
+                }
+            }
+            return;
+        }
+
+        try {
+            AsyncContext async = req.startAsync();
+            async.setTimeout(ASYNC_TIMEOUT_MILLIS);
+            async.addListener(new AsyncListener() {
+                @Override public void onComplete(AsyncEvent event) { closeQuietly(in); }
+                @Override public void onTimeout(AsyncEvent event) { async.complete(); }
+                @Override public void onError(AsyncEvent event) { async.complete(); }
+                @Override public void onStartAsync(AsyncEvent event) { }
+            });
+            ServletOutputStream out = resp.getOutputStream();
+            out.setWriteListener(new BodyWriter(in, start, count, out, async));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(in);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies a byte range of an open file to the response, one chunk at a
+     * time. As a WriteListener it writes while the stream is ready and
+     * completes the async context at the end; the file is closed by the
+     * async listener once the request completes.
+     */
+    private static final class BodyWriter implements WriteListener {
+        private final FileChannel in;
+        private final ServletOutputStream out;
+        private final AsyncContext async;
+        private final byte[] chunk;
+        private long position;
+        private long remaining;
+
+        BodyWriter(FileChannel in, long start, long count, ServletOutputStream out, AsyncContext async) {
+            this.in = in;
+            this.out = out;
+            this.async = async;
+            this.chunk = new byte[(int) Math.min(CHUNK_BYTES, count)];
+            this.position = start;
+            this.remaining = count;
+        }
+
+        /** Writes the next chunk; false once the range is done or the file ended early. */
+        boolean writeChunk() throws IOException {
+            if (remaining <= 0) return false;
+            ByteBuffer buf = ByteBuffer.wrap(chunk, 0, (int) Math.min(chunk.length, remaining));
+            int n = in.read(buf, position);
+            if (n <= 0) {
+                remaining = 0;
+                return false;
+            }
+            out.write(chunk, 0, n);
+            position += n;
+            remaining -= n;
+            return remaining > 0;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            while (out.isReady()) {
+                if (!writeChunk()) {
+                    async.complete();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Client went away; the async listener closes the file
+            async.complete();
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing left to do for a read-only channel
+        }
+    }
+
+    // -------------------------------------------------------
+    // Metadata
+    // -------------------------------------------------------
+
+    private FileInfo lookup(Path path) throws IOException {
+        synchronized (metadata) {
+            FileInfo cached = metadata.get(path);
+            if (cached != null) return cached;
+        }
+        FileInfo info = read(path, ImageAssetEJB.contentType(path));
+        if (info != null) {
+            synchronized (metadata) {
+                metadata.put(path, info);
+            }
+        }
+        return info;
+    }
+
+    private static FileInfo read(Path path, String contentType) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attrs.isRegularFile()) return null;
+
+        long lastModified = attrs.lastModifiedTime().toMillis() / 1000 * 1000;
+        return new FileInfo(path, attrs.size(), lastModified, contentType);
+    }
+
+    // -------------------------------------------------------
+    // Conditional requests
+    // -------------------------------------------------------
+
+    private static boolean notModified(HttpServletRequest req, String etag, long lastModified) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // If-None-Match takes precedence over If-Modified-Since
+            return ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*");
+        }
+        long since = dateHeader(req, "If-Modified-Since");
+        return since >= 0 && lastModified <= since;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest req, String etag, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+        long date = dateHeader(req, "If-Range");
+        return date >= 0 && lastModified <= date;
+    }
+
+    private static long dateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a single "bytes=" range. Returns {start, end}, an empty array
+     * when the header should be ignored (multiple ranges, other units), or
+     * null when the range cannot be satisfied.
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return new long[0];
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return new long[0];
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // Suffix range: last N bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) return null;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1 : Long.parseLong(spec.substring(dash + 1));
+                end = Math.min(end, length - 1);
+            }
+            if (start >= length || start > end) return null;
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
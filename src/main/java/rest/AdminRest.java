@@ -4,17 +4,23 @@ import dto.AppointmentDTO;
 import dto.AppointmentFilterDTO;
 import dto.MedicalFormDTO;
 import dto.MedicalFormFilterDTO;
+import dto.RowSink;
+import dto.SlotClaimResult;
 import dto.TimeSlotDTO;
 import dto.TimeSlotFilterDTO;
 import ejb.AdminEJBLocal;
 import entities.*;
+import filters.SecurityFilter;
 import jakarta.ejb.EJB;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import jakarta.annotation.security.RolesAllowed; // <-- Ensure this is imported!
 import jakarta.ws.rs.core.SecurityContext;
 import java.util.HashMap;
@@ -58,6 +64,14 @@ public class AdminRest {
         }
     }
 
+    // Streaming variant: flat rows written as they are read (JSON array, or NDJSON via Accept)
+    @GET
+    @Path("/users/stream")
+    @Produces({MediaType.APPLICATION_JSON, RowStreams.NDJSON})
+    public Response streamUsers(@Context HttpHeaders headers) {
+        return RowStreams.response(headers, adminEJB::streamUsers);
+    }
+
     @GET
     @Path("/users/{id}")
     public Response getUser(@PathParam("id") Long userId) {
@@ -244,6 +258,13 @@ public Response deleteDesign(@PathParam("id") Long designId) {
         return Response.ok(adminEJB.listAllAppointments(offset, limit)).build();
     }
 
+    @GET
+    @Path("/appointments/stream")
+    @Produces({MediaType.APPLICATION_JSON, RowStreams.NDJSON})
+    public Response streamAppointments(@Context HttpHeaders headers) {
+        return RowStreams.response(headers, sink -> adminEJB.streamAppointments(false, sink));
+    }
+
     @GET
     @Path("/appointments/{id}")
     public Response getAppointment(@PathParam("id") Long id) {
@@ -281,8 +302,14 @@ public Response deleteDesign(@PathParam("id") Long designId) {
         try {
             // Safely parse Integer from String
             Integer slotId = Integer.parseInt(data.get("slotId").toString());
-            adminEJB.assignSlotToAppointment(appointmentId, slotId);
-            return Response.ok(Map.of("success", true, "message", "Slot assigned successfully.")).build();
+            SlotClaimResult result = adminEJB.assignSlotToAppointment(appointmentId, slotId);
+            if (!result.isClaimed()) {
+                // Lost the race for the slot (or the appointment moved on): 409, no rollback noise
+                return Response.status(Response.Status.CONFLICT)
+                               .entity(Map.of("success", false, "result", result.name(), "message", result.getMessage()))
+                               .build();
+            }
+            return Response.ok(Map.of("success", true, "message", result.getMessage())).build();
         } catch (Exception ex) {
             String message = getBusinessMessage(ex);
             // Distinguish between Not Found (404, IllegalArgumentException) and Illegal State/Bad Request (400, IllegalStateException)
@@ -343,6 +370,77 @@ public Response deleteDesign(@PathParam("id") Long designId) {
         return Response.ok(adminEJB.listPayments(offset, limit)).build();
     }
 
+    @GET
+    @Path("/payments/stream")
+    @Produces({MediaType.APPLICATION_JSON, RowStreams.NDJSON})
+    public Response streamPayments(@Context HttpHeaders headers) {
+        return RowStreams.response(headers, adminEJB::streamPayments);
+    }
+
+    // -----------------------
+    // Finance exports
+    // -----------------------
+    // CSV by default, XLSX with format=xlsx; rows are written as they are read.
+    // Optional from/to (yyyy-MM-dd, inclusive) and artistId filters.
+    @GET
+    @Path("/exports/payments")
+    @Produces({RowStreams.CSV, RowStreams.XLSX, MediaType.APPLICATION_JSON})
+    public Response exportPayments(@QueryParam("from") String fromStr, @QueryParam("to") String toStr,
+                                   @QueryParam("artistId") Long artistId,
+                                   @QueryParam("format") @DefaultValue("csv") String format) {
+        return export("payments", fromStr, toStr, format,
+                (from, to) -> sink -> adminEJB.streamPayments(from, to, artistId, sink));
+    }
+
+    @GET
+    @Path("/exports/earnings")
+    @Produces({RowStreams.CSV, RowStreams.XLSX, MediaType.APPLICATION_JSON})
+    public Response exportEarnings(@QueryParam("from") String fromStr, @QueryParam("to") String toStr,
+                                   @QueryParam("artistId") Long artistId,
+                                   @QueryParam("format") @DefaultValue("csv") String format) {
+        return export("earnings", fromStr, toStr, format,
+                (from, to) -> sink -> adminEJB.streamEarningLogs(from, to, artistId, sink));
+    }
+
+    @GET
+    @Path("/exports/payouts")
+    @Produces({RowStreams.CSV, RowStreams.XLSX, MediaType.APPLICATION_JSON})
+    public Response exportPayouts(@QueryParam("from") String fromStr, @QueryParam("to") String toStr,
+                                  @QueryParam("artistId") Long artistId,
+                                  @QueryParam("format") @DefaultValue("csv") String format) {
+        return export("payouts", fromStr, toStr, format,
+                (from, to) -> sink -> adminEJB.streamPayouts(from, to, artistId, sink));
+    }
+
+    // Parameters are checked before the body starts, so mistakes still get a 400
+    private Response export(String name, String fromStr, String toStr, String format,
+                            BiFunction<LocalDate, LocalDate, Consumer<RowSink>> producer) {
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        if (!xlsx && !"csv".equalsIgnoreCase(format)) {
+            return badRequest("format must be 'csv' or 'xlsx'.");
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = (fromStr != null && !fromStr.isEmpty()) ? LocalDate.parse(fromStr) : null;
+            to = (toStr != null && !toStr.isEmpty()) ? LocalDate.parse(toStr) : null;
+        } catch (DateTimeParseException e) {
+            return badRequest("Dates must be in yyyy-MM-dd format.");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            return badRequest("'to' date must not be before 'from' date.");
+        }
+        String fileName = name + (from != null ? "-" + from : "") + (to != null ? "-to-" + to : "");
+        return RowStreams.download(fileName, xlsx, producer.apply(from, to));
+    }
+
+    private static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                       .type(MediaType.APPLICATION_JSON)
+                       .entity(Map.of("message", message))
+                       .build();
+    }
+
     @POST
     @Path("/payments/{id}/status")
     public Response markPaymentStatus(@PathParam("id") Integer paymentId, Map<String, Object> data) {
@@ -361,6 +459,27 @@ public Response deleteDesign(@PathParam("id") Long designId) {
         }
     }
 
+    // Payment post-processing queue: event counts per status
+    @GET
+    @Path("/payments/outbox")
+    public Response getPaymentOutboxStatus() {
+        return Response.ok(adminEJB.getPaymentOutboxStatus()).build();
+    }
+
+    // Requeue events that exhausted their retries
+    @POST
+    @Path("/payments/outbox/retry")
+    public Response retryPaymentOutbox() {
+        try {
+            int requeued = adminEJB.retryFailedPaymentEvents();
+            return Response.ok(Map.of("requeued", requeued)).build();
+        } catch (Exception ex) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                           .entity(Map.of("message", getBusinessMessage(ex)))
+                           .build();
+        }
+    }
+
     // -----------------------
     // Earnings & Payouts (Updated based on AdminEJBLocal)
     // -----------------------
@@ -423,6 +542,22 @@ public Response deleteDesign(@PathParam("id") Long designId) {
         }
     }
     
+    // Settles the unpaid earnings of every artist; body: {"adminId": .., "notes": ..}
+    @POST
+    @Path("/payouts/pay-all")
+    public Response payAllArtists(Map<String, Object> data) {
+        try {
+            Long adminId = data != null && data.get("adminId") != null
+                    ? Long.parseLong(data.get("adminId").toString()) : null;
+            String notes = data != null && data.get("notes") != null ? data.get("notes").toString() : null;
+            return Response.ok(adminEJB.payAllArtists(adminId, notes)).build();
+        } catch (Exception ex) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                           .entity(Map.of("message", "Payout run failed: " + getBusinessMessage(ex)))
+                           .build();
+        }
+    }
+
     @GET
     @Path("/artists/{artistId}/payouts")
     public Response listArtistPayouts(@PathParam("artistId") Long artistId,
@@ -467,6 +602,22 @@ public Response generateReports(@QueryParam("from") String fromDateStr, @QueryPa
     }
 }
 
+    // Rebuild the report rollups from payments and appointments; whole history when no dates are given
+    @POST
+    @Path("/reports/rollups/rebuild")
+    public Response rebuildReportRollups(@QueryParam("from") String fromDateStr, @QueryParam("to") String toDateStr) {
+        try {
+            LocalDate fromDate = (fromDateStr != null && !fromDateStr.isEmpty()) ? LocalDate.parse(fromDateStr) : null;
+            LocalDate toDate = (toDateStr != null && !toDateStr.isEmpty()) ? LocalDate.parse(toDateStr) : null;
+            int months = adminEJB.rebuildReportRollups(fromDate, toDate);
+            return Response.ok(Map.of("monthsRebuilt", months)).build();
+        } catch (Exception ex) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                           .entity(Map.of("message", getBusinessMessage(ex)))
+                           .build();
+        }
+    }
+
     // -----------------------
     // Medical Forms
     // -----------------------
@@ -555,6 +706,19 @@ public Response updateAppointmentStatus(@PathParam("id") Long appointmentId,
     }
 }
 
+// Dashboard figures (users by role, appointments by status, earnings), refreshed every few seconds
+@GET
+@Path("/dashboard/statistics")
+public Response getDashboardStatistics() {
+    try {
+        return Response.ok(adminEJB.getDashboardSnapshot()).build();
+    } catch (Exception e) {
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                       .entity(Map.of("message", "Error getting statistics: " + getBusinessMessage(e)))
+                       .build();
+    }
+}
+
 // Get appointment statistics
 @GET
 @Path("/appointments/statistics")
@@ -564,18 +728,8 @@ public Response getAppointmentStatistics(@QueryParam("startDate") String startDa
         LocalDate startDate = startDateStr != null ? LocalDate.parse(startDateStr) : LocalDate.now().minusMonths(1);
         LocalDate endDate = endDateStr != null ? LocalDate.parse(endDateStr) : LocalDate.now();
         
-        // Get appointment counts by status
-        Map<String, Long> stats = new HashMap<>();
-        String[] statuses = {"PENDING", "CONFIRMED", "COMPLETED", "CANCELLED", "PAID"};
-        
-        for (String status : statuses) {
-            AppointmentFilterDTO filter = new AppointmentFilterDTO();
-            filter.setStatus(status);
-            filter.setStartDate(startDate);
-            filter.setEndDate(endDate);
-            filter.setSize(Integer.MAX_VALUE); // Get all
-            stats.put(status, adminEJB.countFilteredAppointments(filter));
-        }
+        // Appointment counts by status; the default window is answered from the dashboard snapshot
+        Map<String, Long> stats = adminEJB.getAppointmentStatistics(startDate, endDate);
         
         return Response.ok(stats).build();
     } catch (Exception e) {
@@ -768,6 +922,13 @@ public Response getAppointmentsWithPendingForms() {
     }
 }
 
+@GET
+@Path("/appointments/pending-forms/stream")
+@Produces({MediaType.APPLICATION_JSON, RowStreams.NDJSON})
+public Response streamAppointmentsWithPendingForms(@Context HttpHeaders headers) {
+    return RowStreams.response(headers, sink -> adminEJB.streamAppointments(true, sink));
+}
+
 @GET
 @Path("/appointments/approved-forms")
 public Response getAppointmentsWithApprovedForms() {
@@ -799,4 +960,38 @@ public Response getMedicalFormsStatistics(@QueryParam("startDate") String startD
     }
 }
 
+// -----------------------
+// Caches and filter counters
+// -----------------------
+@GET
+@Path("/cache/statistics")
+public Response getCacheStatistics() {
+    try {
+        return Response.ok(adminEJB.getCacheStatistics()).build();
+    } catch (Exception e) {
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                       .entity(Map.of("message", "Error reading cache statistics: " + getBusinessMessage(e)))
+                       .build();
+    }
+}
+
+@GET
+@Path("/security/filter-statistics")
+public Response getSecurityFilterStatistics() {
+    return Response.ok(SecurityFilter.getDecisionStats()).build();
+}
+
+@DELETE
+@Path("/cache")
+public Response clearCaches(@QueryParam("resetStatistics") @DefaultValue("false") boolean resetStatistics) {
+    try {
+        adminEJB.clearCaches(resetStatistics);
+        return Response.ok(Map.of("success", true, "message", "Caches cleared.")).build();
+    } catch (Exception e) {
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                       .entity(Map.of("message", "Error clearing caches: " + getBusinessMessage(e)))
+                       .build();
+    }
+}
+
 }
\ No newline at end of file
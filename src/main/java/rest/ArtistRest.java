@@ -1,15 +1,20 @@
 package rest;
 
+import dto.SlotGenerationResultDTO;
+import beans.MediaBean;
 import ejb.ArtistEJBLocal;
+import ejb.ImageAssetEJB;
 import entities.*;
 import jakarta.ejb.EJB;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import jakarta.annotation.security.RolesAllowed;
@@ -23,6 +28,11 @@ public class ArtistRest {
     @EJB
     private ArtistEJBLocal artistEJB;
 
+    @EJB
+    private ImageAssetEJB imageAssets;
+
+    private final MediaBean media = new MediaBean();
+
     private String getBusinessMessage(Exception e) {
         Throwable cause = e.getCause();
         // Check for EJBException wrapper and return its cause message, otherwise return the current message
@@ -152,6 +162,38 @@ public Response deleteDesign(@PathParam("designId") Long designId) {
         }
     }
 
+    /**
+     * Upload a design image as the raw request body. The image is stored by
+     * content hash and served from /media with long-lived cache headers.
+     */
+    @POST
+    @Path("/{id}/designs/{designId}/image")
+    @Consumes({"image/jpeg", "image/png", "image/gif", "image/webp", MediaType.APPLICATION_OCTET_STREAM})
+    public Response uploadDesignImage(@PathParam("id") Long artistId,
+                                      @PathParam("designId") Long designId,
+                                      InputStream body) {
+        try {
+            // Ownership first, so a rejected request never writes to the image store
+            artistEJB.checkDesignImageEditable(designId, artistId);
+            String imagePath = imageAssets.store(body);
+            artistEJB.updateDesignImage(designId, artistId, imagePath);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("imagePath", imagePath);
+            for (int width : ImageAssetEJB.THUMB_WIDTHS) {
+                result.put("thumbnail" + width, media.thumb(imagePath, width));
+            }
+            return Response.ok(result).build();
+        } catch (IllegalArgumentException ex) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", ex.getMessage()))
+                    .build();
+        } catch (Exception ex) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", getBusinessMessage(ex)))
+                    .build();
+        }
+    }
+
     @GET
     @Path("/designs/{designId}")
     public Response getDesign(@PathParam("designId") Long designId) {
@@ -363,10 +405,10 @@ public Response setArtistSchedule(@PathParam("id") Long artistId, ArtistSchedule
                 }
 
                 // 3. Call the EJB method (this line now executes without the ClassCastException)
-                List<TimeSlot> createdSlots = artistEJB.generateTimeSlotsForArtist(artistId, startDate, endDate, slotDurationMinutes);
+                SlotGenerationResultDTO result = artistEJB.generateTimeSlotsForArtist(artistId, startDate, endDate, slotDurationMinutes);
 
-                // 4. Return success response
-                return Response.ok(createdSlots).build();
+                // 4. Return success response (counts only)
+                return Response.ok(result).build();
 
             } catch (DateTimeParseException ex) {
                 return Response.status(Response.Status.BAD_REQUEST)
@@ -1,6 +1,7 @@
 package rest;
 
 import ejb.AuthEJB;
+import ejb.PasswordHashingEJB;
 import entities.AppUser;
 import jakarta.annotation.security.PermitAll;
 import jakarta.ejb.EJB;
@@ -9,7 +10,6 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.util.Map;
 import security.JWTUtil;
-import util.PasswordUtil; // Import Utility
 
 @Path("/auth")
 @PermitAll
@@ -20,6 +20,9 @@ public class AuthRest {
     @EJB
     private AuthEJB authBean;
 
+    @EJB
+    private PasswordHashingEJB passwordHashing;
+
     public static class LoginCredentials {
         public String username;
         public String password;
@@ -81,7 +84,7 @@ public class AuthRest {
             }
 
             // HASH PASSWORD HERE
-            String hashedPassword = PasswordUtil.hashPassword(regData.password);
+            String hashedPassword = passwordHashing.hash(regData.password);
 
             AppUser newUser = new AppUser();
             newUser.setUsername(regData.username);
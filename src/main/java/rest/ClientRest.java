@@ -77,6 +77,34 @@ public class ClientRest {
         }
     }
 
+    /**
+     * GET /api/client/designs/search/facets
+     * same params as /designs/search; returns { designIds, totalHits, styleFacets }
+     */
+    @GET
+    @PermitAll
+    @Path("/designs/search/facets")
+    public Response searchDesignFacets(@QueryParam("q") String q,
+                                       @QueryParam("style") String style,
+                                       @QueryParam("minPrice") String minPriceStr,
+                                       @QueryParam("maxPrice") String maxPriceStr,
+                                       @QueryParam("offset") @DefaultValue("0") int offset,
+                                       @QueryParam("limit") @DefaultValue("50") int limit) {
+        try {
+            BigDecimal minPrice = null, maxPrice = null;
+            if (minPriceStr != null && !minPriceStr.isBlank()) minPrice = new BigDecimal(minPriceStr);
+            if (maxPriceStr != null && !maxPriceStr.isBlank()) maxPrice = new BigDecimal(maxPriceStr);
+
+            return Response.ok(clientEJB.searchDesignIds(q, style, minPrice, maxPrice, offset, limit)).build();
+        } catch (NumberFormatException nfe) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                           .entity(Map.of("error", "Invalid price format")).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                           .entity(Map.of("error", e.getMessage())).build();
+        }
+    }
+
     /**
      * GET /api/client/designs/{id}
      * returns design if found else { "error": "Design not found" }
@@ -0,0 +1,185 @@
+package rest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dto.RowSink;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Streams export rows to the response as JSON (one array of objects),
+ * NDJSON (one object per line), CSV or XLSX, writing each row as soon as the
+ * EJB reads it.
+ */
+final class RowStreams {
+
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+    static final String XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private RowStreams() {}
+
+    /** 200 response whose body is produced by {@code producer}; NDJSON when the client accepts it. */
+    static Response response(HttpHeaders headers, Consumer<RowSink> producer) {
+        boolean ndjson = wantsNdjson(headers);
+        StreamingOutput body = out -> {
+            try (JsonGenerator gen = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+                JsonRowSink sink = new JsonRowSink(gen, ndjson);
+                if (!ndjson) gen.writeStartArray();
+                try {
+                    producer.accept(sink);
+                } catch (RowSink.AbortedException e) {
+                    throw e.getCause();
+                }
+                if (!ndjson) gen.writeEndArray();
+            }
+        };
+        return Response.ok(body, ndjson ? NDJSON : MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * File download of the rows produced by {@code producer}: XLSX when
+     * {@code xlsx} is set, otherwise UTF-8 CSV. {@code baseName} names both
+     * the file and the sheet.
+     */
+    static Response download(String baseName, boolean xlsx, Consumer<RowSink> producer) {
+        StreamingOutput body = out -> {
+            try {
+                if (xlsx) {
+                    XlsxRowSink sink = new XlsxRowSink(out, baseName);
+                    producer.accept(sink);
+                    // Only a complete export gets the workbook parts; a failed one stays unreadable
+                    sink.close();
+                } else {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                    producer.accept(new CsvRowSink(writer));
+                    writer.flush();
+                }
+            } catch (RowSink.AbortedException e) {
+                throw e.getCause();
+            }
+        };
+        return Response.ok(body, xlsx ? XLSX : CSV + "; charset=UTF-8")
+                .header("Content-Disposition",
+                        "attachment; filename=\"" + baseName + (xlsx ? ".xlsx" : ".csv") + "\"")
+                .build();
+    }
+
+    private static boolean wantsNdjson(HttpHeaders headers) {
+        if (headers == null) return false;
+        for (MediaType m : headers.getAcceptableMediaTypes()) {
+            if ("application".equals(m.getType()) && "x-ndjson".equals(m.getSubtype())) return true;
+            if ("application".equals(m.getType()) && "json".equals(m.getSubtype())) return false;
+        }
+        return false;
+    }
+
+    private static final class JsonRowSink implements RowSink {
+        private final JsonGenerator gen;
+        private final boolean ndjson;
+        private String[] columns = new String[0];
+
+        JsonRowSink(JsonGenerator gen, boolean ndjson) {
+            this.gen = gen;
+            this.ndjson = ndjson;
+        }
+
+        @Override
+        public void header(String... columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(Object[] values) {
+            try {
+                gen.writeStartObject();
+                for (int i = 0; i < columns.length; i++) {
+                    gen.writeFieldName(columns[i]);
+                    writeValue(i < values.length ? values[i] : null);
+                }
+                gen.writeEndObject();
+                if (ndjson) gen.writeRaw('\n');
+            } catch (IOException e) {
+                // Client went away; abort the export
+                throw new AbortedException(e);
+            }
+        }
+
+        private void writeValue(Object v) throws IOException {
+            if (v == null) gen.writeNull();
+            else if (v instanceof BigDecimal) gen.writeNumber((BigDecimal) v);
+            else if (v instanceof BigInteger) gen.writeNumber((BigInteger) v);
+            else if (v instanceof Long) gen.writeNumber((Long) v);
+            else if (v instanceof Integer) gen.writeNumber((Integer) v);
+            else if (v instanceof Number) gen.writeNumber(((Number) v).doubleValue());
+            else if (v instanceof Boolean) gen.writeBoolean((Boolean) v);
+            else if (v instanceof Enum) gen.writeString(((Enum<?>) v).name());
+            else gen.writeString(v.toString()); // Strings and java.time values (ISO-8601)
+        }
+    }
+
+    /** RFC 4180 CSV: CRLF line ends, fields quoted when they need it. */
+    private static final class CsvRowSink implements RowSink {
+        private final Writer out;
+        private int width;
+
+        CsvRowSink(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void header(String... columns) {
+            width = columns.length;
+            row(columns);
+        }
+
+        @Override
+        public void row(Object[] values) {
+            try {
+                for (int i = 0; i < width; i++) {
+                    if (i > 0) out.write(',');
+                    writeValue(i < values.length ? values[i] : null);
+                }
+                out.write("\r\n");
+            } catch (IOException e) {
+                // Client went away; abort the export
+                throw new AbortedException(e);
+            }
+        }
+
+        private void writeValue(Object v) throws IOException {
+            if (v == null) return;
+            if (v instanceof BigDecimal) {
+                out.write(((BigDecimal) v).toPlainString());
+                return;
+            }
+            if (v instanceof Number || v instanceof Boolean) {
+                out.write(v.toString());
+                return;
+            }
+            String s = v instanceof Enum ? ((Enum<?>) v).name() : v.toString();
+            // Text that a spreadsheet would run as a formula is kept as text
+            if (!s.isEmpty() && "=+-@\t\r".indexOf(s.charAt(0)) >= 0) s = "'" + s;
+            if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(s.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(s);
+            }
+        }
+    }
+}
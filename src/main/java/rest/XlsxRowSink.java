@@ -0,0 +1,183 @@
+package rest;
+
+import dto.RowSink;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes export rows as an XLSX workbook while they arrive. Each row goes
+ * straight into the zipped sheet XML with inline strings (no shared-string
+ * table), so memory does not grow with the export. The workbook parts that
+ * list the sheets are written last; a sheet that reaches Excel's row limit
+ * is closed and the rows continue on a new sheet under the same header.
+ */
+final class XlsxRowSink implements RowSink, AutoCloseable {
+
+    /** Excel's row limit per sheet, header included. */
+    private static final int MAX_ROWS = 1_048_576;
+
+    private static final String SHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PKG_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final String sheetName;
+    private String[] columns = new String[0];
+    private int sheets;
+    private int rowsInSheet;
+
+    XlsxRowSink(OutputStream target, String sheetName) {
+        this.zip = new ZipOutputStream(target, StandardCharsets.UTF_8);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        this.sheetName = sheetName.length() > 28 ? sheetName.substring(0, 28) : sheetName;
+    }
+
+    @Override
+    public void header(String... columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void row(Object[] values) {
+        try {
+            if (sheets == 0 || rowsInSheet >= MAX_ROWS) startSheet();
+            writeRow(values);
+        } catch (IOException e) {
+            // Client went away; abort the export
+            throw new AbortedException(e);
+        }
+    }
+
+    private void startSheet() throws IOException {
+        if (sheets > 0) endSheet();
+        sheets++;
+        rowsInSheet = 0;
+        begin("xl/worksheets/sheet" + sheets + ".xml");
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write("<worksheet xmlns=\"" + SHEET_NS + "\"><sheetData>");
+        writeRow(columns);
+    }
+
+    private void endSheet() throws IOException {
+        out.write("</sheetData></worksheet>");
+        end();
+    }
+
+    private void writeRow(Object[] values) throws IOException {
+        out.write("<row>");
+        for (int i = 0; i < columns.length; i++) {
+            writeCell(i < values.length ? values[i] : null);
+        }
+        out.write("</row>");
+        rowsInSheet++;
+    }
+
+    // Cells carry no reference, so empty values still take their column
+    private void writeCell(Object v) throws IOException {
+        if (v == null) {
+            out.write("<c/>");
+        } else if (v instanceof BigDecimal) {
+            out.write("<c><v>" + ((BigDecimal) v).toPlainString() + "</v></c>");
+        } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof BigInteger) {
+            out.write("<c><v>" + v + "</v></c>");
+        } else if (v instanceof Number) {
+            double d = ((Number) v).doubleValue();
+            if (Double.isFinite(d)) out.write("<c><v>" + d + "</v></c>");
+            else out.write("<c/>");
+        } else if (v instanceof Boolean) {
+            out.write("<c t=\"b\"><v>" + ((Boolean) v ? "1" : "0") + "</v></c>");
+        } else {
+            // Strings, enums and java.time values (ISO-8601)
+            String s = v instanceof Enum ? ((Enum<?>) v).name() : v.toString();
+            out.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            escape(s);
+            out.write("</t></is></c>");
+        }
+    }
+
+    private void escape(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '&': out.write("&amp;"); break;
+                case '<': out.write("&lt;"); break;
+                case '>': out.write("&gt;"); break;
+                case '"': out.write("&quot;"); break;
+                default:
+                    // Control characters other than tab and line breaks are not allowed in XML
+                    if (ch >= 0x20 || ch == '\t' || ch == '\n' || ch == '\r') out.write(ch);
+            }
+        }
+    }
+
+    /** Closes the last sheet and writes the parts that describe the workbook. */
+    @Override
+    public void close() throws IOException {
+        if (sheets == 0) startSheet(); // header-only workbook
+        endSheet();
+
+        begin("xl/workbook.xml");
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write("<workbook xmlns=\"" + SHEET_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>");
+        for (int i = 1; i <= sheets; i++) {
+            out.write("<sheet name=\"");
+            escape(i == 1 ? sheetName : sheetName + " " + i);
+            out.write("\" sheetId=\"" + i + "\" r:id=\"rId" + i + "\"/>");
+        }
+        out.write("</sheets></workbook>");
+        end();
+
+        begin("xl/_rels/workbook.xml.rels");
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write("<Relationships xmlns=\"" + PKG_REL_NS + "\">");
+        for (int i = 1; i <= sheets; i++) {
+            out.write("<Relationship Id=\"rId" + i + "\" Type=\"" + REL_NS + "/worksheet\" "
+                    + "Target=\"worksheets/sheet" + i + ".xml\"/>");
+        }
+        out.write("</Relationships>");
+        end();
+
+        begin("_rels/.rels");
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write("<Relationships xmlns=\"" + PKG_REL_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        end();
+
+        begin("[Content_Types].xml");
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" "
+                + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        for (int i = 1; i <= sheets; i++) {
+            out.write("<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" "
+                    + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        out.write("</Types>");
+        end();
+
+        // Finish the archive but leave the response stream to the container
+        zip.finish();
+        zip.flush();
+    }
+
+    private void begin(String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+    }
+
+    private void end() throws IOException {
+        out.flush();
+        zip.closeEntry();
+    }
+}
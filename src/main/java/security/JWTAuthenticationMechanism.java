@@ -30,14 +30,15 @@ public class JWTAuthenticationMechanism implements HttpAuthenticationMechanism {
         // 2. Extract token
         String token = authHeader.substring("Bearer ".length()).trim();
 
-        // 3. Validate token
-        if (!JWTUtil.validateToken(token)) {
+        // 3. Validate token (signature is checked once; repeat tokens come from the cache)
+        JWTUtil.VerifiedToken verified = JWTUtil.verify(token);
+        if (verified == null) {
             return context.responseUnauthorized(); // Token invalid/expired
         }
 
         // 4. Extract details
-        String username = JWTUtil.getUsernameFromToken(token);
-        String role = JWTUtil.getRoleFromToken(token);
+        String username = verified.getUsername();
+        String role = verified.getRole();
 
         // 5. Notify the container about the authenticated user and their roles
         return context.notifyContainerAboutLogin(
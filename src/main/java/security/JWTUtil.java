@@ -1,10 +1,17 @@
 package security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.SecretKey;
 
 // CRITICAL NOTE: In production, the SECRET should be read from a secure environment variable.
@@ -13,8 +20,33 @@ public class JWTUtil {
     private static final String SECRET = "mySuperUltraSecretKeyForTattooStudioManagement_A_MUCH_LONGER_STRING_OF_32_BYTES_OR_MORE";
     private static final long EXPIRATION_TIME = 60 * 60 * 1000; // 1 hour expiry
 
-    private static SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET.getBytes());
+    // Key and parser are immutable and thread-safe; build them once
+    private static final SecretKey SIGNING_KEY = Keys.hmacShaKeyFor(SECRET.getBytes());
+    private static final JwtParser PARSER = Jwts.parserBuilder().setSigningKey(SIGNING_KEY).build();
+
+    // Verified tokens, keyed by SHA-256 of the token so raw tokens are not kept in memory
+    private static final int MAX_CACHED_TOKENS = 10_000;
+    private static final Map<String, VerifiedToken> VERIFIED = new ConcurrentHashMap<>();
+
+    /** Subject and role of a token whose signature and expiry have been checked. */
+    public static final class VerifiedToken {
+        private final String username;
+        private final String role;
+        private final long expiresAt;
+
+        VerifiedToken(String username, String role, long expiresAt) {
+            this.username = username;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUsername() { return username; }
+        public String getRole() { return role; }
+        public long getExpiresAt() { return expiresAt; }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
     }
 
     /** Generates a JWT with username as subject and role as a claim. */
@@ -25,35 +57,78 @@ public class JWTUtil {
                 .claim("role", roleName)
                 .setIssuedAt(new Date(now))
                 .setExpiration(new Date(now + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(SIGNING_KEY, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    /** Validates the token's signature and expiration. */
-    public static boolean validateToken(String token) {
+    /**
+     * Verifies the token once and returns its subject and role, or null when
+     * the signature is invalid or the token has expired. Repeat calls with the
+     * same token are served from the verified-token cache until it expires.
+     */
+    public static VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) return null;
+        long now = System.currentTimeMillis();
+        String key = hash(token);
+
+        VerifiedToken cached = VERIFIED.get(key);
+        if (cached != null) {
+            if (!cached.isExpired(now)) return cached;
+            VERIFIED.remove(key, cached);
+            return null;
+        }
+
+        Claims claims;
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            claims = PARSER.parseClaimsJws(token).getBody();
         } catch (Exception e) {
-            return false;
+            return null;
         }
+        // Tokens without an expiry are still verified, but only cached for one token lifetime
+        long expiresAt = claims.getExpiration() != null
+                ? claims.getExpiration().getTime()
+                : now + EXPIRATION_TIME;
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.get("role", String.class), expiresAt);
+
+        if (VERIFIED.size() >= MAX_CACHED_TOKENS) {
+            pruneCache(now);
+        }
+        VERIFIED.put(key, verified);
+        return verified;
+    }
+
+    /** Validates the token's signature and expiration. */
+    public static boolean validateToken(String token) {
+        return verify(token) != null;
     }
 
     /** Extracts the Role from the token. */
     public static String getRoleFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey()).build()
-                .parseClaimsJws(token).getBody();
-        return claims.get("role", String.class);
+        VerifiedToken t = verify(token);
+        return t != null ? t.getRole() : null;
     }
 
     /** Extracts the Username from the token. */
     public static String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey()).build()
-                .parseClaimsJws(token).getBody().getSubject();
+        VerifiedToken t = verify(token);
+        return t != null ? t.getUsername() : null;
+    }
+
+    // Drop expired entries; if that frees nothing, start over rather than grow past the bound
+    private static void pruneCache(long now) {
+        VERIFIED.values().removeIf(t -> t.isExpired(now));
+        if (VERIFIED.size() >= MAX_CACHED_TOKENS) {
+            VERIFIED.clear();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
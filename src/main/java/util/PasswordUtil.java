@@ -1,26 +1,57 @@
 package util;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import org.mindrot.jbcrypt.BCrypt;
+
 /**
- * Utility class for password hashing and verification.
- * * NOTE: In a real environment, you MUST use a robust, industry-standard
- * library like jBCrypt, SCrypt, or Argon2 for secure hashing. This simple
- * SHA-256 implementation with a fixed salt is provided here only to
- * demonstrate the required architecture (saving a hash, not plain text)
- * and should be replaced with a proper library in production.
+ * Password hash formats and verification.
+ *
+ * Stored hashes are self-describing:
+ * <ul>
+ *   <li>{@code $2a$<cost>$...} - bcrypt (jBCrypt)</li>
+ *   <li>{@code pbkdf2-sha256$<iterations>$<salt>$<hash>} - PBKDF2-HMAC-SHA256, Base64 salt and hash</li>
+ *   <li>64 hex characters - legacy single SHA-256 with a fixed salt; verify only</li>
+ * </ul>
+ * The work factor is chosen by the caller (see ejb.PasswordHashingEJB, which
+ * calibrates it at startup); verification reads it from the stored hash.
  */
 public class PasswordUtil {
 
-    // Simple, fixed salt for demonstration purposes (DO NOT USE IN PRODUCTION)
-    private static final String DEMO_SALT = "InkFlowStudioSecureSalt2025"; 
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+
+    private static final String PBKDF2_PREFIX = "pbkdf2-sha256$";
+    private static final int PBKDF2_SALT_BYTES = 16;
+    private static final int PBKDF2_KEY_BITS = 256;
+
+    // Salt of the legacy SHA-256 scheme; kept only to verify and upgrade old hashes
+    private static final String LEGACY_SALT = "InkFlowStudioSecureSalt2025";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     /**
      * Hashes a plain-text password for storage.
      * @param password The plain-text password.
-     * @return The hashed password string.
+     * @param algorithm {@link #BCRYPT} or {@link #PBKDF2}.
+     * @param workFactor bcrypt log2 rounds, or PBKDF2 iterations.
+     * @return The self-describing hash string.
      */
-    public static String hashPassword(String password) {
-        // Concatenate password with salt
-        return sha256(password + DEMO_SALT);
+    public static String hashPassword(String password, String algorithm, int workFactor) {
+        if (PBKDF2.equals(algorithm)) {
+            byte[] salt = new byte[PBKDF2_SALT_BYTES];
+            RANDOM.nextBytes(salt);
+            byte[] hash = pbkdf2(password, salt, workFactor);
+            return PBKDF2_PREFIX + workFactor + "$"
+                    + Base64.getEncoder().encodeToString(salt) + "$"
+                    + Base64.getEncoder().encodeToString(hash);
+        }
+        return BCrypt.hashpw(password, BCrypt.gensalt(workFactor, RANDOM));
     }
 
     /**
@@ -30,19 +61,74 @@ public class PasswordUtil {
      * @return true if the passwords match, false otherwise.
      */
     public static boolean verifyPassword(String password, String storedHash) {
-        // Hash the input password and compare it to the stored hash
-        return storedHash.equals(hashPassword(password));
+        if (password == null || storedHash == null) return false;
+        try {
+            if (isBcrypt(storedHash)) {
+                return BCrypt.checkpw(password, storedHash);
+            }
+            if (storedHash.startsWith(PBKDF2_PREFIX)) {
+                String[] parts = storedHash.substring(PBKDF2_PREFIX.length()).split("\\$");
+                if (parts.length != 3) return false;
+                int iterations = Integer.parseInt(parts[0]);
+                byte[] salt = Base64.getDecoder().decode(parts[1]);
+                byte[] expected = Base64.getDecoder().decode(parts[2]);
+                return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+            }
+            return MessageDigest.isEqual(
+                    storedHash.getBytes(StandardCharsets.UTF_8),
+                    legacySha256(password + LEGACY_SALT).getBytes(StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            // Malformed stored hash
+            return false;
+        }
     }
 
     /**
-     * A simple SHA-256 implementation placeholder (replace with real library).
-     * @param base The string to hash.
-     * @return The hashed string.
+     * True when the stored hash uses another algorithm, a lower work factor
+     * than requested, or the legacy scheme.
      */
-    private static String sha256(String base) {
+    public static boolean needsRehash(String storedHash, String algorithm, int workFactor) {
+        if (storedHash == null) return true;
+        if (isBcrypt(storedHash)) {
+            return !BCRYPT.equals(algorithm) || bcryptCost(storedHash) < workFactor;
+        }
+        if (storedHash.startsWith(PBKDF2_PREFIX)) {
+            if (!PBKDF2.equals(algorithm)) return true;
+            String iterations = storedHash.substring(PBKDF2_PREFIX.length()).split("\\$")[0];
+            try {
+                return Integer.parseInt(iterations) < workFactor;
+            } catch (NumberFormatException e) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBcrypt(String hash) {
+        return hash.startsWith("$2a$") || hash.startsWith("$2b$") || hash.startsWith("$2y$");
+    }
+
+    private static int bcryptCost(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        try {
+            KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, PBKDF2_KEY_BITS);
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (Exception ex) {
+            throw new RuntimeException("Error hashing password", ex);
+        }
+    }
+
+    private static String legacySha256(String base) {
         try {
-            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(base.getBytes("UTF-8"));
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(base.getBytes(StandardCharsets.UTF_8));
             StringBuilder hexString = new StringBuilder();
             for (byte b : hash) {
                 String hex = Integer.toHexString(0xff & b);
@@ -51,8 +137,7 @@ public class PasswordUtil {
             }
             return hexString.toString();
         } catch (Exception ex) {
-            // In a real application, you would handle this more gracefully.
             throw new RuntimeException("Error hashing password", ex);
         }
     }
-}
\ No newline at end of file
+}